@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.ACSDeploymentContext;
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.management.resources.models.Deployment;
+
+/**
+ * Building the ARM deployment request: the template parameters of a
+ * context, a single validated parameter and the complete request with the
+ * embedded template.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DeploymentParametersBenchmark {
+	private ACSDeploymentContext context;
+
+	@Setup
+	public void setup() throws IOException, AzureCloudException {
+		this.context = new ACSDeploymentContext(
+				"benchmark",
+				"3",
+				"Standard_A1",
+				"azureuser",
+				"1",
+				"ssh-rsa AAAAB3NzaC1yc2EAAAADAQABAAABAQC7benchmarkkeybenchmarkkeybenchmarkkey benchmark@jenkins",
+				"marathon.json",
+				"",
+				"/var/lib/jenkins/.ssh/id_rsa",
+				"West US");
+		// parse the embedded template outside of the measurement
+		AzureManagementServiceDelegate.getEmbeddedTemplate(this.context.getEmbeddedTemplateName());
+	}
+
+	@Benchmark
+	public ObjectNode configureParameters() throws IllegalAccessException, AzureCloudException {
+		ObjectNode parameters = JsonNodeFactory.instance.objectNode();
+		this.context.configureParameters(parameters);
+		return parameters;
+	}
+
+	@Benchmark
+	public ObjectNode validateAndAddStringValue() throws IllegalAccessException, AzureCloudException {
+		ObjectNode parameters = JsonNodeFactory.instance.objectNode();
+		AzureManagementServiceDelegate.validateAndAddFieldValue("string", "Standard_A1", "agentVMSize", 
+				"Agent VM size is required", parameters);
+		return parameters;
+	}
+
+	@Benchmark
+	public ObjectNode validateAndAddIntValue() throws IllegalAccessException, AzureCloudException {
+		ObjectNode parameters = JsonNodeFactory.instance.objectNode();
+		AzureManagementServiceDelegate.validateAndAddFieldValue("int", "3", "agentCount", 
+				"Agent count is required", parameters);
+		return parameters;
+	}
+
+	@Benchmark
+	public Deployment createDeployment() throws IOException, IllegalAccessException, AzureCloudException {
+		return AzureManagementServiceDelegate.createDeployment(this.context);
+	}
+
+	@Benchmark
+	public String deploymentFingerprint() throws IOException, IllegalAccessException, AzureCloudException {
+		return AzureManagementServiceDelegate.getDeploymentFingerprint(this.context);
+	}
+}
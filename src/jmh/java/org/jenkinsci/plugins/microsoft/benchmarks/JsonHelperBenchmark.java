@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.util.JsonHelper;
+import org.jenkinsci.plugins.microsoft.util.MarathonConfigSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Compares the streaming extraction in {@link JsonHelper#scan(String)} with
+ * reading the whole marathon definition into a tree, from a single app up
+ * to a large group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonHelperBenchmark {
+	@Param({"1", "50", "500"})
+	public int appCount;
+
+	private File marathonFile;
+
+	@Setup
+	public void setup() throws IOException {
+		this.marathonFile = MarathonFiles.createGroup(appCount);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.marathonFile.delete();
+	}
+
+	@Benchmark
+	public MarathonConfigSummary streaming() throws IOException {
+		return JsonHelper.scan(this.marathonFile.getPath());
+	}
+
+	@Benchmark
+	public ArrayList<Integer> getHostPorts() throws IOException {
+		return JsonHelper.getHostPorts(this.marathonFile.getPath());
+	}
+
+	@Benchmark
+	public String getId() throws IOException {
+		return JsonHelper.getId(this.marathonFile.getPath());
+	}
+
+	@Benchmark
+	public int treeModel() throws IOException {
+		JsonNode root = JsonHelper.readTree(this.marathonFile.getPath());
+		ArrayList<String> ids = new ArrayList<String>();
+		ArrayList<Integer> hostPorts = new ArrayList<Integer>();
+		Iterator<JsonNode> apps = root.get("apps").elements();
+		while(apps.hasNext()) {
+			JsonNode app = apps.next();
+			ids.add(JsonHelper.getId(app));
+			hostPorts.addAll(JsonHelper.getHostPorts(app));
+		}
+
+		return ids.size() + hostPorts.size();
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates marathon group definitions shaped like the ones we deploy in
+ * production: every app carries env, labels and health checks around the
+ * handful of values the plugin actually reads.
+ */
+public class MarathonFiles {
+	public static File createGroup(int appCount) throws IOException {
+		File file = File.createTempFile("marathon-group", ".json");
+		try(Writer writer = new OutputStreamWriter(new java.io.FileOutputStream(file), StandardCharsets.UTF_8)) {
+			writer.write("{\"id\":\"/benchmark\",\"apps\":[");
+			for(int i = 0; i < appCount; i++) {
+				if(i > 0) {
+					writer.write(',');
+				}
+				writeApp(writer, i);
+			}
+			writer.write("]}");
+		}
+
+		return file;
+	}
+
+	private static void writeApp(Writer writer, int index) throws IOException {
+		writer.write("{\"id\":\"/benchmark/app-" + index + "\",\"cpus\":0.5,\"mem\":256,\"instances\":3,");
+		writer.write("\"env\":{");
+		for(int i = 0; i < 40; i++) {
+			if(i > 0) {
+				writer.write(',');
+			}
+			writer.write("\"SETTING_" + i + "\":\"value-" + index + "-" + i + "-abcdefghijklmnopqrstuvwxyz\"");
+		}
+		writer.write("},\"labels\":{\"team\":\"benchmark\",\"HAPROXY_GROUP\":\"external\"},");
+		writer.write("\"container\":{\"type\":\"DOCKER\",\"docker\":{\"image\":\"nginx:1.11\",\"network\":\"BRIDGE\",");
+		writer.write("\"portMappings\":[{\"containerPort\":80,\"hostPort\":" + (10000 + index) + ",\"protocol\":\"tcp\"},");
+		writer.write("{\"containerPort\":443,\"hostPort\":" + (20000 + index) + ",\"protocol\":\"tcp\"}]}},");
+		writer.write("\"portDefinitions\":[{\"port\":" + (30000 + index) + ",\"protocol\":\"tcp\"}],");
+		writer.write("\"healthChecks\":[{\"protocol\":\"HTTP\",\"path\":\"/health\",\"portIndex\":0,");
+		writer.write("\"gracePeriodSeconds\":300,\"intervalSeconds\":60,\"maxConsecutiveFailures\":3}]}");
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.util.NetworkResourceProviderHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.management.network.models.LoadBalancingRule;
+import com.microsoft.azure.management.network.models.SecurityRule;
+
+/**
+ * Looking up the rules of a host port in the public agent NSG and load
+ * balancer. A DC/OS agent pool exposing many services carries one rule per
+ * port, up to the few hundred rules Azure allows; the looked up port is the
+ * last one added, or missing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NetworkRulesBenchmark {
+	private static final int FIRST_PORT = 8000;
+
+	@Param({"10", "100", "400"})
+	public int ruleCount;
+
+	private ArrayList<SecurityRule> securityRules;
+	private ArrayList<LoadBalancingRule> balancingRules;
+
+	@Setup
+	public void setup() {
+		this.securityRules = new ArrayList<SecurityRule>();
+		this.balancingRules = new ArrayList<LoadBalancingRule>();
+		for(int i = 0; i < this.ruleCount; i++) {
+			int port = FIRST_PORT + i;
+			SecurityRule securityRule = new SecurityRule();
+			securityRule.setName("Allow_" + port);
+			securityRule.setPriority(200 + i * 10);
+			securityRule.setDestinationPortRange(String.valueOf(port));
+			this.securityRules.add(securityRule);
+
+			LoadBalancingRule balancingRule = new LoadBalancingRule();
+			balancingRule.setName("JLBRuleHttp" + port);
+			balancingRule.setFrontendPort(port);
+			balancingRule.setBackendPort(port);
+			this.balancingRules.add(balancingRule);
+		}
+	}
+
+	@Benchmark
+	public SecurityRule findSecurityRule() {
+		return NetworkResourceProviderHelper.findSecurityRule(this.securityRules, FIRST_PORT + this.ruleCount - 1);
+	}
+
+	@Benchmark
+	public int missingSecurityRule() {
+		if(NetworkResourceProviderHelper.findSecurityRule(this.securityRules, 80) != null) {
+			return -1;
+		}
+
+		return NetworkResourceProviderHelper.getMaxPriority(this.securityRules);
+	}
+
+	@Benchmark
+	public LoadBalancingRule findLoadBalancingRule() {
+		return NetworkResourceProviderHelper.findLoadBalancingRule(this.balancingRules, FIRST_PORT + this.ruleCount - 1);
+	}
+
+	@Benchmark
+	public LoadBalancingRule missingLoadBalancingRule() {
+		return NetworkResourceProviderHelper.findLoadBalancingRule(this.balancingRules, 80);
+	}
+}
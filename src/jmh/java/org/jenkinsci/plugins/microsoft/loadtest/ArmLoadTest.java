@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.loadtest;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.jenkinsci.plugins.microsoft.ACSDeploymentContext;
+import org.jenkinsci.plugins.microsoft.AzureAuthenticationContext;
+import org.jenkinsci.plugins.microsoft.benchmarks.MarathonFiles;
+import org.jenkinsci.plugins.microsoft.commands.EnablePortCommand;
+import org.jenkinsci.plugins.microsoft.commands.GetPublicFQDNCommand;
+import org.jenkinsci.plugins.microsoft.commands.TransitionInfo;
+import org.jenkinsci.plugins.microsoft.services.CommandExecutionMode;
+import org.jenkinsci.plugins.microsoft.services.CommandService;
+import org.jenkinsci.plugins.microsoft.services.DeploymentGovernor;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.DeploymentReport;
+import org.jenkinsci.plugins.microsoft.util.TokenCache;
+
+import hudson.util.StreamBuildListener;
+
+/**
+ * Runs many deployments at once against {@link ArmStandIn} and reports end
+ * to end latency percentiles, ARM calls per deployment and the number of
+ * live threads. Options are <code>--name=value</code> pairs:
+ * <ul>
+ * <li>deployments (50), mode (sequential or concurrent)</li>
+ * <li>latency and jitter in ms (50, 50), throttle and failures as rates (0, 0)</li>
+ * <li>provisioning in ms (10000)</li>
+ * <li>coreQuota (10000), the regional core quota of the stand-in</li>
+ * <li>maxDeployments (0), how many template deployments the
+ * {@link DeploymentGovernor} lets run at the same time, 0 is no limit</li>
+ * <li>timescale (1), how many times faster than real time the plugin and
+ * the stand-in run; the times above and the reported latencies are in
+ * scaled time</li>
+ * </ul>
+ * The marathon deployment needs SSH into the cluster and is skipped, the
+ * flow goes from the management FQDN straight to enabling the ports.
+ */
+public class ArmLoadTest {
+
+	private static class Result {
+		final boolean success;
+		final long millis;
+		final int armCalls;
+		final int armRetries;
+
+		Result(boolean success, long millis, int armCalls, int armRetries) {
+			this.success = success;
+			this.millis = millis;
+			this.armCalls = armCalls;
+			this.armRetries = armRetries;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parseOptions(args);
+		int deployments = Integer.parseInt(option(options, "deployments", "50"));
+		final CommandExecutionMode mode = CommandExecutionMode.valueOf(option(options, "mode", "sequential").toUpperCase());
+		ArmStandIn.Settings settings = new ArmStandIn.Settings();
+		double timescale = Double.parseDouble(option(options, "timescale", "1"));
+		settings.latencyMillis = (long) (Long.parseLong(option(options, "latency", "50")) / timescale);
+		settings.latencyJitterMillis = (long) (Long.parseLong(option(options, "jitter", "50")) / timescale);
+		settings.throttleRate = Double.parseDouble(option(options, "throttle", "0"));
+		settings.failureRate = Double.parseDouble(option(options, "failures", "0"));
+		settings.provisioningMillis = (long) (Long.parseLong(option(options, "provisioning", "10000")) / timescale);
+		settings.coreQuota = Integer.parseInt(option(options, "coreQuota", "10000"));
+		DeploymentClock.set(DeploymentClock.scaled(timescale));
+		DeploymentGovernor.get().setLimits(Integer.parseInt(option(options, "maxDeployments", "0")), 0);
+		// there is no Jenkins home to keep the token in
+		System.setProperty(TokenCache.HOME_PROPERTY, System.getProperty("java.io.tmpdir"));
+
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int threadsBefore = threads.getThreadCount();
+		try(ArmStandIn standIn = ArmStandIn.start(settings)) {
+			standIn.trustClientConnections();
+			final AzureAuthenticationContext authContext = new AzureAuthenticationContext(
+					"00000000-0000-0000-0000-000000000000", "standin-client", "standin-secret",
+					standIn.getOauth2TokenEndpoint());
+			authContext.setServiceManagementURL(standIn.getServiceManagementURL());
+			final File marathonFile = MarathonFiles.createGroup(2);
+
+			// the stand-in and this driver add their own threads, sample the whole JVM
+			final AtomicInteger peakThreads = new AtomicInteger();
+			ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+			sampler.scheduleAtFixedRate(new Runnable() {
+
+				@Override
+				public void run() {
+					int count = threads.getThreadCount();
+					while(count > peakThreads.get() && !peakThreads.compareAndSet(peakThreads.get(), count)) {
+						// retry
+					}
+				}
+			}, 0, 100, TimeUnit.MILLISECONDS);
+
+			ExecutorService pool = Executors.newFixedThreadPool(deployments);
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for(int i = 0; i < deployments; i++) {
+				final String dnsNamePrefix = "loadtest" + i;
+				futures.add(pool.submit(new Callable<Result>() {
+
+					@Override
+					public Result call() throws Exception {
+						start.await();
+						return deploy(dnsNamePrefix, mode, authContext, marathonFile);
+					}
+				}));
+			}
+
+			long wallStart = DeploymentClock.get().nanoTime();
+			start.countDown();
+			List<Result> results = new ArrayList<Result>();
+			for(Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			long wallMillis = TimeUnit.NANOSECONDS.toMillis(DeploymentClock.get().nanoTime() - wallStart);
+			pool.shutdown();
+			sampler.shutdownNow();
+			marathonFile.delete();
+
+			report(results, wallMillis, standIn, threadsBefore, peakThreads.get());
+		}
+	}
+
+	private static Result deploy(String dnsNamePrefix, CommandExecutionMode mode, AzureAuthenticationContext authContext,
+			File marathonFile) {
+		ACSDeploymentContext context = new ACSDeploymentContext(
+				dnsNamePrefix, "3", "Standard_A1", "azureuser", "1",
+				"ssh-rsa AAAAB3NzaC1yc2EAAAADAQABAAABAQC7loadtestloadtestloadtest loadtest@jenkins",
+				marathonFile.getPath(), "", "unused", "West US");
+		context.setExecutionMode(mode);
+		long start = DeploymentClock.get().nanoTime();
+		try {
+			context.configure(new StreamBuildListener(new NullOutputStream(), StandardCharsets.UTF_8), authContext,
+					Collections.<String, String>emptyMap());
+		} catch (Exception e) {
+			System.err.println(dnsNamePrefix + ": " + e);
+			return new Result(false, TimeUnit.NANOSECONDS.toMillis(DeploymentClock.get().nanoTime() - start), 0, 0);
+		}
+
+		context.getCommands().put(GetPublicFQDNCommand.class,
+				new TransitionInfo(new GetPublicFQDNCommand(), EnablePortCommand.class, null));
+		boolean success = CommandService.executeCommands(context) && !context.getHasError();
+		context.releaseDeploymentSlot();
+		long millis = TimeUnit.NANOSECONDS.toMillis(DeploymentClock.get().nanoTime() - start);
+		DeploymentReport report = new DeploymentReport(dnsNamePrefix, context.getTimer().getPhases());
+		return new Result(success, millis, report.getArmCalls(), report.getArmRetries());
+	}
+
+	private static void report(List<Result> results, long wallMillis, ArmStandIn standIn, int threadsBefore,
+			int peakThreads) {
+		List<Long> latencies = new ArrayList<Long>();
+		int succeeded = 0;
+		long armCalls = 0;
+		int maxArmCalls = 0;
+		long armRetries = 0;
+		for(Result result : results) {
+			latencies.add(result.millis);
+			if(result.success) {
+				succeeded++;
+			}
+			armCalls += result.armCalls;
+			maxArmCalls = Math.max(maxArmCalls, result.armCalls);
+			armRetries += result.armRetries;
+		}
+		Collections.sort(latencies);
+
+		System.out.println(String.format("Deployments:        %d succeeded, %d failed in %d ms",
+				succeeded, results.size() - succeeded, wallMillis));
+		System.out.println(String.format("Latency (ms):       p50 %d, p90 %d, p99 %d, max %d",
+				percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+				latencies.get(latencies.size() - 1)));
+		System.out.println(String.format("ARM calls/deploy:   avg %.1f, max %d, throttled or failed %d",
+				(double) armCalls / results.size(), maxArmCalls, armRetries));
+		System.out.println(String.format("Stand-in:           %d ARM requests, %d throttled, %d tokens issued",
+				standIn.getRequestCount(), standIn.getThrottledCount(), standIn.getTokenCount()));
+		System.out.println(String.format("Threads:            %d before, %d peak, %d after",
+				threadsBefore, peakThreads, ManagementFactory.getThreadMXBean().getThreadCount()));
+	}
+
+	private static long percentile(List<Long> sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+	}
+
+	private static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<String, String>();
+		for(String arg : args) {
+			if(!arg.startsWith("--") || arg.indexOf('=') < 0) {
+				throw new IllegalArgumentException("Expected --name=value but got " + arg);
+			}
+			options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+
+		return options;
+	}
+
+	private static String option(Map<String, String> options, String name, String defaultValue) {
+		String value = options.get(name);
+		return value == null ? defaultValue : value;
+	}
+}
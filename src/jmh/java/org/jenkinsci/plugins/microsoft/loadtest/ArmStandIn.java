@@ -0,0 +1,763 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.loadtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.microsoft.services.CoreQuotaCheck;
+import org.jenkinsci.plugins.microsoft.util.Constants;
+import org.jenkinsci.plugins.microsoft.util.ExchangeRecording;
+import org.jenkinsci.plugins.microsoft.util.JsonHelper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * In-process stand-in for the ARM and AAD endpoints the plugin calls:
+ * resource groups, resources, deployments and their operations, public IPs,
+ * network security groups, load balancers, the VM sizes and core usage of
+ * the regions and the OAuth 2.0 token endpoint.
+ * Clusters only exist in memory; a deployment "provisions" for
+ * {@link Settings#provisioningMillis} and then materializes the container
+ * service and its network resources.
+ * <p>
+ * ARM is served over plain HTTP. AAD is served over HTTPS because ADAL
+ * refuses other authorities, with a self-signed certificate generated by
+ * the <code>keytool</code> of the running JDK when the stand-in starts;
+ * call {@link #trustClientConnections()} before the first token request.
+ */
+public class ArmStandIn implements Closeable {
+	private static final String KEYSTORE_PASSWORD = "standin";
+	private static final String TENANT = "standin-tenant";
+
+	/**
+	 * What the stand-in injects. All rates are between 0 and 1.
+	 */
+	public static class Settings {
+		public long latencyMillis = 50;
+		public long latencyJitterMillis = 50;
+		// share of ARM requests answered with 429 Too Many Requests
+		public double throttleRate = 0;
+		public long provisioningMillis = 10000;
+		// share of deployments which end up failed
+		public double failureRate = 0;
+		// when set, ARM requests are answered from a recording instead
+		public ExchangeReplay replay;
+		// regional core quota of the subscription, used by the running and provisioned clusters
+		public int coreQuota = 10000;
+	}
+
+	// cores of the VM sizes the stand-in offers, in every region
+	private static final Map<String, Integer> VM_SIZE_CORES = new LinkedHashMap<String, Integer>();
+	static {
+		VM_SIZE_CORES.put("Standard_A1", 1);
+		VM_SIZE_CORES.put("Standard_A2", 2);
+		VM_SIZE_CORES.put("Standard_A3", 4);
+		VM_SIZE_CORES.put("Standard_A4", 8);
+		VM_SIZE_CORES.put("Standard_D1", 1);
+		VM_SIZE_CORES.put("Standard_D2", 2);
+		VM_SIZE_CORES.put("Standard_D3", 4);
+		VM_SIZE_CORES.put("Standard_D4", 8);
+		VM_SIZE_CORES.put("Standard_D2_v2", 2);
+		VM_SIZE_CORES.put("Standard_D3_v2", 4);
+		VM_SIZE_CORES.put("Standard_D4_v2", 8);
+	}
+
+	private final Settings settings;
+	private final Random random = new Random();
+	private final ConcurrentHashMap<String, ResourceGroup> groups = new ConcurrentHashMap<String, ResourceGroup>();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong throttled = new AtomicLong();
+	private final AtomicLong tokens = new AtomicLong();
+	private final SSLContext sslContext;
+	private final ExecutorService executor;
+	private final HttpServer arm;
+	private final HttpsServer aad;
+
+	private ArmStandIn(Settings settings) throws IOException, GeneralSecurityException {
+		this.settings = settings;
+		this.sslContext = createSSLContext();
+		this.executor = Executors.newCachedThreadPool();
+
+		this.arm = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.arm.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleArm(exchange);
+			}
+		});
+		this.arm.setExecutor(this.executor);
+
+		this.aad = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.aad.setHttpsConfigurator(new HttpsConfigurator(this.sslContext));
+		this.aad.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleToken(exchange);
+			}
+		});
+		this.aad.setExecutor(this.executor);
+	}
+
+	public static ArmStandIn start(Settings settings) throws IOException, GeneralSecurityException {
+		ArmStandIn standIn = new ArmStandIn(settings);
+		standIn.arm.start();
+		standIn.aad.start();
+		return standIn;
+	}
+
+	@Override
+	public void close() {
+		this.arm.stop(0);
+		this.aad.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * The value for <code>serviceManagementURL</code>.
+	 */
+	public String getServiceManagementURL() {
+		return "http://127.0.0.1:" + this.arm.getAddress().getPort() + "/";
+	}
+
+	/**
+	 * The value for <code>oauth2TokenEndpoint</code>.
+	 */
+	public String getOauth2TokenEndpoint() {
+		return "https://127.0.0.1:" + this.aad.getAddress().getPort() + "/" + TENANT;
+	}
+
+	/**
+	 * Makes HTTPS connections of this JVM trust the stand-in certificate.
+	 */
+	public void trustClientConnections() {
+		HttpsURLConnection.setDefaultSSLSocketFactory(this.sslContext.getSocketFactory());
+	}
+
+	public long getRequestCount() {
+		return this.requests.get();
+	}
+
+	public long getThrottledCount() {
+		return this.throttled.get();
+	}
+
+	public long getTokenCount() {
+		return this.tokens.get();
+	}
+
+	private static SSLContext createSSLContext() throws IOException, GeneralSecurityException {
+		KeyStore keyStore = KeyStore.getInstance("JKS");
+		File file = File.createTempFile("standin", ".jks");
+		try {
+			generateKeyStore(file);
+			try(InputStream in = new FileInputStream(file)) {
+				keyStore.load(in, KEYSTORE_PASSWORD.toCharArray());
+			}
+		} finally {
+			file.delete();
+		}
+
+		KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagers.init(keyStore, KEYSTORE_PASSWORD.toCharArray());
+		TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagers.init(keyStore);
+		SSLContext context = SSLContext.getInstance("TLS");
+		context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+		return context;
+	}
+
+	/**
+	 * Writes a key store with the self-signed certificate of 127.0.0.1 and
+	 * localhost to the file.
+	 */
+	private static void generateKeyStore(File file) throws IOException {
+		// keytool does not write into an existing empty file
+		file.delete();
+		File keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool");
+		Process process = new ProcessBuilder(keytool.getPath(), "-genkeypair",
+				"-keystore", file.getPath(), "-storetype", "JKS",
+				"-storepass", KEYSTORE_PASSWORD, "-keypass", KEYSTORE_PASSWORD,
+				"-alias", "standin", "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+				"-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1")
+				.redirectErrorStream(true)
+				.start();
+		String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+		try {
+			if(process.waitFor() != 0) {
+				throw new IOException("Unable to generate the stand-in certificate: " + output);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			process.destroy();
+			throw new InterruptedIOException("Interrupted generating the stand-in certificate");
+		}
+	}
+
+	private void handleToken(HttpExchange exchange) throws IOException {
+		IOUtils.toByteArray(exchange.getRequestBody());
+		if(!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith("/oauth2/token")) {
+			this.sendError(exchange, 404, "NotFound", "No such AAD endpoint");
+			return;
+		}
+
+		this.tokens.incrementAndGet();
+		long expiresIn = TimeUnit.HOURS.toSeconds(1);
+		ObjectNode token = JsonHelper.getMapper().createObjectNode();
+		token.put("token_type", "Bearer");
+		token.put("expires_in", String.valueOf(expiresIn));
+		token.put("expires_on", String.valueOf(System.currentTimeMillis() / 1000 + expiresIn));
+		token.put("resource", Constants.DEFAULT_MANAGEMENT_URL);
+		token.put("access_token", "standin-" + this.tokens.get());
+		this.send(exchange, 200, token);
+	}
+
+	private void handleArm(HttpExchange exchange) throws IOException {
+		this.requests.incrementAndGet();
+		byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+		if(this.settings.replay != null) {
+			this.handleReplay(exchange);
+			return;
+		}
+
+		try {
+			this.delay();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exchange.close();
+			return;
+		}
+
+		if(this.settings.throttleRate > 0 && this.nextDouble() < this.settings.throttleRate) {
+			this.throttled.incrementAndGet();
+			exchange.getResponseHeaders().add("Retry-After", "1");
+			this.sendError(exchange, 429, "TooManyRequests", "The request was throttled by the stand-in");
+			return;
+		}
+
+		// subscriptions/{id}/resourcegroups/{name}/...
+		String[] segments = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").toLowerCase().split("/");
+		// subscriptions/{id}/providers/microsoft.compute/locations/{location}/...
+		if(segments.length == 7 && segments[2].equals("providers") && segments[3].equals("microsoft.compute")
+				&& segments[4].equals("locations")) {
+			this.handleCompute(exchange, segments[6]);
+			return;
+		}
+		if(segments.length < 4 || !segments[0].equals("subscriptions") || !segments[2].equals("resourcegroups")) {
+			this.sendError(exchange, 404, "NotFound", "Not served by the stand-in: " + exchange.getRequestURI());
+			return;
+		}
+
+		String method = exchange.getRequestMethod();
+		String name = segments[3];
+		if(segments.length == 4) {
+			this.handleResourceGroup(exchange, method, name, body);
+			return;
+		}
+
+		ResourceGroup group = this.groups.get(name);
+		if(group == null) {
+			this.sendError(exchange, 404, "ResourceGroupNotFound", "Resource group '" + name + "' could not be found.");
+			return;
+		}
+
+		String[] path = new String[segments.length - 4];
+		System.arraycopy(segments, 4, path, 0, path.length);
+		synchronized(group) {
+			group.route(exchange, method, path, body);
+		}
+	}
+
+	private void handleReplay(HttpExchange exchange) throws IOException {
+		ExchangeRecording.Exchange recorded = this.settings.replay.take(
+				ExchangeRecording.ARM, exchange.getRequestMethod(), exchange.getRequestURI().toString());
+		if(recorded == null) {
+			this.sendError(exchange, 404, "NotRecorded", "Not in the recording: " + exchange.getRequestURI());
+			return;
+		}
+
+		try {
+			this.settings.replay.await(recorded);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exchange.close();
+			return;
+		}
+
+		for(Map.Entry<String, String> header : recorded.getHeaders().entrySet()) {
+			exchange.getResponseHeaders().add(header.getKey(), ExchangeReplay.rewrite(
+					header.getValue(), this.getServiceManagementURL()));
+		}
+		String body = ExchangeReplay.rewrite(
+				recorded.getBody(), this.getServiceManagementURL());
+		if(body == null || body.isEmpty()) {
+			exchange.sendResponseHeaders(recorded.getStatus(), -1);
+			exchange.close();
+			return;
+		}
+
+		byte[] content = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(recorded.getStatus(), content.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(content);
+		}
+	}
+
+	private void handleCompute(HttpExchange exchange, String kind) throws IOException {
+		ObjectNode list = JsonHelper.getMapper().createObjectNode();
+		ArrayNode values = list.putArray("value");
+		if(kind.equals("vmsizes")) {
+			for(Map.Entry<String, Integer> size : VM_SIZE_CORES.entrySet()) {
+				values.addObject()
+						.put("name", size.getKey())
+						.put("numberOfCores", size.getValue());
+			}
+		} else if(kind.equals("usages")) {
+			int used = 0;
+			for(ResourceGroup group : this.groups.values()) {
+				synchronized(group) {
+					used += group.getCoresInUse();
+				}
+			}
+			ObjectNode usage = values.addObject();
+			usage.put("unit", "Count");
+			usage.put("currentValue", used);
+			usage.put("limit", this.settings.coreQuota);
+			usage.putObject("name")
+					.put("value", "cores")
+					.put("localizedValue", "Total Regional Cores");
+		} else {
+			this.sendError(exchange, 404, "NotFound", "Not served by the stand-in: " + exchange.getRequestURI());
+			return;
+		}
+
+		this.send(exchange, 200, list);
+	}
+
+	private static int getCores(int masterCount, String agentVMSize, int agentCount) {
+		Integer agentCores = null;
+		for(Map.Entry<String, Integer> size : VM_SIZE_CORES.entrySet()) {
+			if(size.getKey().equalsIgnoreCase(agentVMSize)) {
+				agentCores = size.getValue();
+			}
+		}
+
+		return masterCount * VM_SIZE_CORES.get(CoreQuotaCheck.DEFAULT_MASTER_VM_SIZE) + agentCount * (agentCores == null ? 1 : agentCores);
+	}
+
+	private void handleResourceGroup(HttpExchange exchange, String method, String name, byte[] body) throws IOException {
+		ResourceGroup group = this.groups.get(name);
+		if("PUT".equals(method)) {
+			int status = 200;
+			if(group == null) {
+				JsonNode request = JsonHelper.getMapper().readTree(body);
+				group = new ResourceGroup(name, request.path("location").asText("westus"));
+				ResourceGroup existing = this.groups.putIfAbsent(name, group);
+				if(existing == null) {
+					status = 201;
+				} else {
+					group = existing;
+				}
+			}
+			this.send(exchange, status, group.toJson());
+		} else if(group == null) {
+			this.sendError(exchange, 404, "ResourceGroupNotFound", "Resource group '" + name + "' could not be found.");
+		} else if("DELETE".equals(method)) {
+			this.groups.remove(name);
+			this.send(exchange, 202, null);
+		} else if("HEAD".equals(method)) {
+			this.send(exchange, 204, null);
+		} else {
+			this.send(exchange, 200, group.toJson());
+		}
+	}
+
+	private void delay() throws InterruptedException {
+		long millis = this.settings.latencyMillis;
+		if(this.settings.latencyJitterMillis > 0) {
+			millis += (long) (this.nextDouble() * this.settings.latencyJitterMillis);
+		}
+
+		if(millis > 0) {
+			Thread.sleep(millis);
+		}
+	}
+
+	private double nextDouble() {
+		synchronized(this.random) {
+			return this.random.nextDouble();
+		}
+	}
+
+	private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+		if(body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+			return;
+		}
+
+		byte[] content = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+		exchange.getResponseHeaders().add("x-ms-request-id", String.valueOf(this.requests.get()));
+		exchange.sendResponseHeaders(status, content.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(content);
+		}
+	}
+
+	private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+		ObjectNode body = JsonHelper.getMapper().createObjectNode();
+		ObjectNode error = body.putObject("error");
+		error.put("code", code);
+		error.put("message", message);
+		this.send(exchange, status, body);
+	}
+
+	/**
+	 * One resource group and, once a deployment finished, the cluster in it.
+	 */
+	private class ResourceGroup {
+		private final String name;
+		private final String location;
+		private final Map<String, Deployment> deployments = new ConcurrentHashMap<String, Deployment>();
+		private ObjectNode containerService;
+		private ObjectNode securityGroup;
+		private ObjectNode loadBalancer;
+		private ArrayNode publicIps;
+
+		ResourceGroup(String name, String location) {
+			this.name = name;
+			this.location = location;
+		}
+
+		String getId() {
+			return "/subscriptions/standin/resourceGroups/" + this.name;
+		}
+
+		ObjectNode toJson() {
+			ObjectNode group = JsonHelper.getMapper().createObjectNode();
+			group.put("id", this.getId());
+			group.put("name", this.name);
+			group.put("location", this.location);
+			group.putObject("properties").put("provisioningState", "Succeeded");
+			return group;
+		}
+
+		void route(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+			String kind = path[0];
+			if(kind.equals("resources") && path.length == 1) {
+				ObjectNode list = JsonHelper.getMapper().createObjectNode();
+				ArrayNode values = list.putArray("value");
+				if(this.containerService != null) {
+					values.add(this.containerService);
+				}
+				send(exchange, 200, list);
+			} else if(kind.equals("deployments") && path.length >= 2) {
+				this.routeDeployment(exchange, method, path, body);
+			} else if(kind.equals("providers") && path.length >= 3) {
+				this.routeProvider(exchange, method, path, body);
+			} else {
+				sendError(exchange, 404, "NotFound", "Not served by the stand-in: " + exchange.getRequestURI());
+			}
+		}
+
+		private void routeDeployment(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+			String deploymentName = path[1];
+			if(path.length == 3 && path[2].equals("validate")) {
+				ObjectNode response = JsonHelper.getMapper().createObjectNode();
+				response.putObject("properties").put("provisioningState", "Succeeded");
+				send(exchange, 200, response);
+				return;
+			}
+
+			Deployment deployment = this.deployments.get(deploymentName);
+			if(path.length == 2 && "PUT".equals(method)) {
+				JsonNode parameters = JsonHelper.getMapper().readTree(body).path("properties").path("parameters");
+				deployment = new Deployment(deploymentName, parameters, nextDouble() < settings.failureRate);
+				this.deployments.put(deploymentName, deployment);
+				send(exchange, 201, deployment.toJson(this));
+			} else if(deployment == null) {
+				sendError(exchange, 404, "DeploymentNotFound", "Deployment '" + deploymentName + "' could not be found.");
+			} else if(path.length == 2) {
+				this.update(deployment);
+				send(exchange, 200, deployment.toJson(this));
+			} else if(path.length == 3 && path[2].equals("operations")) {
+				this.update(deployment);
+				send(exchange, 200, deployment.operationsJson(this));
+			} else {
+				sendError(exchange, 404, "NotFound", "Not served by the stand-in: " + exchange.getRequestURI());
+			}
+		}
+
+		private void routeProvider(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+			String type = path[1] + "/" + path[2];
+			String resourceName = path.length > 3 ? path[3] : null;
+			if(type.equals(Constants.CONTAINER_SERVICE_RESOURCE_TYPE.toLowerCase()) && resourceName != null) {
+				if(this.containerService == null) {
+					sendError(exchange, 404, "ResourceNotFound", "Container service '" + resourceName + "' could not be found.");
+				} else if("PUT".equals(method)) {
+					// scaling the agent pool, applied right away
+					JsonNode properties = JsonHelper.getMapper().readTree(body).path("properties");
+					int count = properties.path("agentPoolProfiles").path(0).path("count").asInt();
+					ObjectNode.class.cast(this.containerService.path("properties").path("agentPoolProfiles").path(0))
+							.put("count", count);
+					send(exchange, 200, this.containerService);
+				} else {
+					send(exchange, 200, this.containerService);
+				}
+			} else if(type.equals("microsoft.network/publicipaddresses") && resourceName == null) {
+				send(exchange, 200, this.list(this.publicIps));
+			} else if(type.equals("microsoft.network/networksecuritygroups")) {
+				this.routeNetworkResource(exchange, method, resourceName, body, this.securityGroup);
+			} else if(type.equals("microsoft.network/loadbalancers")) {
+				this.routeNetworkResource(exchange, method, resourceName, body, this.loadBalancer);
+			} else {
+				sendError(exchange, 404, "NotFound", "Not served by the stand-in: " + exchange.getRequestURI());
+			}
+		}
+
+		private void routeNetworkResource(HttpExchange exchange, String method, String resourceName, byte[] body,
+				ObjectNode resource) throws IOException {
+			if(resourceName == null) {
+				ArrayNode values = JsonHelper.getMapper().createArrayNode();
+				if(resource != null) {
+					values.add(resource);
+				}
+				send(exchange, 200, this.list(values));
+			} else if(resource == null || !resource.path("name").asText().equalsIgnoreCase(resourceName)) {
+				sendError(exchange, 404, "ResourceNotFound", "Resource '" + resourceName + "' could not be found.");
+			} else if("PUT".equals(method)) {
+				// keep the id, name and location, take the rules of the request
+				JsonNode properties = JsonHelper.getMapper().readTree(body).path("properties");
+				Iterator<Map.Entry<String, JsonNode>> fields = properties.fields();
+				ObjectNode stored = ObjectNode.class.cast(resource.path("properties"));
+				while(fields.hasNext()) {
+					Map.Entry<String, JsonNode> field = fields.next();
+					stored.set(field.getKey(), field.getValue());
+				}
+				stored.put("provisioningState", "Succeeded");
+				send(exchange, 200, resource);
+			} else {
+				send(exchange, 200, resource);
+			}
+		}
+
+		private ObjectNode list(ArrayNode values) {
+			ObjectNode list = JsonHelper.getMapper().createObjectNode();
+			list.putArray("value").addAll(values == null ? JsonHelper.getMapper().createArrayNode() : values);
+			return list;
+		}
+
+		/**
+		 * @return the cores of the cluster, or of the deployment creating it
+		 */
+		int getCoresInUse() {
+			if(this.containerService != null) {
+				JsonNode properties = this.containerService.path("properties");
+				JsonNode agents = properties.path("agentPoolProfiles").path(0);
+				return getCores(properties.path("masterProfile").path("count").asInt(),
+						agents.path("vmSize").asText(), agents.path("count").asInt());
+			}
+
+			int cores = 0;
+			for(Deployment deployment : this.deployments.values()) {
+				if(!deployment.isDone()) {
+					cores += getCores(deployment.parameters.path("masterCount").path("value").asInt(1),
+							deployment.parameters.path("agentVMSize").path("value").asText(),
+							deployment.parameters.path(Constants.AGENT_COUNT_PARAMETER).path("value").asInt(1));
+				}
+			}
+			return cores;
+		}
+
+		private void update(Deployment deployment) {
+			if(deployment.isDone() && !deployment.failed && !deployment.materialized) {
+				deployment.materialized = true;
+				this.materialize(deployment.parameters);
+			}
+		}
+
+		private void materialize(JsonNode parameters) {
+			String prefix = parameters.path("dnsNamePrefix").path("value").asText(this.name);
+			String suffix = Integer.toHexString(prefix.hashCode() & 0xfffff);
+			String domain = "." + this.location.replace(" ", "").toLowerCase() + ".cloudapp.azure.com";
+
+			this.containerService = this.resource(
+					Constants.CONTAINER_SERVICE_NAME_PREFIX + prefix, Constants.CONTAINER_SERVICE_RESOURCE_TYPE);
+			this.containerService.putObject("tags").put(Constants.DEPLOYMENT_FINGERPRINT_TAG,
+					parameters.path(Constants.DEPLOYMENT_FINGERPRINT_PARAMETER).path("value").asText());
+			ObjectNode properties = this.containerService.putObject("properties");
+			properties.put("provisioningState", "Succeeded");
+			properties.putObject("orchestratorProfile").put("orchestratorType",
+					parameters.path("orchestratorType").path("value").asText("DCOS"));
+			properties.putObject("masterProfile")
+					.put("count", parameters.path("masterCount").path("value").asInt(1))
+					.put("dnsPrefix", prefix + "mgmt")
+					.put("fqdn", prefix + "mgmt" + domain);
+			properties.putArray("agentPoolProfiles").addObject()
+					.put("name", "agentpools")
+					.put("count", parameters.path(Constants.AGENT_COUNT_PARAMETER).path("value").asInt(1))
+					.put("vmSize", parameters.path("agentVMSize").path("value").asText())
+					.put("fqdn", prefix + "agents" + domain);
+
+			// the management address is looked up at index 1
+			this.publicIps = JsonHelper.getMapper().createArrayNode();
+			this.publicIps.add(this.publicIp("dcos-agent-ip-" + suffix, prefix + "agents" + domain));
+			this.publicIps.add(this.publicIp("dcos-master-ip-" + suffix, prefix + "mgmt" + domain));
+
+			this.securityGroup = this.resource("dcos-agent-public-nsg-" + suffix, "Microsoft.Network/networkSecurityGroups");
+			ObjectNode rule = this.securityGroup.putObject("properties").putArray("securityRules").addObject();
+			rule.put("name", "Allow_HTTP");
+			rule.putObject("properties")
+					.put("protocol", "Tcp")
+					.put("sourcePortRange", "*")
+					.put("destinationPortRange", "80")
+					.put("sourceAddressPrefix", "Internet")
+					.put("destinationAddressPrefix", "*")
+					.put("access", "Allow")
+					.put("priority", 200)
+					.put("direction", "Inbound")
+					.put("provisioningState", "Succeeded");
+
+			this.loadBalancer = this.resource("dcos-agent-lb-" + suffix, "Microsoft.Network/loadBalancers");
+			ObjectNode balancer = this.loadBalancer.putObject("properties");
+			String balancerId = this.loadBalancer.path("id").asText();
+			balancer.putArray("frontendIPConfigurations").addObject()
+					.put("id", balancerId + "/frontendIPConfigurations/dcos-agent-lbFrontEnd")
+					.put("name", "dcos-agent-lbFrontEnd")
+					.putObject("properties");
+			balancer.putArray("backendAddressPools").addObject()
+					.put("id", balancerId + "/backendAddressPools/dcos-agent-pool")
+					.put("name", "dcos-agent-pool")
+					.putObject("properties");
+			balancer.putArray("loadBalancingRules");
+			balancer.put("provisioningState", "Succeeded");
+		}
+
+		private ObjectNode publicIp(String ipName, String fqdn) {
+			ObjectNode ip = this.resource(ipName, "Microsoft.Network/publicIPAddresses");
+			ObjectNode properties = ip.putObject("properties");
+			properties.put("publicIPAllocationMethod", "Dynamic");
+			properties.put("provisioningState", "Succeeded");
+			properties.putObject("dnsSettings")
+					.put("domainNameLabel", fqdn.substring(0, fqdn.indexOf('.')))
+					.put("fqdn", fqdn);
+			return ip;
+		}
+
+		private ObjectNode resource(String resourceName, String type) {
+			ObjectNode resource = JsonHelper.getMapper().createObjectNode();
+			resource.put("id", this.getId() + "/providers/" + type + "/" + resourceName);
+			resource.put("name", resourceName);
+			resource.put("type", type);
+			resource.put("location", this.location);
+			return resource;
+		}
+	}
+
+	/**
+	 * A template deployment, provisioning its resources one after the other.
+	 */
+	private class Deployment {
+		private final String name;
+		private final JsonNode parameters;
+		private final boolean failed;
+		private final long startedAt = System.currentTimeMillis();
+		private boolean materialized;
+
+		Deployment(String name, JsonNode parameters, boolean failed) {
+			this.name = name;
+			this.parameters = parameters;
+			this.failed = failed;
+		}
+
+		boolean isDone() {
+			return System.currentTimeMillis() - this.startedAt >= settings.provisioningMillis;
+		}
+
+		String getState() {
+			if(!this.isDone()) {
+				return "Running";
+			}
+
+			return this.failed ? "Failed" : "Succeeded";
+		}
+
+		ObjectNode toJson(ResourceGroup group) {
+			ObjectNode deployment = JsonHelper.getMapper().createObjectNode();
+			deployment.put("id", group.getId() + "/providers/Microsoft.Resources/deployments/" + this.name);
+			deployment.put("name", this.name);
+			ObjectNode properties = deployment.putObject("properties");
+			properties.put("provisioningState", this.getState());
+			properties.put("mode", "Incremental");
+			return deployment;
+		}
+
+		ObjectNode operationsJson(ResourceGroup group) {
+			String prefix = this.parameters.path("dnsNamePrefix").path("value").asText(group.name);
+			String[][] resources = {
+					{"Microsoft.Network/publicIPAddresses", "dcos-master-ip-" + prefix},
+					{"Microsoft.Network/networkSecurityGroups", "dcos-agent-public-nsg-" + prefix},
+					{Constants.CONTAINER_SERVICE_RESOURCE_TYPE, Constants.CONTAINER_SERVICE_NAME_PREFIX + prefix}
+			};
+
+			// resources complete in order over the provisioning time, the last one decides the outcome
+			long elapsed = System.currentTimeMillis() - this.startedAt;
+			ObjectNode list = JsonHelper.getMapper().createObjectNode();
+			ArrayNode values = list.putArray("value");
+			for(int i = 0; i < resources.length; i++) {
+				boolean last = i == resources.length - 1;
+				boolean done = elapsed >= settings.provisioningMillis * (i + 1) / resources.length;
+				String state = !done ? "Running" : (last && this.failed ? "Failed" : "Succeeded");
+				ObjectNode operation = values.addObject();
+				operation.put("id", group.getId() + "/deployments/" + this.name + "/operations/" + i);
+				operation.put("operationId", String.valueOf(i));
+				ObjectNode properties = operation.putObject("properties");
+				properties.put("provisioningState", state);
+				properties.put("statusCode", done ? (state.equals("Failed") ? "Conflict" : "OK") : "Accepted");
+				properties.putObject("targetResource")
+						.put("id", group.getId() + "/providers/" + resources[i][0] + "/" + resources[i][1])
+						.put("resourceName", resources[i][1])
+						.put("resourceType", resources[i][0]);
+			}
+
+			return list;
+		}
+	}
+}
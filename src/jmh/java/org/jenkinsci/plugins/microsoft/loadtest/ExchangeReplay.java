@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jenkinsci.plugins.microsoft.util.ExchangeRecording;
+
+/**
+ * Serves the exchanges of an {@link ExchangeRecording} to the stand-ins in
+ * the order they were recorded. A request matching no remaining exchange
+ * gets the last one recorded for it, which is the final state of whatever
+ * was polled. Responses take their recorded time divided by the speed.
+ */
+public class ExchangeReplay {
+	private static final Pattern MANAGEMENT_URL = Pattern.compile(
+			"https://management\\.(azure\\.com|core\\.windows\\.net)/");
+	private static final Pattern FQDN = Pattern.compile("(\"fqdn\"\\s*:\\s*\")[^\"]*(\")");
+
+	private final ExchangeRecording recording;
+	private final double speed;
+	private final List<ExchangeRecording.Exchange> remaining;
+	private final AtomicLong served = new AtomicLong();
+	private final AtomicLong repeated = new AtomicLong();
+	private final AtomicLong unmatched = new AtomicLong();
+
+	public ExchangeReplay(ExchangeRecording recording, double speed) {
+		this.recording = recording;
+		this.speed = speed;
+		this.remaining = new ArrayList<ExchangeRecording.Exchange>(recording.getExchanges());
+	}
+
+	public ExchangeRecording getRecording() {
+		return this.recording;
+	}
+
+	/**
+	 * @return the exchange to answer the request with, null if nothing like
+	 * it was recorded
+	 */
+	public synchronized ExchangeRecording.Exchange take(String kind, String method, String path) {
+		String key = ExchangeRecording.getReplayKey(kind, method, path);
+		for(int i = 0; i < this.remaining.size(); i++) {
+			if(this.remaining.get(i).getReplayKey().equals(key)) {
+				this.served.incrementAndGet();
+				return this.remaining.remove(i);
+			}
+		}
+
+		List<ExchangeRecording.Exchange> exchanges = this.recording.getExchanges();
+		for(int i = exchanges.size() - 1; i >= 0; i--) {
+			if(exchanges.get(i).getReplayKey().equals(key)) {
+				this.repeated.incrementAndGet();
+				return exchanges.get(i);
+			}
+		}
+
+		this.unmatched.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Waits for as long as the exchange took, scaled by the speed.
+	 */
+	public void await(ExchangeRecording.Exchange exchange) throws InterruptedException {
+		long millis = (long) (exchange.getDurationMillis() / this.speed);
+		if(millis > 0) {
+			Thread.sleep(millis);
+		}
+	}
+
+	/**
+	 * Points the recorded ARM URLs at the stand-in and the public IP FQDNs at
+	 * localhost, where {@link SshStandIn} listens.
+	 */
+	public static String rewrite(String text, String serviceManagementURL) {
+		if(text == null) {
+			return null;
+		}
+
+		String base = serviceManagementURL.endsWith("/") ? serviceManagementURL : serviceManagementURL + "/";
+		String rewritten = MANAGEMENT_URL.matcher(text).replaceAll(Matcher.quoteReplacement(base));
+		return FQDN.matcher(rewritten).replaceAll("$1localhost$2");
+	}
+
+	public long getServedCount() {
+		return this.served.get();
+	}
+
+	public long getRepeatedCount() {
+		return this.repeated.get();
+	}
+
+	public long getUnmatchedCount() {
+		return this.unmatched.get();
+	}
+
+	/**
+	 * @return the exchanges never asked for, e.g. polls a faster replay no
+	 * longer needed
+	 */
+	public synchronized int getRemainingCount() {
+		return this.remaining.size();
+	}
+}
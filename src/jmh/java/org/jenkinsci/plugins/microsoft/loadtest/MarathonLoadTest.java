@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.commands.MarathonDeploymentCommand;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
+import org.jenkinsci.plugins.microsoft.util.PhaseTiming;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.KeyPair;
+import com.jcraft.jsch.Session;
+import com.microsoft.azure.management.network.NetworkResourceProviderClient;
+import com.microsoft.azure.management.resources.ResourceManagementClient;
+
+/**
+ * Runs {@link MarathonDeploymentCommand} against {@link SshStandIn} at
+ * increasing concurrency and reports, per level, the SSH connect, SFTP
+ * upload and exec times the command records, the time until Marathon
+ * finished the deployment, and the cost of an exec on an already open
+ * session compared to the connect per command the plugin does today.
+ * Options are <code>--name=value</code> pairs: levels (1,2,4,8,16), rounds
+ * per worker (3) and the Marathon deployment latency in ms (2000).
+ */
+public class MarathonLoadTest {
+
+	private static class Sample {
+		long connect;
+		long upload;
+		long exec;
+		long deploy;
+		long reusedExec;
+		boolean success;
+	}
+
+	/**
+	 * Command data of one worker, what the deployment context provides in a
+	 * build.
+	 */
+	private static class WorkerData implements MarathonDeploymentCommand.IMarathonDeploymentCommandData {
+		private final String user;
+		private final String keyFile;
+		private final int sshPort;
+		private final String marathonConfig;
+		private DeploymentState state = DeploymentState.Unknown;
+
+		WorkerData(String user, String keyFile, int sshPort, String appId) {
+			this.user = user;
+			this.keyFile = keyFile;
+			this.sshPort = sshPort;
+			this.marathonConfig = "{\"id\":\"" + appId + "\",\"cpus\":0.1,\"mem\":64,\"instances\":1,"
+					+ "\"container\":{\"type\":\"DOCKER\",\"docker\":{\"image\":\"nginx\",\"network\":\"BRIDGE\","
+					+ "\"portMappings\":[{\"containerPort\":80,\"hostPort\":80}]}}}";
+		}
+
+		public String getDnsNamePrefix() { return this.user; }
+		public String getLocation() { return "West US"; }
+		public String getMarathonConfigFile() { return null; }
+		public String getMarathonConfig() { return this.marathonConfig; }
+		public String getMgmtFQDN() { return "127.0.0.1"; }
+		public int getMgmtSshPort() { return this.sshPort; }
+		public String getSshKeyFileLocation() { return this.keyFile; }
+		public String getSshKeyFilePassword() { return null; }
+		public String getLinuxAdminUsername() { return this.user; }
+		public NetworkResourceProviderClient getNetworkClient() { return null; }
+		public ResourceManagementClient getResourceClient() { return null; }
+
+		public void logError(String message) { System.err.println(this.user + ": " + message); this.state = DeploymentState.HasError; }
+		public void logStatus(String status) { }
+		public void logError(Exception ex) { this.logError(ex.toString()); }
+		public void logError(String prefix, Exception ex) { this.logError(prefix + " " + ex); }
+		public void setDeploymentState(DeploymentState deployState) { this.state = deployState; }
+		public DeploymentState getDeploymentState() { return this.state; }
+	}
+
+	public static void main(String[] args) throws Exception {
+		String[] levels = "1,2,4,8,16".split(",");
+		int rounds = 3;
+		long latency = 2000;
+		for(String arg : args) {
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if(arg.startsWith("--levels=")) {
+				levels = value.split(",");
+			} else if(arg.startsWith("--rounds=")) {
+				rounds = Integer.parseInt(value);
+			} else if(arg.startsWith("--latency=")) {
+				latency = Long.parseLong(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+
+		File keyFile = File.createTempFile("standin", ".key");
+		KeyPair keyPair = KeyPair.genKeyPair(new JSch(), KeyPair.RSA, 2048);
+		keyPair.writePrivateKey(keyFile.getPath());
+		keyPair.dispose();
+
+		try(MarathonStandIn marathon = MarathonStandIn.start(latency);
+				SshStandIn ssh = SshStandIn.start(marathon)) {
+			System.out.println(String.format("%-6s %-14s %-14s %-14s %-16s %-16s %s",
+					"level", "connect p50/95", "upload p50/95", "exec p50/95", "deployed p50/95", "reused exec p50", "failed"));
+			for(String level : levels) {
+				List<Sample> samples = runLevel(Integer.parseInt(level.trim()), rounds, keyFile.getPath(), ssh, marathon);
+				report(Integer.parseInt(level.trim()), samples);
+			}
+		} finally {
+			keyFile.delete();
+		}
+	}
+
+	private static List<Sample> runLevel(int workers, final int rounds, final String keyFile, final SshStandIn ssh,
+			final MarathonStandIn marathon) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<List<Sample>>> futures = new ArrayList<Future<List<Sample>>>();
+		for(int i = 0; i < workers; i++) {
+			final String user = "worker" + workers + "x" + i;
+			futures.add(pool.submit(new Callable<List<Sample>>() {
+
+				@Override
+				public List<Sample> call() throws Exception {
+					start.await();
+					return runWorker(user, rounds, keyFile, ssh, marathon);
+				}
+			}));
+		}
+
+		start.countDown();
+		List<Sample> samples = new ArrayList<Sample>();
+		for(Future<List<Sample>> future : futures) {
+			samples.addAll(future.get());
+		}
+		pool.shutdown();
+		return samples;
+	}
+
+	private static List<Sample> runWorker(String user, int rounds, String keyFile, SshStandIn ssh,
+			MarathonStandIn marathon) throws JSchException, IOException, InterruptedException {
+		List<Sample> samples = new ArrayList<Sample>();
+		String appId = "/loadtest/" + user;
+		// kept open across rounds, forwards to Marathon the way an SSH tunnel to the master would
+		Session session = connect(user, keyFile, ssh.getPort());
+		int forwardedPort = session.setPortForwardingL(0, "127.0.0.1", marathon.getPort());
+		try {
+			for(int round = 0; round < rounds; round++) {
+				Sample sample = new Sample();
+				WorkerData data = new WorkerData(user, keyFile, ssh.getPort(), appId);
+				DeploymentTimer timer = new DeploymentTimer();
+				long started = System.nanoTime();
+				DeploymentTimer.Phase phase = timer.startCommand("MarathonDeploymentCommand");
+				new MarathonDeploymentCommand().execute(data);
+				phase.end(String.valueOf(data.getDeploymentState()));
+
+				while(isDeploying(forwardedPort, appId)) {
+					Thread.sleep(50);
+				}
+				sample.deploy = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+				sample.success = data.getDeploymentState() == DeploymentState.Success;
+				for(PhaseTiming timing : timer.getPhases()) {
+					if(timing.getName().startsWith("SSH connect")) {
+						sample.connect += timing.getDurationMillis();
+					} else if(timing.getName().startsWith("SFTP put")) {
+						sample.upload += timing.getDurationMillis();
+					} else if(timing.getName().startsWith("SSH exec")) {
+						sample.exec += timing.getDurationMillis();
+					}
+				}
+
+				long execStart = System.nanoTime();
+				exec(session, "curl localhost:8080/v2/apps" + appId);
+				sample.reusedExec = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - execStart);
+				samples.add(sample);
+			}
+		} finally {
+			session.disconnect();
+		}
+
+		return samples;
+	}
+
+	private static Session connect(String user, String keyFile, int port) throws JSchException {
+		JSch jsch = new JSch();
+		jsch.addIdentity(keyFile);
+		Session session = jsch.getSession(user, "127.0.0.1", port);
+		Properties config = new Properties();
+		config.put("StrictHostKeyChecking", "no");
+		session.setConfig(config);
+		session.connect();
+		return session;
+	}
+
+	private static String exec(Session session, String command) throws JSchException, InterruptedException {
+		ChannelExec channel = (ChannelExec) session.openChannel("exec");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		channel.setCommand(command);
+		channel.setOutputStream(out);
+		channel.connect();
+		try {
+			while(!channel.isClosed()) {
+				Thread.sleep(5);
+			}
+		} finally {
+			channel.disconnect();
+		}
+
+		return out.toString();
+	}
+
+	private static boolean isDeploying(int port, String appId) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				"http://127.0.0.1:" + port + "/v2/deployments").openConnection();
+		try {
+			String body = IOUtils.toString(connection.getInputStream(), "UTF-8");
+			return body.contains("\"" + appId + "\"");
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static void report(int level, List<Sample> samples) {
+		List<Long> connect = new ArrayList<Long>();
+		List<Long> upload = new ArrayList<Long>();
+		List<Long> exec = new ArrayList<Long>();
+		List<Long> deploy = new ArrayList<Long>();
+		List<Long> reused = new ArrayList<Long>();
+		int failed = 0;
+		for(Sample sample : samples) {
+			connect.add(sample.connect);
+			upload.add(sample.upload);
+			exec.add(sample.exec);
+			deploy.add(sample.deploy);
+			reused.add(sample.reusedExec);
+			if(!sample.success) {
+				failed++;
+			}
+		}
+
+		System.out.println(String.format("%-6d %-14s %-14s %-14s %-16s %-16d %d",
+				level, percentiles(connect), percentiles(upload), percentiles(exec), percentiles(deploy),
+				percentile(reused, 50), failed));
+	}
+
+	private static String percentiles(List<Long> values) {
+		return percentile(values, 50) + "/" + percentile(values, 95);
+	}
+
+	private static long percentile(List<Long> values, int percentile) {
+		List<Long> sorted = new ArrayList<Long>(values);
+		Collections.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+	}
+}
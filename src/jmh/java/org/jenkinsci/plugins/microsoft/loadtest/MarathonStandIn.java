@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.loadtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.microsoft.util.JsonHelper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for the Marathon REST API of a DC/OS master:
+ * <code>/v2/apps</code> and <code>/v2/deployments</code>. Every app change
+ * starts a deployment which stays in <code>/v2/deployments</code> for the
+ * configured deployment latency.
+ */
+public class MarathonStandIn implements Closeable {
+	private final long deploymentMillis;
+	private final ConcurrentHashMap<String, JsonNode> apps = new ConcurrentHashMap<String, JsonNode>();
+	private final ConcurrentHashMap<String, Deployment> deployments = new ConcurrentHashMap<String, Deployment>();
+	private final AtomicLong requests = new AtomicLong();
+	private final ExecutorService executor;
+	private final HttpServer server;
+
+	private static class Deployment {
+		final String id = UUID.randomUUID().toString();
+		final String appId;
+		final long finishesAt;
+
+		Deployment(String appId, long finishesAt) {
+			this.appId = appId;
+			this.finishesAt = finishesAt;
+		}
+	}
+
+	private MarathonStandIn(long deploymentMillis) throws IOException {
+		this.deploymentMillis = deploymentMillis;
+		this.executor = Executors.newCachedThreadPool();
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.server.createContext("/v2/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				MarathonStandIn.this.handle(exchange);
+			}
+		});
+		this.server.setExecutor(this.executor);
+	}
+
+	public static MarathonStandIn start(long deploymentMillis) throws IOException {
+		MarathonStandIn standIn = new MarathonStandIn(deploymentMillis);
+		standIn.server.start();
+		return standIn;
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	public long getRequestCount() {
+		return this.requests.get();
+	}
+
+	/**
+	 * @return whether a deployment of the app is still in progress
+	 */
+	public boolean isDeploying(String appId) {
+		this.expireDeployments();
+		for(Deployment deployment : this.deployments.values()) {
+			if(deployment.appId.equals(appId)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		this.requests.incrementAndGet();
+		byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		this.expireDeployments();
+
+		if(path.equals("/v2/apps") || path.equals("/v2/apps/")) {
+			if("POST".equals(method)) {
+				JsonNode app = JsonHelper.getMapper().readTree(body);
+				String appId = normalize(app.path("id").asText());
+				if(this.apps.putIfAbsent(appId, app) != null) {
+					this.sendMessage(exchange, 409, "An app with id [" + appId + "] already exists.");
+					return;
+				}
+
+				Deployment deployment = this.startDeployment(appId);
+				exchange.getResponseHeaders().add("Marathon-Deployment-Id", deployment.id);
+				this.send(exchange, 201, app);
+			} else {
+				ObjectNode list = JsonHelper.getMapper().createObjectNode();
+				ArrayNode values = list.putArray("apps");
+				for(JsonNode app : this.apps.values()) {
+					values.add(app);
+				}
+				this.send(exchange, 200, list);
+			}
+		} else if(path.startsWith("/v2/apps/")) {
+			String appId = normalize(path.substring("/v2/apps".length()));
+			if("DELETE".equals(method)) {
+				if(this.apps.remove(appId) == null) {
+					this.sendMessage(exchange, 404, "App '" + appId + "' does not exist");
+					return;
+				}
+
+				ObjectNode response = JsonHelper.getMapper().createObjectNode();
+				response.put("deploymentId", this.startDeployment(appId).id);
+				this.send(exchange, 200, response);
+			} else if(this.apps.containsKey(appId)) {
+				ObjectNode response = JsonHelper.getMapper().createObjectNode();
+				response.set("app", this.apps.get(appId));
+				this.send(exchange, 200, response);
+			} else {
+				this.sendMessage(exchange, 404, "App '" + appId + "' does not exist");
+			}
+		} else if(path.equals("/v2/deployments")) {
+			ArrayNode list = JsonHelper.getMapper().createArrayNode();
+			for(Deployment deployment : this.deployments.values()) {
+				ObjectNode item = list.addObject();
+				item.put("id", deployment.id);
+				item.putArray("affectedApps").add(deployment.appId);
+			}
+			this.send(exchange, 200, list);
+		} else {
+			this.sendMessage(exchange, 404, "Not served by the stand-in: " + path);
+		}
+	}
+
+	private Deployment startDeployment(String appId) {
+		Deployment deployment = new Deployment(appId, System.currentTimeMillis() + this.deploymentMillis);
+		this.deployments.put(deployment.id, deployment);
+		return deployment;
+	}
+
+	private void expireDeployments() {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<String, Deployment>> iterator = this.deployments.entrySet().iterator();
+		while(iterator.hasNext()) {
+			if(iterator.next().getValue().finishesAt <= now) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static String normalize(String appId) {
+		return appId.startsWith("/") ? appId : "/" + appId;
+	}
+
+	private void sendMessage(HttpExchange exchange, int status, String message) throws IOException {
+		ObjectNode body = JsonHelper.getMapper().createObjectNode();
+		body.put("message", message);
+		this.send(exchange, status, body);
+	}
+
+	private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+		byte[] content = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, content.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(content);
+		}
+	}
+}
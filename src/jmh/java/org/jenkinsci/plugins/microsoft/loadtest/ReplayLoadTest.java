@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.loadtest;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.jenkinsci.plugins.microsoft.ACSDeploymentContext;
+import org.jenkinsci.plugins.microsoft.AzureAuthenticationContext;
+import org.jenkinsci.plugins.microsoft.benchmarks.MarathonFiles;
+import org.jenkinsci.plugins.microsoft.services.CommandService;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.DeploymentReport;
+import org.jenkinsci.plugins.microsoft.util.ExchangeRecording;
+import org.jenkinsci.plugins.microsoft.util.PhaseTiming;
+import org.jenkinsci.plugins.microsoft.util.TokenCache;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.KeyPair;
+
+import hudson.util.StreamBuildListener;
+
+/**
+ * Replays a deployment recorded with "Record ARM and Marathon exchanges":
+ * ARM calls are answered by {@link ArmStandIn} and the marathon commands by
+ * {@link SshStandIn} with the recorded responses, in their recorded time
+ * divided by the speed. Prints the replayed duration of every command so
+ * a change can be checked against a slow production deployment. Options are <code>--name=value</code> pairs: recording (the
+ * acs-exchanges JSON file, required), speed (1) and runs (1). The plugin's
+ * own waits run at the same speed, all reported times are in the time of
+ * the recording.
+ */
+public class ReplayLoadTest {
+
+	public static void main(String[] args) throws Exception {
+		File file = null;
+		double speed = 1;
+		int runs = 1;
+		for(String arg : args) {
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if(arg.startsWith("--recording=")) {
+				file = new File(value);
+			} else if(arg.startsWith("--speed=")) {
+				speed = Double.parseDouble(value);
+			} else if(arg.startsWith("--runs=")) {
+				runs = Integer.parseInt(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+		if(file == null) {
+			throw new IllegalArgumentException("--recording=<acs-exchanges JSON file> is required");
+		}
+
+		DeploymentClock.set(DeploymentClock.scaled(speed));
+		// there is no Jenkins home to keep the token in
+		System.setProperty(TokenCache.HOME_PROPERTY, System.getProperty("java.io.tmpdir"));
+		ExchangeRecording recording = ExchangeRecording.load(file);
+		List<ExchangeRecording.Exchange> exchanges = recording.getExchanges();
+		if(exchanges.isEmpty()) {
+			throw new IllegalArgumentException(file + " has no exchanges");
+		}
+		ExchangeRecording.Exchange last = exchanges.get(exchanges.size() - 1);
+		System.out.println(String.format("Recorded:  %d exchanges of '%s' over %d ms",
+				exchanges.size(), recording.getTarget(), last.getOffsetMillis() + last.getDurationMillis()));
+
+		File keyFile = File.createTempFile("standin", ".key");
+		KeyPair keyPair = KeyPair.genKeyPair(new JSch(), KeyPair.RSA, 2048);
+		keyPair.writePrivateKey(keyFile.getPath());
+		keyPair.dispose();
+		File marathonFile = writeMarathonConfig(exchanges);
+		try {
+			for(int run = 0; run < runs; run++) {
+				replay(new ExchangeReplay(recording, speed), keyFile, marathonFile);
+			}
+		} finally {
+			keyFile.delete();
+			marathonFile.delete();
+		}
+	}
+
+	private static void replay(ExchangeReplay replay, File keyFile, File marathonFile) throws Exception {
+		ArmStandIn.Settings settings = new ArmStandIn.Settings();
+		settings.replay = replay;
+		try(ArmStandIn arm = ArmStandIn.start(settings);
+				MarathonStandIn marathon = MarathonStandIn.start(0);
+				SshStandIn ssh = SshStandIn.start(marathon, replay)) {
+			arm.trustClientConnections();
+			AzureAuthenticationContext authContext = new AzureAuthenticationContext(
+					ExchangeRecording.SUBSCRIPTION_ID, "standin-client", "standin-secret", arm.getOauth2TokenEndpoint());
+			authContext.setServiceManagementURL(arm.getServiceManagementURL());
+
+			String target = replay.getRecording().getTarget();
+			ACSDeploymentContext context = new ACSDeploymentContext(
+					target, "1", "Standard_A1", "azureuser", "1",
+					"ssh-rsa AAAAB3NzaC1yc2EAAAADAQABAAABAQC7loadtestloadtestloadtest loadtest@jenkins",
+					marathonFile.getPath(), "", keyFile.getPath(), "West US");
+			context.setMgmtSshPort(ssh.getPort());
+			context.configure(new StreamBuildListener(new NullOutputStream(), StandardCharsets.UTF_8), authContext,
+					Collections.<String, String>emptyMap());
+
+			long start = DeploymentClock.get().nanoTime();
+			boolean success = CommandService.executeCommands(context) && !context.getHasError();
+			long millis = TimeUnit.NANOSECONDS.toMillis(DeploymentClock.get().nanoTime() - start);
+
+			System.out.println(String.format("Replayed:  %s in %d ms, %d exchanges served, %d repeated, %d unmatched, %d left",
+					success ? "succeeded" : "failed", millis, replay.getServedCount(), replay.getRepeatedCount(),
+					replay.getUnmatchedCount(), replay.getRemainingCount()));
+			DeploymentReport report = new DeploymentReport(target, context.getTimer().getPhases());
+			for(PhaseTiming phase : report.getPhases()) {
+				if(!phase.isSubCall()) {
+					System.out.println(String.format("  %-32s %8d ms", phase.getName(), phase.getDurationMillis()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the marathon config uploaded in the recording, env values
+	 * redacted, or a generated one if the recording has none
+	 */
+	private static File writeMarathonConfig(List<ExchangeRecording.Exchange> exchanges) throws Exception {
+		for(ExchangeRecording.Exchange exchange : exchanges) {
+			if(exchange.getKind().equals(ExchangeRecording.SSH) && exchange.getMethod().equals("put")
+					&& exchange.getBody() != null) {
+				File file = File.createTempFile("marathon-replay", ".json");
+				FileUtils.writeStringToFile(file, exchange.getBody(), StandardCharsets.UTF_8.name());
+				return file;
+			}
+		}
+
+		return MarathonFiles.createGroup(2);
+	}
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.loadtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.Command;
+import org.apache.sshd.server.CommandFactory;
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.SessionAware;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.auth.pubkey.AcceptAllPublickeyAuthenticator;
+import org.apache.sshd.server.forward.AcceptAllForwardingFilter;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
+import org.jenkinsci.plugins.microsoft.util.ExchangeRecording;
+
+/**
+ * In-process SSH server standing in for a DC/OS master: any key is
+ * accepted, SFTP writes into a home directory per user, local port
+ * forwarding is allowed and exec runs the <code>curl</code> commands of
+ * {@link org.jenkinsci.plugins.microsoft.commands.MarathonDeploymentCommand}
+ * against a {@link MarathonStandIn}, as if it listened on localhost:8080.
+ */
+public class SshStandIn implements Closeable {
+	private static final String MARATHON_ADDRESS = "localhost:8080";
+
+	private final Path root;
+	private final MarathonStandIn marathon;
+	private final ExchangeReplay replay;
+	private final SshServer server;
+	private final AtomicLong commands = new AtomicLong();
+
+	private SshStandIn(MarathonStandIn marathon, ExchangeReplay replay) throws IOException {
+		this.marathon = marathon;
+		this.replay = replay;
+		this.root = Files.createTempDirectory("ssh-standin");
+
+		this.server = SshServer.setUpDefaultServer();
+		this.server.setHost("127.0.0.1");
+		this.server.setPort(0);
+		this.server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(this.root.resolve("hostkey.ser")));
+		this.server.setPublickeyAuthenticator(AcceptAllPublickeyAuthenticator.INSTANCE);
+		this.server.setFileSystemFactory(new VirtualFileSystemFactory(this.root) {
+
+			@Override
+			public Path getUserHomeDir(String userName) {
+				return SshStandIn.this.getHome(userName);
+			}
+		});
+		this.server.setSubsystemFactories(
+				Collections.<NamedFactory<Command>>singletonList(new SftpSubsystemFactory()));
+		this.server.setTcpipForwardingFilter(AcceptAllForwardingFilter.INSTANCE);
+		this.server.setCommandFactory(new CommandFactory() {
+
+			@Override
+			public Command createCommand(String command) {
+				commands.incrementAndGet();
+				return new CurlCommand(command);
+			}
+		});
+	}
+
+	public static SshStandIn start(MarathonStandIn marathon) throws IOException {
+		return start(marathon, null);
+	}
+
+	/**
+	 * @param replay answers the recorded commands with their recorded output
+	 * and timing, others still go to Marathon
+	 */
+	public static SshStandIn start(MarathonStandIn marathon, ExchangeReplay replay) throws IOException {
+		SshStandIn standIn = new SshStandIn(marathon, replay);
+		standIn.server.start();
+		return standIn;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.server.stop(true);
+		FileUtils.deleteQuietly(this.root.toFile());
+	}
+
+	public int getPort() {
+		return this.server.getPort();
+	}
+
+	public long getCommandCount() {
+		return this.commands.get();
+	}
+
+	private Path getHome(String userName) {
+		Path home = this.root.resolve(userName);
+		home.toFile().mkdirs();
+		return home;
+	}
+
+	private static List<String> tokenize(String command) {
+		List<String> tokens = new ArrayList<String>();
+		StringBuilder token = new StringBuilder();
+		boolean quoted = false;
+		for(char c : command.toCharArray()) {
+			if(c == '\'') {
+				quoted = !quoted;
+			} else if(c == ' ' && !quoted) {
+				if(token.length() > 0) {
+					tokens.add(token.toString());
+					token.setLength(0);
+				}
+			} else {
+				token.append(c);
+			}
+		}
+		if(token.length() > 0) {
+			tokens.add(token.toString());
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * Just enough of curl for the Marathon calls: -X, -H, -i and -d@file.
+	 */
+	private class CurlCommand implements Command, SessionAware, Runnable {
+		private final String command;
+		private OutputStream out;
+		private OutputStream err;
+		private ExitCallback callback;
+		private ServerSession session;
+
+		CurlCommand(String command) {
+			this.command = command;
+		}
+
+		@Override
+		public void setSession(ServerSession session) {
+			this.session = session;
+		}
+
+		@Override
+		public void setInputStream(InputStream in) {
+		}
+
+		@Override
+		public void setOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void setErrorStream(OutputStream err) {
+			this.err = err;
+		}
+
+		@Override
+		public void setExitCallback(ExitCallback callback) {
+			this.callback = callback;
+		}
+
+		@Override
+		public void start(Environment env) throws IOException {
+			new Thread(this, "SshStandIn " + this.command).start();
+		}
+
+		@Override
+		public void destroy() {
+		}
+
+		@Override
+		public void run() {
+			int status = 0;
+			try {
+				ExchangeRecording.Exchange recorded = replay == null ? null
+						: replay.take(ExchangeRecording.SSH, "exec", this.command);
+				if(recorded != null) {
+					replay.await(recorded);
+					status = recorded.getStatus();
+					if(recorded.getBody() != null) {
+						this.out.write(recorded.getBody().getBytes(StandardCharsets.UTF_8));
+					}
+				} else {
+					this.out.write(this.execute().getBytes(StandardCharsets.UTF_8));
+				}
+			} catch (Exception e) {
+				status = 7;
+				try {
+					this.err.write(("curl: " + e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+				} catch (IOException ignored) {
+					// the client went away
+				}
+			} finally {
+				IOUtils.closeQuietly(this.out);
+				IOUtils.closeQuietly(this.err);
+				this.callback.onExit(status);
+			}
+		}
+
+		private String execute() throws IOException {
+			List<String> tokens = tokenize(this.command);
+			if(tokens.isEmpty() || !tokens.get(0).equals("curl")) {
+				throw new IOException("command not found: " + this.command);
+			}
+
+			String method = null;
+			String url = null;
+			byte[] data = null;
+			boolean includeHeaders = false;
+			List<String> headers = new ArrayList<String>();
+			for(int i = 1; i < tokens.size(); i++) {
+				String token = tokens.get(i);
+				if(token.equals("-X")) {
+					method = tokens.get(++i);
+				} else if(token.equals("-H")) {
+					headers.add(tokens.get(++i));
+				} else if(token.equals("-i")) {
+					includeHeaders = true;
+				} else if(token.startsWith("-d@")) {
+					File file = getHome(this.session.getUsername()).resolve(token.substring(3)).toFile();
+					data = FileUtils.readFileToByteArray(file);
+				} else {
+					url = token;
+				}
+			}
+
+			if(url == null || !url.startsWith(MARATHON_ADDRESS)) {
+				throw new IOException("Could not resolve host: " + url);
+			}
+
+			HttpURLConnection connection = (HttpURLConnection) new URL(
+					"http://127.0.0.1:" + marathon.getPort() + url.substring(MARATHON_ADDRESS.length())).openConnection();
+			connection.setRequestMethod(method != null ? method : (data != null ? "POST" : "GET"));
+			for(String header : headers) {
+				int colon = header.indexOf(':');
+				connection.setRequestProperty(header.substring(0, colon).trim(), header.substring(colon + 1).trim());
+			}
+			if(data != null) {
+				connection.setDoOutput(true);
+				try(OutputStream body = connection.getOutputStream()) {
+					body.write(data);
+				}
+			}
+
+			StringBuilder response = new StringBuilder();
+			int status = connection.getResponseCode();
+			if(includeHeaders) {
+				response.append("HTTP/1.1 ").append(status).append(' ').append(connection.getResponseMessage()).append("\r\n");
+				for(Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+					if(header.getKey() != null) {
+						response.append(header.getKey()).append(": ").append(header.getValue().get(0)).append("\r\n");
+					}
+				}
+				response.append("\r\n");
+			}
+			try(InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				if(body != null) {
+					response.append(IOUtils.toString(body, StandardCharsets.UTF_8.name()));
+				}
+			}
+
+			return response.toString();
+		}
+	}
+}
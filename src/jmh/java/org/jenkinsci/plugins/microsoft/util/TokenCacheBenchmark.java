@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The serialization {@link TokenCache} does on every access to the token
+ * file. Lives in the util package to reach the package private token
+ * constructor and stream helpers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TokenCacheBenchmark {
+	private AccessToken token;
+	private byte[] serialized;
+
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder jwt = new StringBuilder("eyJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9.");
+		// AAD access tokens are around 1.2 KB
+		while(jwt.length() < 1200) {
+			jwt.append("abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789");
+		}
+		this.token = new AccessToken(
+				"00000000-0000-0000-0000-000000000000",
+				Constants.DEFAULT_MANAGEMENT_URL,
+				jwt.toString(),
+				System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+		this.serialized = this.write();
+	}
+
+	private byte[] write() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+		TokenCache.writeToken(this.token, out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] writeToken() throws IOException {
+		return this.write();
+	}
+
+	@Benchmark
+	public AccessToken readToken() throws IOException, ClassNotFoundException {
+		return TokenCache.readToken(new ByteArrayInputStream(this.serialized));
+	}
+
+	@Benchmark
+	public AccessToken roundTrip() throws IOException, ClassNotFoundException {
+		return TokenCache.readToken(new ByteArrayInputStream(this.write()));
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import hudson.Extension;
+
+/**
+ * Pipeline step deploying to Azure Container Service:
+ * <code>acsDeploy context: [...], authContext: [...]</code>.
+ * It does not need a node and keeps running across Jenkins restarts.
+ */
+public class ACSDeployStep extends AbstractStepImpl {
+	private final ACSDeploymentContext context;
+	private final AzureAuthenticationContext authContext;
+
+	@DataBoundConstructor
+	public ACSDeployStep(
+			final ACSDeploymentContext context,
+			final AzureAuthenticationContext authContext) {
+		this.context = context;
+		this.authContext = authContext;
+	}
+
+	public ACSDeploymentContext getContext() {
+		return this.context;
+	}
+
+	public AzureAuthenticationContext getAuthContext() {
+		return this.authContext;
+	}
+
+	@Extension(optional = true)
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+		public DescriptorImpl() {
+			super(ACSDeployStepExecution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "acsDeploy";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Deploy to Azure Container Service";
+		}
+	}
+}
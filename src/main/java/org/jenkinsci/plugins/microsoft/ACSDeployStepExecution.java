@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamBuildListener;
+
+/**
+ * Runs the deployment of {@link ACSDeployStep} on a background thread so the
+ * Pipeline does not hold an executor while waiting for Azure. After a
+ * restart the deployment is started again and picks up from the checkpoint
+ * it left in the build directory.
+ */
+public class ACSDeployStepExecution extends AbstractStepExecutionImpl {
+	private static final long serialVersionUID = 1L;
+	private static final Logger LOGGER = Logger.getLogger(ACSDeployStepExecution.class.getName());
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+			new NamingThreadFactory(new DaemonThreadFactory(), "ACSDeployStepExecution"));
+
+	@Inject(optional = true)
+	private transient ACSDeployStep step;
+
+	private ACSDeploymentContext target;
+	private AzureAuthenticationContext authContext;
+	private transient volatile Future<?> task;
+	// set by whichever of the deployment and stop reports the result first
+	private transient volatile AtomicBoolean completed;
+
+	@Override
+	public boolean start() throws Exception {
+		this.target = this.step.getContext();
+		this.authContext = this.step.getAuthContext();
+		this.launch();
+		return false;
+	}
+
+	@Override
+	public void onResume() {
+		super.onResume();
+		this.launch();
+	}
+
+	@Override
+	public void stop(Throwable cause) throws Exception {
+		Future<?> running = this.task;
+		if(running != null) {
+			running.cancel(true);
+		}
+
+		AtomicBoolean done = this.completed;
+		if(done == null || done.compareAndSet(false, true)) {
+			this.getContext().onFailure(cause);
+		}
+	}
+
+	private void launch() {
+		final StepContext context = this.getContext();
+		final AtomicBoolean completed = new AtomicBoolean();
+		this.completed = completed;
+		this.task = EXECUTOR.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Run<?, ?> run = context.get(Run.class);
+					TaskListener taskListener = context.get(TaskListener.class);
+					EnvVars envVars = context.get(EnvVars.class);
+					BuildListener listener = new StreamBuildListener(taskListener.getLogger(), StandardCharsets.UTF_8);
+
+					DeploymentResult result = new ACSDeploymentRunner(run, authContext).deploy(target, listener, envVars);
+					if(!completed.compareAndSet(false, true)) {
+						// stopped, the failure was already reported
+						return;
+					}
+					if(result.isSuccess()) {
+						context.onSuccess(result.toMap());
+					} else {
+						context.onFailure(new AbortException(String.format(
+								"Azure Container Service deployment of '%s' failed", result.getDnsNamePrefix())));
+					}
+				} catch (Exception e) {
+					LOGGER.log(Level.WARNING, "Azure Container Service deployment failed", e);
+					if(completed.compareAndSet(false, true)) {
+						context.onFailure(e);
+					}
+				}
+			}
+		});
+	}
+}
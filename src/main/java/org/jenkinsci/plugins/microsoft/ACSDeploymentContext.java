@@ -5,54 +5,77 @@
  */
 package org.jenkinsci.plugins.microsoft;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.microsoft.commands.ICommand;
 import org.jenkinsci.plugins.microsoft.commands.MarathonDeploymentCommand;
 import org.jenkinsci.plugins.microsoft.commands.ResourceGroupCommand;
+import org.jenkinsci.plugins.microsoft.commands.ScaleAgentPoolCommand;
 import org.jenkinsci.plugins.microsoft.commands.TemplateDeployCommand;
 import org.jenkinsci.plugins.microsoft.commands.TemplateMonitorCommand;
+import org.jenkinsci.plugins.microsoft.commands.TemplateValidateCommand;
 import org.jenkinsci.plugins.microsoft.commands.TransitionInfo;
 import org.jenkinsci.plugins.microsoft.commands.ValidateContainerCommand;
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
 import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.services.CommandExecutionMode;
+import org.jenkinsci.plugins.microsoft.services.DeploymentGovernor;
 import org.jenkinsci.plugins.microsoft.services.IARMTemplateServiceData;
 import org.jenkinsci.plugins.microsoft.services.IAzureConnectionData;
 import org.jenkinsci.plugins.microsoft.services.ServiceDelegateHelper;
+import org.jenkinsci.plugins.microsoft.util.ClusterInventory;
+import org.jenkinsci.plugins.microsoft.util.Constants;
+import org.jenkinsci.plugins.microsoft.util.DeploymentCheckpoint;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.MarathonConfigTemplate;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 import org.jenkinsci.plugins.microsoft.commands.EnablePortCommand;
 import org.jenkinsci.plugins.microsoft.commands.GetPublicFQDNCommand;
 import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.management.compute.ComputeManagementClient;
 import com.microsoft.azure.management.network.NetworkResourceProviderClient;
 import com.microsoft.azure.management.resources.ResourceManagementClient;
-import com.microsoft.azure.management.resources.ResourceManagementService;
+import com.microsoft.azure.management.resources.models.ProvisioningState;
 
 import hudson.Extension;
 import hudson.model.BuildListener;
 import hudson.model.Describable;
 import hudson.model.Descriptor;
+import hudson.util.Secret;
 import jenkins.model.Jenkins;
 
 public class ACSDeploymentContext extends AbstractBaseContext
 	implements ResourceGroupCommand.IResourceGroupCommandData, 
 		ValidateContainerCommand.IValidateContainerCommandData, 
+		ScaleAgentPoolCommand.IScaleAgentPoolCommandData, 
 		GetPublicFQDNCommand.IGetPublicFQDNCommandData,
 		EnablePortCommand.IEnablePortCommandData, 
 		MarathonDeploymentCommand.IMarathonDeploymentCommandData, 
+		TemplateValidateCommand.ITemplateValidateCommandData, 
 		TemplateDeployCommand.ITemplateDeployCommandData, 
 		TemplateMonitorCommand.ITemplateMonitorCommandData, 
 		IARMTemplateServiceData, 
 		Describable<ACSDeploymentContext> {
 	
-	private IAzureConnectionData connectData;
-	private ResourceManagementClient resourceClient;
-	private NetworkResourceProviderClient networkClient;
-	private String deploymentName;
-	private String mgmtFQDN;
+	private static final long serialVersionUID = 1L;
+
+	private transient IAzureConnectionData connectData;
+	private transient ResourceManagementClient resourceClient;
+	private transient NetworkResourceProviderClient networkClient;
+	private transient ComputeManagementClient computeClient;
+	private transient String deploymentName;
+	private transient String mgmtFQDN;
 	private String dnsNamePrefix;
 	private String agentCount;
 	private String agentVMSize;
@@ -60,10 +83,21 @@ public class ACSDeploymentContext extends AbstractBaseContext
 	private String masterCount;
 	private String sshRSAPublicKey;
 	private String marathonConfigFile;
-	private String sshKeyFilePassword;
+	private transient String marathonConfig;
+	private transient Future<String> templateValidation;
+	private transient Set<Integer> enabledPorts;
+	private transient DeploymentCheckpoint checkpoint;
+	private transient DeploymentGovernor.Slot deploymentSlot;
+	private transient long inventoryValidatedAt;
+	private Secret sshKeyFilePassword;
 	private String sshKeyFileLocation;
     private String location;
     private String orchestratorType;
+    private String templateStorageAccountName;
+    private Secret templateStorageAccountKey;
+    private boolean useWarmPool;
+    private CommandExecutionMode executionMode;
+    private transient int mgmtSshPort;
     
     private static final String EMBEDDED_TEMPLATE_FILENAME = "/templateValue.json";
 
@@ -91,7 +125,7 @@ public class ACSDeploymentContext extends AbstractBaseContext
 	    this.masterCount = masterCount;
 	    this.sshRSAPublicKey = sshRSAPublicKey;
 	    this.marathonConfigFile = marathonConfigFile;
-	    this.sshKeyFilePassword = sshKeyFilePassword;
+	    this.sshKeyFilePassword = Secret.fromString(sshKeyFilePassword);
         this.sshKeyFileLocation = sshKeyFileLocation;
         this.location = location;
 	}
@@ -134,24 +168,354 @@ public class ACSDeploymentContext extends AbstractBaseContext
     	return this.marathonConfigFile; 
     }
 
+    public String getMarathonConfig() {
+    	return this.marathonConfig;
+    }
+
     public String getSshKeyFileLocation() { 
     	return this.sshKeyFileLocation; 
     }
 
     public String getSshKeyFilePassword() { 
-    	return this.sshKeyFilePassword; 
+    	return Secret.toString(this.sshKeyFilePassword); 
     }
 
     public String getLocation() {
     	return this.location;
     }    
+
+    public String getTemplateStorageAccountName() {
+    	return this.templateStorageAccountName;
+    }
+
+    @DataBoundSetter
+    public void setTemplateStorageAccountName(String templateStorageAccountName) {
+    	this.templateStorageAccountName = templateStorageAccountName;
+    }
+
+    /**
+     * @return the key, encrypted in the job configuration and the warm pool
+     * specs; keys saved in plain text by older versions are read as well
+     */
+    public Secret getTemplateStorageAccountKey() {
+    	return this.templateStorageAccountKey;
+    }
+
+    @DataBoundSetter
+    public void setTemplateStorageAccountKey(String templateStorageAccountKey) {
+    	this.templateStorageAccountKey = StringUtils.isBlank(templateStorageAccountKey) ?
+    			null : Secret.fromString(templateStorageAccountKey);
+    }
+
+    public boolean isUseWarmPool() {
+    	return this.useWarmPool;
+    }
+
+    @DataBoundSetter
+    public void setUseWarmPool(boolean useWarmPool) {
+    	this.useWarmPool = useWarmPool;
+    }
+
+    @Override
+    public CommandExecutionMode getExecutionMode() {
+    	return this.executionMode == null ? CommandExecutionMode.SEQUENTIAL : this.executionMode;
+    }
+
+    @DataBoundSetter
+    public void setExecutionMode(CommandExecutionMode executionMode) {
+    	this.executionMode = executionMode;
+    }
+
+    /**
+     * @return the SSH port of the DC/OS masters, only different from
+     * {@link Constants#DCOS_MGMT_SSH_PORT} for stand-ins
+     */
+    public int getMgmtSshPort() {
+    	return this.mgmtSshPort > 0 ? this.mgmtSshPort : Constants.DCOS_MGMT_SSH_PORT;
+    }
+
+    /**
+     * Points the deployment at a stand-in, the port is not saved with the
+     * job.
+     */
+    public void setMgmtSshPort(int mgmtSshPort) {
+    	this.mgmtSshPort = mgmtSshPort;
+    }
+
+    /**
+     * Creates the context a single build deploys with. The configured
+     * context is shared by all builds of the job and is never configured
+     * itself, so concurrent builds do not overwrite each other's state and
+     * the Azure clients are released with the build.
+     */
+    public ACSDeploymentContext createExecutionContext() {
+    	return this.createCopy(this.dnsNamePrefix);
+    }
+
+    /**
+     * Creates an unconfigured context with the same cluster and marathon
+     * settings but a different DNS name prefix, and thus resource group.
+     */
+    public ACSDeploymentContext createCopy(String dnsNamePrefix) {
+    	ACSDeploymentContext copy = new ACSDeploymentContext(
+    			dnsNamePrefix,
+    			this.agentCount,
+    			this.agentVMSize,
+    			this.linuxAdminUsername,
+    			this.masterCount,
+    			this.sshRSAPublicKey,
+    			this.marathonConfigFile,
+    			this.getSshKeyFilePassword(),
+    			this.sshKeyFileLocation,
+    			this.location);
+    	copy.orchestratorType = this.orchestratorType;
+    	copy.templateStorageAccountName = this.templateStorageAccountName;
+    	copy.templateStorageAccountKey = this.templateStorageAccountKey;
+    	copy.useWarmPool = this.useWarmPool;
+    	copy.executionMode = this.executionMode;
+    	copy.mgmtSshPort = this.mgmtSshPort;
+    	return copy;
+    }
+
+    /**
+     * Identifies clusters which are interchangeable for this context, i.e.
+     * everything that goes into the ARM deployment except the DNS name prefix.
+     */
+    public String getClusterSpecKey(IAzureConnectionData connectData) {
+    	return hudson.Util.getDigestOf(StringUtils.join(new String[] {
+    			connectData.getSubscriptionId(),
+    			this.location,
+    			this.orchestratorType,
+    			this.masterCount,
+    			this.agentCount,
+    			this.agentVMSize,
+    			this.linuxAdminUsername,
+    			this.sshRSAPublicKey
+    	}, '\n'));
+    }
 	
 	public void setDeploymentName(String deploymentName) {
 		this.deploymentName = deploymentName;
+		this.saveCheckpoint();
 	}
 	
+	public void setTemplateValidation(Future<String> templateValidation) {
+		this.templateValidation = templateValidation;
+	}
+
+	public Future<String> getTemplateValidation() {
+		return this.templateValidation;
+	}
+
+	/**
+	 * Stops the pre-flight validation once the flow no longer deploys the
+	 * template.
+	 */
+	public void cancelTemplateValidation() {
+		Future<String> validation = this.templateValidation;
+		if(validation != null) {
+			validation.cancel(true);
+		}
+	}
+
+	public void acquireDeploymentSlot(int cores) throws InterruptedException {
+		this.releaseDeploymentSlot();
+		DeploymentGovernor.Slot slot = DeploymentGovernor.get().acquire(
+				this.connectData.getSubscriptionId(), this.location, cores, this);
+		synchronized(this) {
+			this.deploymentSlot = slot;
+		}
+	}
+
+	public void releaseDeploymentSlot() {
+		DeploymentGovernor.Slot slot;
+		synchronized(this) {
+			slot = this.deploymentSlot;
+			this.deploymentSlot = null;
+		}
+		if(slot != null) {
+			slot.release();
+		}
+	}
+
 	public void setMgmtFQDN(String mgmtFQDN) {
 		this.mgmtFQDN = mgmtFQDN;
+		this.saveCheckpoint();
+	}
+
+	public synchronized Set<Integer> getEnabledPorts() {
+		if(this.enabledPorts == null) {
+			return Collections.emptySet();
+		}
+
+		return new TreeSet<Integer>(this.enabledPorts);
+	}
+
+	public void addEnabledPort(int port) {
+		synchronized(this) {
+			if(this.enabledPorts == null) {
+				this.enabledPorts = new TreeSet<Integer>();
+			}
+			this.enabledPorts.add(port);
+		}
+		this.saveCheckpoint();
+	}
+
+	/**
+	 * Identifies the configuration a checkpoint was taken with, a checkpoint
+	 * is only resumed with the same template parameters, agent count and
+	 * marathon config.
+	 */
+	public String getCheckpointKey() throws AzureCloudException {
+		try {
+			return hudson.Util.getDigestOf(AzureManagementServiceDelegate.getDeploymentFingerprint(this) + 
+					"\n" + this.agentCount + "\n" + this.marathonConfig);
+		} catch (IOException | IllegalAccessException e) {
+			throw new AzureCloudException(e);
+		}
+	}
+
+	/**
+	 * Identifies the cluster the template and parameters deploy, with the
+	 * agent count the agent pool is scaled to.
+	 */
+	private String getClusterKey() throws AzureCloudException {
+		try {
+			return hudson.Util.getDigestOf(AzureManagementServiceDelegate.getDeploymentFingerprint(this) + 
+					"\n" + this.agentCount);
+		} catch (IOException | IllegalAccessException e) {
+			throw new AzureCloudException(e);
+		}
+	}
+
+	/**
+	 * Starts the flow at the marathon deployment if the
+	 * {@link ClusterInventory} knows the cluster as deployed with the same
+	 * template, parameters and agent count, taking its management FQDN and
+	 * enabled ports from there instead of discovering them in Azure.
+	 *
+	 * @return whether the discovery is skipped
+	 */
+	public boolean applyInventory() {
+		if(this.getStartCommandClass() != ResourceGroupCommand.class) {
+			return false;
+		}
+
+		ClusterInventory.Entry entry = ClusterInventory.get().find(this.connectData.getSubscriptionId(), this.dnsNamePrefix);
+		if(entry == null || entry.getMgmtFQDN() == null) {
+			return false;
+		}
+		try {
+			if(!entry.getClusterKey().equals(this.getClusterKey())) {
+				return false;
+			}
+		} catch (AzureCloudException e) {
+			return false;
+		}
+
+		this.inventoryValidatedAt = entry.getValidatedAt();
+		this.mgmtFQDN = entry.getMgmtFQDN();
+		synchronized(this) {
+			this.enabledPorts = new TreeSet<Integer>(entry.getEnabledPorts());
+		}
+		this.setStartCommandClass(MarathonDeploymentCommand.class);
+		this.logStatus(String.format("Azure Container Service 'containerservice-%s' unchanged since it was last checked, " +
+				"skipping to the marathon deployment.", this.dnsNamePrefix));
+		return true;
+	}
+
+	/**
+	 * Records the cluster in the {@link ClusterInventory} once the flow
+	 * completed, or forgets it if the flow failed.
+	 */
+	public void updateInventory() {
+		String subscriptionId = this.connectData.getSubscriptionId();
+		if(this.getHasError() || this.mgmtFQDN == null) {
+			ClusterInventory.get().invalidate(subscriptionId, this.dnsNamePrefix);
+			return;
+		}
+
+		try {
+			// a cluster taken from the inventory is still only as fresh as its last discovery
+			long validatedAt = this.inventoryValidatedAt > 0 ? 
+					this.inventoryValidatedAt : DeploymentClock.get().currentTimeMillis();
+			ClusterInventory.get().update(subscriptionId, this.dnsNamePrefix, new ClusterInventory.Entry(
+					this.getClusterKey(), this.mgmtFQDN, this.getEnabledPorts(), validatedAt));
+		} catch (AzureCloudException e) {
+			ClusterInventory.get().invalidate(subscriptionId, this.dnsNamePrefix);
+		}
+	}
+
+	public void setCheckpoint(DeploymentCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Restores the values of an interrupted flow and starts the flow at the
+	 * command which did not complete. An ARM deployment which was submitted
+	 * is monitored instead of being submitted again.
+	 *
+	 * @return the command the flow resumes at, null if the checkpoint cannot be resumed
+	 */
+	public Class resume(DeploymentCheckpoint previous) throws AzureCloudException {
+		Class resumeAt = null;
+		for(Class command : this.getCommands().keySet()) {
+			if(command.getName().equals(previous.getCurrentCommand())) {
+				resumeAt = command;
+			}
+		}
+		if(resumeAt == null || resumeAt == this.getStartCommandClass()) {
+			return null;
+		}
+
+		this.deploymentName = previous.getDeploymentName();
+		this.mgmtFQDN = previous.getMgmtFQDN();
+		synchronized(this) {
+			this.enabledPorts = new TreeSet<Integer>(previous.getEnabledPorts());
+		}
+
+		if(resumeAt == TemplateDeployCommand.class || resumeAt == TemplateMonitorCommand.class) {
+			// only a deployment ARM still runs or completed is worth reattaching to
+			String state = this.deploymentName == null ? null : AzureManagementServiceDelegate.getDeploymentState(
+					this.resourceClient, this.getResourceGroupName(), this.deploymentName);
+			if(state == null || ProvisioningState.FAILED.equalsIgnoreCase(state) || 
+					ProvisioningState.CANCELED.equalsIgnoreCase(state)) {
+				this.deploymentName = null;
+				resumeAt = TemplateDeployCommand.class;
+			} else {
+				resumeAt = TemplateMonitorCommand.class;
+			}
+		} else if(resumeAt == MarathonDeploymentCommand.class && this.mgmtFQDN == null) {
+			resumeAt = GetPublicFQDNCommand.class;
+		}
+
+		this.setStartCommandClass(resumeAt);
+		return resumeAt;
+	}
+
+	@Override
+	public void checkpoint(Class nextCommand) {
+		if(this.checkpoint == null) {
+			return;
+		}
+
+		this.checkpoint.setCurrentCommand(nextCommand == null ? null : nextCommand.getName());
+		this.saveCheckpoint();
+	}
+
+	private void saveCheckpoint() {
+		if(this.checkpoint == null) {
+			return;
+		}
+
+		this.checkpoint.setDeploymentName(this.deploymentName);
+		this.checkpoint.setMgmtFQDN(this.mgmtFQDN);
+		this.checkpoint.setEnabledPorts(this.getEnabledPorts());
+		try {
+			this.checkpoint.save();
+		} catch (IOException e) {
+			this.logStatus("Unable to save deployment checkpoint: " + e.getMessage());
+		}
 	}
 
 	public String getResourceGroupName() {
@@ -178,17 +542,31 @@ public class ACSDeploymentContext extends AbstractBaseContext
 	public NetworkResourceProviderClient getNetworkClient() {
 		return this.networkClient;
 	}
+
+	public ComputeManagementClient getComputeClient() {
+		return this.computeClient;
+	}
 	
-	public void configure(BuildListener listener, IAzureConnectionData connectData) throws AzureCloudException {
+	public void configure(BuildListener listener, IAzureConnectionData connectData, Map<String, String> envVars) 
+			throws AzureCloudException {
 		this.connectData = connectData;
-		this.resourceClient = ResourceManagementService.create(
-				org.jenkinsci.plugins.microsoft.services.ServiceDelegateHelper.load(connectData));
-		this.networkClient = ServiceDelegateHelper.getNetworkManagementClient(
-				org.jenkinsci.plugins.microsoft.services.ServiceDelegateHelper.load(connectData));
+		this.checkpoint = null;
+		this.enabledPorts = null;
+		this.inventoryValidatedAt = 0;
+		this.templateValidation = null;
+		try {
+			this.marathonConfig = MarathonConfigTemplate.forFile(this.marathonConfigFile).render(envVars);
+		} catch (IOException e) {
+			throw new AzureCloudException("Error reading marathon config file: " + e.getMessage(), e);
+		}
+
+		this.configureClients(connectData);
 		
 		Hashtable<Class, TransitionInfo> commands = new Hashtable<Class, TransitionInfo>();
-		commands.put(ResourceGroupCommand.class, new TransitionInfo(new ResourceGroupCommand(), ValidateContainerCommand.class, null));		
-		commands.put(ValidateContainerCommand.class, new TransitionInfo(new ValidateContainerCommand(), GetPublicFQDNCommand.class, TemplateDeployCommand.class));
+		commands.put(ResourceGroupCommand.class, new TransitionInfo(new ResourceGroupCommand(), TemplateValidateCommand.class, null));		
+		commands.put(TemplateValidateCommand.class, new TransitionInfo(new TemplateValidateCommand(), ValidateContainerCommand.class, null));
+		commands.put(ValidateContainerCommand.class, new TransitionInfo(new ValidateContainerCommand(), ScaleAgentPoolCommand.class, TemplateDeployCommand.class));
+		commands.put(ScaleAgentPoolCommand.class, new TransitionInfo(new ScaleAgentPoolCommand(), GetPublicFQDNCommand.class, null));
 		commands.put(TemplateDeployCommand.class, new TransitionInfo(new TemplateDeployCommand(), TemplateMonitorCommand.class, null));
 		commands.put(TemplateMonitorCommand.class, new TransitionInfo(new TemplateMonitorCommand(), GetPublicFQDNCommand.class, null));
 		commands.put(GetPublicFQDNCommand.class, new TransitionInfo(new GetPublicFQDNCommand(), MarathonDeploymentCommand.class, null));
@@ -198,13 +576,39 @@ public class ACSDeploymentContext extends AbstractBaseContext
 		this.setDeploymentState(DeploymentState.Running);
 	}
 
+	/**
+	 * Configures only the ARM deployment of the cluster, used to provision
+	 * warm pool clusters ahead of any build.
+	 */
+	public void configureProvisioning(BuildListener listener, IAzureConnectionData connectData) 
+			throws AzureCloudException {
+		this.connectData = connectData;
+		this.configureClients(connectData);
+
+		Hashtable<Class, TransitionInfo> commands = new Hashtable<Class, TransitionInfo>();
+		commands.put(ResourceGroupCommand.class, new TransitionInfo(new ResourceGroupCommand(), TemplateDeployCommand.class, null));
+		commands.put(TemplateDeployCommand.class, new TransitionInfo(new TemplateDeployCommand(), TemplateMonitorCommand.class, null));
+		commands.put(TemplateMonitorCommand.class, new TransitionInfo(new TemplateMonitorCommand(), null, null));
+		super.configure(listener, commands, ResourceGroupCommand.class);
+		this.setDeploymentState(DeploymentState.Running);
+	}
+
+	private void configureClients(IAzureConnectionData connectData) throws AzureCloudException {
+		this.resourceClient = ServiceDelegateHelper.getResourceManagementClient(
+				org.jenkinsci.plugins.microsoft.services.ServiceDelegateHelper.load(connectData));
+		this.networkClient = ServiceDelegateHelper.getNetworkManagementClient(
+				org.jenkinsci.plugins.microsoft.services.ServiceDelegateHelper.load(connectData));
+		this.computeClient = ServiceDelegateHelper.getComputeManagementClient(
+				org.jenkinsci.plugins.microsoft.services.ServiceDelegateHelper.load(connectData));
+	}
+
 	@Override
 	public String getEmbeddedTemplateName() {
 		return EMBEDDED_TEMPLATE_FILENAME;
 	}
 
 	@Override
-	public void configureTemplate(JsonNode tmp) throws IllegalAccessException, AzureCloudException {
+	public void configureParameters(ObjectNode parameters) throws IllegalAccessException, AzureCloudException {
         if (StringUtils.isBlank(this.getDnsNamePrefix())) {
             throw new AzureCloudException(
                     String.format("Invalid DNS name prefix '%s'", this.dnsNamePrefix));
@@ -212,13 +616,19 @@ public class ACSDeploymentContext extends AbstractBaseContext
 
         AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.dnsNamePrefix, "dnsNamePrefix",
         		String.format("Invalid DNS name prefix '%s'", this.getDnsNamePrefix()),
-        		tmp);
-        AzureManagementServiceDelegate.validateAndAddFieldValue("int", this.agentCount, "agentCount", null, tmp);
-        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.agentVMSize, "agentVMSize", null, tmp);
-        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.linuxAdminUsername, "linuxAdminUsername", null, tmp);
-        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.orchestratorType, "orchestratorType", null, tmp);
-        AzureManagementServiceDelegate.validateAndAddFieldValue("int", this.masterCount, "masterCount", null, tmp);
-        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.sshRSAPublicKey, "sshRSAPublicKey", null, tmp);
+        		parameters);
+        AzureManagementServiceDelegate.validateAndAddFieldValue("int", this.agentCount, "agentCount", 
+        		"Agent count is required", parameters);
+        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.agentVMSize, "agentVMSize", 
+        		"Agent VM size is required", parameters);
+        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.linuxAdminUsername, "linuxAdminUsername", 
+        		"Admin username is required", parameters);
+        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.orchestratorType, "orchestratorType", 
+        		"Orchestrator type is required", parameters);
+        AzureManagementServiceDelegate.validateAndAddFieldValue("int", this.masterCount, "masterCount", 
+        		"Master count is required", parameters);
+        AzureManagementServiceDelegate.validateAndAddFieldValue("string", this.sshRSAPublicKey, "sshRSAPublicKey", 
+        		"SSH RSA public key is required", parameters);
     }
 
 	@Override
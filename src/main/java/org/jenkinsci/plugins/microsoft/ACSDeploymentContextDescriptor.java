@@ -10,6 +10,7 @@ import java.util.UUID;
 
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.services.CommandExecutionMode;
 import org.jenkinsci.plugins.microsoft.util.Constants;
 import org.jenkinsci.plugins.microsoft.util.JellyUtil;
 import org.kohsuke.stapler.QueryParameter;
@@ -98,6 +99,14 @@ public class ACSDeploymentContextDescriptor extends Descriptor<ACSDeploymentCont
 		return "Standard_D2";
 	}
 
+	public ListBoxModel doFillExecutionModeItems() {
+		ListBoxModel model = new ListBoxModel();
+		for(CommandExecutionMode mode : CommandExecutionMode.values()) {
+			model.add(mode.getDisplayName(), mode.name());
+		}
+		return model;
+	}
+
 	public String defaultDnsNamePrefix() {
 		String dnsNamePrefix = UUID.randomUUID().toString().replace("-",  "");
 		long millis = Calendar.getInstance().getTimeInMillis();
@@ -6,25 +6,53 @@
 package org.jenkinsci.plugins.microsoft;
 
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
-import org.jenkinsci.plugins.microsoft.services.CommandService;
+import org.apache.commons.lang.StringUtils;
 
+import org.jenkinsci.plugins.microsoft.util.PrefixedOutputStream;
+
+import hudson.EnvVars;
 import hudson.Extension;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
+import hudson.model.Action;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
+import hudson.model.Result;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ListBoxModel;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
 
 public class ACSDeploymentRecorder extends Recorder {  
+	public static final int DEFAULT_PARALLELISM = 4;
+
 	private ACSDeploymentContext context;
 	private AzureAuthenticationContext authContext;
+	private List<ACSDeploymentContext> additionalTargets;
+	private int parallelism = DEFAULT_PARALLELISM;
+	private TargetSuccessPolicy successPolicy = TargetSuccessPolicy.ALL_OR_NOTHING;
 	
 	@DataBoundConstructor
     public ACSDeploymentRecorder(
@@ -42,9 +70,62 @@ public class ACSDeploymentRecorder extends Recorder {
 		return this.authContext;
 	}
 
+	public List<ACSDeploymentContext> getAdditionalTargets() {
+		if(this.additionalTargets == null) {
+			return Collections.emptyList();
+		}
+
+		return this.additionalTargets;
+	}
+
+	@DataBoundSetter
+	public void setAdditionalTargets(List<ACSDeploymentContext> additionalTargets) {
+		this.additionalTargets = additionalTargets;
+	}
+
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	@DataBoundSetter
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism < 1 ? DEFAULT_PARALLELISM : parallelism;
+	}
+
+	public TargetSuccessPolicy getSuccessPolicy() {
+		return this.successPolicy == null ? TargetSuccessPolicy.ALL_OR_NOTHING : this.successPolicy;
+	}
+
+	@DataBoundSetter
+	public void setSuccessPolicy(TargetSuccessPolicy successPolicy) {
+		this.successPolicy = successPolicy;
+	}
+
+	/**
+	 * All clusters this step deploys to, the primary one first.
+	 */
+	public List<ACSDeploymentContext> getTargets() {
+		List<ACSDeploymentContext> targets = new ArrayList<ACSDeploymentContext>();
+		targets.add(this.context);
+		targets.addAll(this.getAdditionalTargets());
+		return targets;
+	}
+
+	private Object readResolve() {
+		if(this.parallelism < 1) {
+			this.parallelism = DEFAULT_PARALLELISM;
+		}
+
+		return this;
+	}
+
+	@Override
+	public Action getProjectAction(AbstractProject<?, ?> project) {
+		return new DeploymentTrendAction(project);
+	}
+
 	@Override
 	public BuildStepMonitor getRequiredMonitorService() {
-		// TODO Auto-generated method stub
 		return BuildStepMonitor.NONE;
 	}
 
@@ -58,22 +139,113 @@ public class ACSDeploymentRecorder extends Recorder {
 
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
-        listener.getLogger().println("Starting Azure Container Service Deployment");
+        EnvVars envVars;
         try {
-			this.context.configure(listener, this.authContext);
-		} catch (AzureCloudException ex) {
-			listener.error("Error configuring deployment context: " + ex.getMessage());
-			ex.printStackTrace();
+        	envVars = build.getEnvironment(listener);
+        	envVars.overrideAll(build.getBuildVariables());
+		} catch (IOException | InterruptedException ex) {
+			ex.printStackTrace(listener.error("Error configuring deployment context: " + ex.getMessage()));
+			return false;
 		}
-        
-		CommandService.executeCommands(context);
-        
-        if(context.getHasError()) {
-        	return false;
-        }else {
-        	listener.getLogger().println("Done Azure Container Service Deployment");
-        	return true;
+
+        List<ACSDeploymentContext> targets = this.getTargets();
+        if(targets.size() == 1) {
+        	return this.deploy(build, this.context, listener, envVars);
         }
+
+        return this.deployTargets(build, targets, listener, envVars);
+    }
+
+    private boolean deploy(AbstractBuild<?, ?> build, ACSDeploymentContext target, BuildListener listener, EnvVars envVars) {
+    	return new ACSDeploymentRunner(build, this.authContext).deploy(target, listener, envVars).isSuccess();
+    }
+
+    /**
+     * Runs the command flow of every target concurrently, at most
+     * {@link #getParallelism()} at a time, each with its own prefixed log.
+     * With {@link TargetSuccessPolicy#ALL_OR_NOTHING} the first failure
+     * cancels the other targets: running deployments are interrupted like
+     * an aborted build, the others do not start.
+     */
+    private boolean deployTargets(final AbstractBuild<?, ?> build, List<ACSDeploymentContext> targets, 
+    		final BuildListener listener, final EnvVars envVars) {
+    	final TargetSuccessPolicy policy = this.getSuccessPolicy();
+    	listener.getLogger().println(String.format(
+    			"Deploying to %d Azure Container Service clusters, %d at a time (%s)", 
+    			targets.size(), this.getParallelism(), policy.getDisplayName()));
+
+    	ExecutorService executor = Executors.newFixedThreadPool(
+    			Math.min(this.getParallelism(), targets.size()),
+    			new NamingThreadFactory(new DaemonThreadFactory(), "ACSDeploymentRecorder " + build.getFullDisplayName()));
+    	CompletionService<Boolean> completion = new ExecutorCompletionService<Boolean>(executor);
+    	Map<Future<Boolean>, String> futures = new LinkedHashMap<Future<Boolean>, String>();
+    	for(final ACSDeploymentContext target : targets) {
+    		final String name = target.getDnsNamePrefix();
+    		futures.put(completion.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() throws Exception {
+					BuildListener targetListener = PrefixedOutputStream.createListener(listener, "[" + name + "] ");
+					try {
+						return deploy(build, target, targetListener, envVars);
+					} finally {
+						targetListener.getLogger().close();
+					}
+				}
+    		}), name);
+    	}
+    	executor.shutdown();
+
+    	List<String> failed = new ArrayList<String>();
+    	List<String> canceled = new ArrayList<String>();
+    	try {
+    		for(int i = 0; i < futures.size(); i++) {
+    			Future<Boolean> future = completion.take();
+    			boolean success;
+    			try {
+    				success = future.get();
+    			} catch (CancellationException e) {
+    				canceled.add(futures.get(future));
+    				continue;
+    			} catch (ExecutionException e) {
+    				listener.error(String.format("[%s] %s", futures.get(future), e.getCause()));
+    				success = false;
+    			}
+
+    			if(!success) {
+    				failed.add(futures.get(future));
+    				if(policy == TargetSuccessPolicy.ALL_OR_NOTHING) {
+    					for(Future<Boolean> other : futures.keySet()) {
+    						other.cancel(true);
+    					}
+    				}
+    			}
+    		}
+    		// the interrupted deployments of canceled targets still log and clean up
+    		while(!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+    			listener.getLogger().println("Waiting for the canceled targets to stop");
+    		}
+    	} catch (InterruptedException e) {
+    		listener.error("Deployment interrupted");
+    		executor.shutdownNow();
+    		return false;
+    	}
+
+    	if(failed.isEmpty()) {
+    		listener.getLogger().println("Done Azure Container Service Deployment to all clusters");
+    		return true;
+    	}
+
+    	listener.error("Deployment failed for: " + StringUtils.join(failed, ", "));
+    	if(!canceled.isEmpty()) {
+    		listener.error("Deployment canceled for: " + StringUtils.join(canceled, ", "));
+    	}
+    	if(policy == TargetSuccessPolicy.PER_TARGET && failed.size() < targets.size()) {
+    		build.setResult(Result.UNSTABLE);
+    		return true;
+    	}
+
+    	return false;
     }
             
     /**
@@ -98,5 +270,21 @@ public class ACSDeploymentRecorder extends Recorder {
         public String getDisplayName() {
             return "Azure Container Service Configuration";
         }
+
+        public int defaultParallelism() {
+        	return DEFAULT_PARALLELISM;
+        }
+
+        public ListBoxModel doFillSuccessPolicyItems() {
+        	ListBoxModel model = new ListBoxModel();
+        	for(TargetSuccessPolicy policy : TargetSuccessPolicy.values()) {
+        		model.add(policy.getDisplayName(), policy.name());
+        	}
+        	return model;
+        }
+
+        public ACSDeploymentContextDescriptor getTargetDescriptor() {
+        	return Jenkins.getInstance().getDescriptorByType(ACSDeploymentContext.DescriptorImpl.class);
+        }
     }
 }
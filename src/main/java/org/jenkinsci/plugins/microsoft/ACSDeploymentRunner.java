@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.pool.PooledCluster;
+import org.jenkinsci.plugins.microsoft.pool.WarmPool;
+import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.services.CommandService;
+import org.jenkinsci.plugins.microsoft.util.DeploymentCheckpoint;
+import org.jenkinsci.plugins.microsoft.util.DeploymentHistory;
+import org.jenkinsci.plugins.microsoft.util.DeploymentReport;
+import org.jenkinsci.plugins.microsoft.util.ExchangeRecording;
+
+import hudson.model.BuildListener;
+import hudson.model.Run;
+
+/**
+ * Deploys one target for a build, shared by {@link ACSDeploymentRecorder}
+ * and the <code>acsDeploy</code> Pipeline step.
+ */
+public class ACSDeploymentRunner {
+	private final Run<?, ?> build;
+	private final AzureAuthenticationContext authContext;
+
+	public ACSDeploymentRunner(Run<?, ?> build, AzureAuthenticationContext authContext) {
+		this.build = build;
+		this.authContext = authContext;
+	}
+
+    /**
+     * Deploys a copy of the configured target, the target itself is left
+     * untouched.
+     */
+    public DeploymentResult deploy(ACSDeploymentContext configuredTarget, BuildListener listener, Map<String, String> envVars) {
+        listener.getLogger().println("Starting Azure Container Service Deployment");
+        ACSDeploymentContext target = configuredTarget.createExecutionContext();
+        if(target.isUseWarmPool()) {
+        	target = this.leaseCluster(target, listener);
+        }
+        try {
+			target.configure(listener, this.authContext, envVars);
+		} catch (AzureCloudException ex) {
+			ex.printStackTrace(listener.error("Error configuring deployment context: " + ex.getMessage()));
+			return DeploymentResult.failed(target);
+		}
+
+		this.configureCheckpoint(target, listener);
+		target.applyInventory();
+        
+		ExchangeRecording recording = null;
+		if(ACSGlobalConfiguration.get().isRecordExchanges()) {
+			recording = new ExchangeRecording(target.getDnsNamePrefix());
+			target.getTimer().setRecording(recording);
+		}
+        
+		CommandService.executeCommands(target);
+		// the monitor releases it, unless the flow ended before
+		target.releaseDeploymentSlot();
+		target.cancelTemplateValidation();
+		target.updateInventory();
+		if(Thread.currentThread().isInterrupted() && ACSGlobalConfiguration.get().isCancelDeploymentsOnAbort()) {
+			this.cancelDeployment(target, listener);
+		}
+		if(recording != null) {
+			this.saveRecording(recording, listener);
+		}
+		DeploymentReport report = new DeploymentReport(target.getDnsNamePrefix(), target.getTimer().getPhases());
+		this.recordHistory(report, !target.getHasError(), listener);
+		DeploymentPerformanceAction.addReport(this.build, report);
+        
+        if(target.getHasError()) {
+        	return DeploymentResult.failed(target);
+        }else {
+        	listener.getLogger().println("Done Azure Container Service Deployment");
+        	return DeploymentResult.succeeded(target);
+        }
+    }
+
+    /**
+     * Saves the progress of the target in the build directory and resumes
+     * the flow of this build or of the previous one if it was interrupted.
+     */
+    private void configureCheckpoint(ACSDeploymentContext target, BuildListener listener) {
+    	String name = target.getDnsNamePrefix();
+    	try {
+    		String configKey = target.getCheckpointKey();
+    		DeploymentCheckpoint previous = DeploymentCheckpoint.findResumable(this.build, name, configKey);
+    		target.setCheckpoint(new DeploymentCheckpoint(DeploymentCheckpoint.getFile(this.build, name), name, configKey));
+    		if(previous != null) {
+    			Class resumeAt = target.resume(previous);
+    			if(resumeAt != null) {
+    				listener.getLogger().println(String.format(
+    						"Resuming the interrupted deployment of '%s' at %s", name, resumeAt.getSimpleName()));
+    			}
+    		}
+    	} catch (AzureCloudException e) {
+    		listener.getLogger().println("Unable to resume the previous deployment, starting over: " + e.getMessage());
+    	}
+    }
+
+    /**
+     * Appends the timings to the job's deployment history and flags the
+     * steps which are much slower than in previous builds.
+     */
+    private void recordHistory(DeploymentReport report, boolean success, BuildListener listener) {
+    	DeploymentHistory history = DeploymentHistory.forJob(this.build.getParent());
+    	DeploymentHistory.Entry entry = DeploymentHistory.Entry.fromReport(
+    			this.build.getNumber(), this.build.getTimeInMillis(), report, success);
+    	double factor = ACSGlobalConfiguration.get().getRegressionFactor();
+    	try {
+    		if(success && factor > 0) {
+    			List<String> regressions = history.findRegressions(entry, factor);
+    			for(String regression : regressions) {
+    				listener.getLogger().println("Deployment time regression: " + regression);
+    			}
+    			report.setRegressions(regressions);
+    		}
+
+    		history.append(entry);
+    	} catch (IOException e) {
+    		listener.error("Error recording deployment history: " + e.getMessage());
+    	}
+    }
+
+    /**
+     * Cancels the ARM deployment of an aborted build so it stops provisioning.
+     */
+    private void cancelDeployment(ACSDeploymentContext target, BuildListener listener) {
+    	String deploymentName = target.getDeploymentName();
+    	if(deploymentName == null) {
+    		return;
+    	}
+
+    	// the build stays aborted, the flag only has to be out of the way of the call
+    	boolean interrupted = Thread.interrupted();
+    	try {
+    		if(AzureManagementServiceDelegate.cancelDeployment(
+    				target.getResourceClient(), target.getResourceGroupName(), deploymentName)) {
+    			listener.getLogger().println(String.format("Canceled the ARM deployment '%s'", deploymentName));
+    			// a canceled deployment cannot be resumed, the next build starts over
+    			target.checkpoint(null);
+    		}
+    	} catch (AzureCloudException e) {
+    		listener.error(String.format("Error canceling the ARM deployment '%s': %s", deploymentName, e.getMessage()));
+    	} finally {
+    		if(interrupted) {
+    			Thread.currentThread().interrupt();
+    		}
+    	}
+    }
+
+    private void saveRecording(ExchangeRecording recording, BuildListener listener) {
+    	File file = new File(this.build.getRootDir(), "acs-exchanges-" + recording.getTarget() + ".json");
+    	try {
+    		recording.save(file);
+    		listener.getLogger().println(String.format(
+    				"Recorded %d exchanges in %s", recording.getExchanges().size(), file.getName()));
+    	} catch (IOException e) {
+    		listener.error("Error saving the recorded exchanges: " + e.getMessage());
+    	}
+    }
+
+    /**
+     * @return a copy of the target pointing at a leased warm pool cluster,
+     * the target itself if no cluster is ready
+     */
+    private ACSDeploymentContext leaseCluster(ACSDeploymentContext target, BuildListener listener) {
+    	PooledCluster cluster = WarmPool.get().lease(target, this.authContext, this.build.getExternalizableId());
+    	if(cluster == null) {
+    		listener.getLogger().println(String.format(
+    				"No warm pool cluster ready, deploying '%s'", target.getDnsNamePrefix()));
+    		return target;
+    	}
+
+    	listener.getLogger().println(String.format(
+    			"Leased cluster '%s' from the warm pool", cluster.getDnsNamePrefix()));
+    	return target.createCopy(cluster.getDnsNamePrefix());
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.microsoft.services.CommandTimeouts;
+import org.jenkinsci.plugins.microsoft.services.CoreQuotaCheck;
+import org.jenkinsci.plugins.microsoft.services.DeploymentGovernor;
+import org.jenkinsci.plugins.microsoft.util.ClusterInventory;
+import org.jenkinsci.plugins.microsoft.util.PollingPolicy;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+
+@Extension
+public class ACSGlobalConfiguration extends GlobalConfiguration {
+	private static final Logger LOGGER = Logger.getLogger(ACSGlobalConfiguration.class.getName());
+
+	public static final double DEFAULT_REGRESSION_FACTOR = 1.5;
+
+	public static final int DEFAULT_CLUSTER_INVENTORY_MINUTES = 60;
+
+	private int warmPoolSize;
+	private boolean recycleWarmPoolClusters;
+	private double regressionFactor = DEFAULT_REGRESSION_FACTOR;
+	private boolean recordExchanges;
+	private String pollingIntervals;
+	private boolean cancelDeploymentsOnAbort;
+	private String commandTimeouts;
+	private int maxDeploymentsPerSubscription;
+	private int maxDeploymentsPerRegion;
+	private boolean waitForCoreQuota;
+	private int clusterInventoryMinutes = DEFAULT_CLUSTER_INVENTORY_MINUTES;
+
+	public ACSGlobalConfiguration() {
+		load();
+		this.applyPollingIntervals();
+		this.applyCommandTimeouts();
+		this.applyDeploymentLimits();
+		CoreQuotaCheck.setWaitForQuota(this.waitForCoreQuota);
+		ClusterInventory.setTtlMillis(TimeUnit.MINUTES.toMillis(this.clusterInventoryMinutes));
+	}
+
+	public static ACSGlobalConfiguration get() {
+		return GlobalConfiguration.all().get(ACSGlobalConfiguration.class);
+	}
+
+	/**
+	 * @return the number of ready clusters kept for every cluster spec jobs
+	 * lease, 0 disables the warm pool
+	 */
+	public int getWarmPoolSize() {
+		return this.warmPoolSize;
+	}
+
+	public void setWarmPoolSize(int warmPoolSize) {
+		this.warmPoolSize = Math.max(0, warmPoolSize);
+	}
+
+	public boolean isWarmPoolEnabled() {
+		return this.warmPoolSize > 0;
+	}
+
+	public boolean isRecycleWarmPoolClusters() {
+		return this.recycleWarmPoolClusters;
+	}
+
+	public void setRecycleWarmPoolClusters(boolean recycleWarmPoolClusters) {
+		this.recycleWarmPoolClusters = recycleWarmPoolClusters;
+	}
+
+	/**
+	 * @return how many times slower than the baseline a deployment or one of
+	 * its steps has to be to get flagged, 0 disables the check
+	 */
+	public double getRegressionFactor() {
+		return this.regressionFactor;
+	}
+
+	public void setRegressionFactor(double regressionFactor) {
+		this.regressionFactor = Math.max(0, regressionFactor);
+	}
+
+	/**
+	 * @return whether the ARM and SSH exchanges of every deployment are saved
+	 * in the build directory for a replay
+	 */
+	public boolean isRecordExchanges() {
+		return this.recordExchanges;
+	}
+
+	public void setRecordExchanges(boolean recordExchanges) {
+		this.recordExchanges = recordExchanges;
+	}
+
+	/**
+	 * @return <code>name=seconds</code> lines overriding the default
+	 * intervals of the {@link PollingPolicy}s
+	 */
+	public String getPollingIntervals() {
+		return this.pollingIntervals;
+	}
+
+	public void setPollingIntervals(String pollingIntervals) {
+		this.pollingIntervals = Util.fixEmptyAndTrim(pollingIntervals);
+		this.applyPollingIntervals();
+	}
+
+	private void applyPollingIntervals() {
+		try {
+			PollingPolicy.configure(PollingPolicy.parse(this.pollingIntervals));
+		} catch(IllegalArgumentException ex) {
+			LOGGER.log(Level.WARNING, "Ignoring the configured polling intervals: {0}", ex.getMessage());
+			PollingPolicy.configure(Collections.<PollingPolicy, Long>emptyMap());
+		}
+	}
+
+	/**
+	 * @return whether the ARM deployment of an aborted build is canceled so
+	 * it stops provisioning
+	 */
+	public boolean isCancelDeploymentsOnAbort() {
+		return this.cancelDeploymentsOnAbort;
+	}
+
+	public void setCancelDeploymentsOnAbort(boolean cancelDeploymentsOnAbort) {
+		this.cancelDeploymentsOnAbort = cancelDeploymentsOnAbort;
+	}
+
+	/**
+	 * @return <code>command=minutes</code> lines overriding the default
+	 * timeouts of the {@link CommandTimeouts}
+	 */
+	public String getCommandTimeouts() {
+		return this.commandTimeouts;
+	}
+
+	public void setCommandTimeouts(String commandTimeouts) {
+		this.commandTimeouts = Util.fixEmptyAndTrim(commandTimeouts);
+		this.applyCommandTimeouts();
+	}
+
+	private void applyCommandTimeouts() {
+		try {
+			CommandTimeouts.configure(CommandTimeouts.parse(this.commandTimeouts));
+		} catch(IllegalArgumentException ex) {
+			LOGGER.log(Level.WARNING, "Ignoring the configured command timeouts: {0}", ex.getMessage());
+			CommandTimeouts.configure(Collections.<String, Long>emptyMap());
+		}
+	}
+
+	/**
+	 * @return how many ARM template deployments run at the same time in one
+	 * subscription, 0 is no limit
+	 */
+	public int getMaxDeploymentsPerSubscription() {
+		return this.maxDeploymentsPerSubscription;
+	}
+
+	public void setMaxDeploymentsPerSubscription(int maxDeploymentsPerSubscription) {
+		this.maxDeploymentsPerSubscription = Math.max(0, maxDeploymentsPerSubscription);
+		this.applyDeploymentLimits();
+	}
+
+	/**
+	 * @return how many ARM template deployments run at the same time in one
+	 * region of a subscription, 0 is no limit
+	 */
+	public int getMaxDeploymentsPerRegion() {
+		return this.maxDeploymentsPerRegion;
+	}
+
+	public void setMaxDeploymentsPerRegion(int maxDeploymentsPerRegion) {
+		this.maxDeploymentsPerRegion = Math.max(0, maxDeploymentsPerRegion);
+		this.applyDeploymentLimits();
+	}
+
+	private void applyDeploymentLimits() {
+		DeploymentGovernor.get().setLimits(this.maxDeploymentsPerSubscription, this.maxDeploymentsPerRegion);
+	}
+
+	/**
+	 * @return whether a deployment which does not fit the core quota of its
+	 * region waits for cores to be freed instead of failing
+	 */
+	public boolean isWaitForCoreQuota() {
+		return this.waitForCoreQuota;
+	}
+
+	public void setWaitForCoreQuota(boolean waitForCoreQuota) {
+		this.waitForCoreQuota = waitForCoreQuota;
+		CoreQuotaCheck.setWaitForQuota(waitForCoreQuota);
+	}
+
+	/**
+	 * @return how many minutes a deployment trusts the cluster found by a
+	 * previous deployment instead of discovering it again, 0 always
+	 * discovers it
+	 */
+	public int getClusterInventoryMinutes() {
+		return this.clusterInventoryMinutes;
+	}
+
+	public void setClusterInventoryMinutes(int clusterInventoryMinutes) {
+		this.clusterInventoryMinutes = Math.max(0, clusterInventoryMinutes);
+		ClusterInventory.setTtlMillis(TimeUnit.MINUTES.toMillis(this.clusterInventoryMinutes));
+	}
+
+	@Override
+	public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+		req.bindJSON(this, json);
+		save();
+		return true;
+	}
+
+	public FormValidation doCheckWarmPoolSize(@QueryParameter String value) {
+		return checkNonNegativeInt(value);
+	}
+
+	public FormValidation doCheckMaxDeploymentsPerSubscription(@QueryParameter String value) {
+		return checkNonNegativeInt(value);
+	}
+
+	public FormValidation doCheckMaxDeploymentsPerRegion(@QueryParameter String value) {
+		return checkNonNegativeInt(value);
+	}
+
+	public FormValidation doCheckClusterInventoryMinutes(@QueryParameter String value) {
+		return checkNonNegativeInt(value);
+	}
+
+	public FormValidation doCheckRegressionFactor(@QueryParameter String value) {
+		try {
+			double factor = Double.parseDouble(value);
+			if(factor == 0 || factor > 1) {
+				return FormValidation.ok();
+			}
+		} catch(NumberFormatException ex) {
+		}
+
+		return FormValidation.error("A number greater than 1, or 0 to disable the check, is required.");
+	}
+
+	public FormValidation doCheckPollingIntervals(@QueryParameter String value) {
+		try {
+			PollingPolicy.parse(value);
+			return FormValidation.ok();
+		} catch(IllegalArgumentException ex) {
+			return FormValidation.error(ex.getMessage());
+		}
+	}
+
+	public FormValidation doCheckCommandTimeouts(@QueryParameter String value) {
+		try {
+			CommandTimeouts.parse(value);
+			return FormValidation.ok();
+		} catch(IllegalArgumentException ex) {
+			return FormValidation.error(ex.getMessage());
+		}
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "Azure Container Service";
+	}
+
+	private static FormValidation checkNonNegativeInt(String value) {
+		try {
+			if(Integer.parseInt(value) >= 0) {
+				return FormValidation.ok();
+			}
+		} catch(NumberFormatException ex) {
+		}
+
+		return FormValidation.error("A non-negative integer is required.");
+	}
+}
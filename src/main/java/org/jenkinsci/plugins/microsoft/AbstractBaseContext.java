@@ -5,21 +5,27 @@
  */
 package org.jenkinsci.plugins.microsoft;
 
+import java.io.Serializable;
 import java.util.Hashtable;
 import org.jenkinsci.plugins.microsoft.commands.ICommand;
 import org.jenkinsci.plugins.microsoft.commands.TransitionInfo;
+import org.jenkinsci.plugins.microsoft.services.CommandExecutionMode;
 import org.jenkinsci.plugins.microsoft.services.ICommandServiceData;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
 
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
 
 import hudson.model.BuildListener;
 
-public abstract class AbstractBaseContext implements ICommandServiceData {
-	private BuildListener listener;
+public abstract class AbstractBaseContext implements ICommandServiceData, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private transient BuildListener listener;
 	private DeploymentState deployState = DeploymentState.Unknown;
-	private Hashtable<Class, TransitionInfo> commands;
+	private transient Hashtable<Class, TransitionInfo> commands;
 	private Class startCommandClass;
+	private transient DeploymentTimer timer;
 			
 	protected void configure(BuildListener listener,
 			Hashtable<Class, TransitionInfo> commands,
@@ -27,7 +33,7 @@ public abstract class AbstractBaseContext implements ICommandServiceData {
 		this.listener = listener;
 		this.commands = commands;
 		this.startCommandClass = startCommandClass;
-		
+		this.timer = new DeploymentTimer();
 	}
 	
 	public Hashtable<Class, TransitionInfo> getCommands() {
@@ -37,8 +43,26 @@ public abstract class AbstractBaseContext implements ICommandServiceData {
 	public Class getStartCommandClass() {
 		return startCommandClass;
 	}
+
+	/**
+	 * Starts the flow at a later command, e.g. when resuming an interrupted deployment.
+	 */
+	protected void setStartCommandClass(Class startCommandClass) {
+		this.startCommandClass = startCommandClass;
+	}
+
+	public void checkpoint(Class nextCommand) {
+	}
 	
 	public abstract IBaseCommandData getDataForCommand(ICommand command);
+
+	public DeploymentTimer getTimer() {
+		return this.timer;
+	}
+
+	public CommandExecutionMode getExecutionMode() {
+		return CommandExecutionMode.SEQUENTIAL;
+	}
 	
 	public void setDeploymentState(DeploymentState deployState) {
 		this.deployState = deployState;
@@ -70,8 +94,7 @@ public abstract class AbstractBaseContext implements ICommandServiceData {
 	}
 
 	public void logError(String prefix, Exception ex) {
-    	this.listener.error(prefix + ex.getMessage());
-		ex.printStackTrace();
+		ex.printStackTrace(this.listener.error(prefix + ex.getMessage()));
 		this.deployState = DeploymentState.HasError;
 	}
 
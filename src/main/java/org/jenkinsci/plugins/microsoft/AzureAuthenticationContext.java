@@ -5,25 +5,31 @@
  */
  package org.jenkinsci.plugins.microsoft;
 
+import java.io.Serializable;
+
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
 import org.jenkinsci.plugins.microsoft.services.IAzureConnectionData;
 import org.jenkinsci.plugins.microsoft.util.Constants;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import hudson.Extension;
 import hudson.model.AbstractProject;
 import hudson.model.Describable;
 import hudson.model.Descriptor;
 import hudson.util.FormValidation;
+import hudson.util.Secret;
 import jenkins.model.Jenkins;
 
-public class AzureAuthenticationContext implements IAzureConnectionData, Describable<AzureAuthenticationContext> {
-	
+public class AzureAuthenticationContext implements IAzureConnectionData, Describable<AzureAuthenticationContext>, Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private String subscriptionId;
 	private String clientId;
-	private String clientSecret;
+	private Secret clientSecret;
 	private String oauth2TokenEndpoint;
+	private String serviceManagementURL;
     
     private static final String EMBEDDED_TEMPLATE_FILENAME = "/templateValue.json";
 
@@ -35,7 +41,7 @@ public class AzureAuthenticationContext implements IAzureConnectionData, Describ
             final String oauth2TokenEndpoint) {
 	    this.subscriptionId = subscriptionId;
 	    this.clientId = clientId;
-	    this.clientSecret = clientSecret;
+	    this.clientSecret = Secret.fromString(clientSecret);
 	    this.oauth2TokenEndpoint = oauth2TokenEndpoint;
 	}
 	
@@ -53,13 +59,28 @@ public class AzureAuthenticationContext implements IAzureConnectionData, Describ
 		return this.clientId;
 	}
 	
+	/**
+	 * @return the secret in plain text, it is only saved encrypted
+	 */
 	public String getClientSecret() {
-		return this.clientSecret;
+		return Secret.toString(this.clientSecret);
 	}
 	
 	public String getOauth2TokenEndpoint() {
 		return this.oauth2TokenEndpoint;
 	}
+
+	/**
+	 * @return the management endpoint, null for the public Azure cloud
+	 */
+	public String getServiceManagementURL() {
+		return this.serviceManagementURL;
+	}
+
+	@DataBoundSetter
+	public void setServiceManagementURL(String serviceManagementURL) {
+		this.serviceManagementURL = StringUtils.trimToNull(serviceManagementURL);
+	}
 	
     @Extension
     public static final class DescriptorImpl extends Descriptor<AzureAuthenticationContext> {
@@ -68,7 +89,8 @@ public class AzureAuthenticationContext implements IAzureConnectionData, Describ
                 @QueryParameter String subscriptionId,
                 @QueryParameter String clientId,
                 @QueryParameter String clientSecret,
-                @QueryParameter String oauth2TokenEndpoint) {
+                @QueryParameter String oauth2TokenEndpoint,
+                @QueryParameter String serviceManagementURL) {
         			
             if (StringUtils.isBlank(subscriptionId)) {
                 return FormValidation.error("Error: Subscription ID is missing");
@@ -88,7 +110,7 @@ public class AzureAuthenticationContext implements IAzureConnectionData, Describ
                     clientId,
                     clientSecret,
                     oauth2TokenEndpoint,
-                    null);
+                    serviceManagementURL);
 
             if (Constants.OP_SUCCESS.equalsIgnoreCase(response)) {
                 return FormValidation.ok("Success");
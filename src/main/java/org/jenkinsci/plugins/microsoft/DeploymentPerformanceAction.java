@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jenkinsci.plugins.microsoft.util.DeploymentReport;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.model.Api;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Shows how long every command of the deployments of a build took, as a
+ * waterfall page and through the remote API (<code>api/json</code>).
+ */
+@ExportedBean
+public class DeploymentPerformanceAction implements RunAction2 {
+	private final List<DeploymentReport> reports = new ArrayList<DeploymentReport>();
+	private transient Run<?, ?> run;
+
+	public static void addReport(Run<?, ?> run, DeploymentReport report) {
+		DeploymentPerformanceAction action;
+		synchronized(run) {
+			action = run.getAction(DeploymentPerformanceAction.class);
+			if(action == null) {
+				action = new DeploymentPerformanceAction();
+				run.addAction(action);
+			}
+		}
+
+		action.add(report);
+	}
+
+	private synchronized void add(DeploymentReport report) {
+		this.reports.add(report);
+	}
+
+	@Exported(inline = true)
+	public synchronized List<DeploymentReport> getReports() {
+		return new ArrayList<DeploymentReport>(this.reports);
+	}
+
+	public Run<?, ?> getRun() {
+		return this.run;
+	}
+
+	public Api getApi() {
+		return new Api(this);
+	}
+
+	@Override
+	public void onAttached(Run<?, ?> run) {
+		this.run = run;
+	}
+
+	@Override
+	public void onLoad(Run<?, ?> run) {
+		this.run = run;
+	}
+
+	@Override
+	public String getIconFileName() {
+		return "clock.png";
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "ACS Deployment Performance";
+	}
+
+	@Override
+	public String getUrlName() {
+		return "acs-performance";
+	}
+}
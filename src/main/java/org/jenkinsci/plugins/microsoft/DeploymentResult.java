@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a deployment to one target produced.
+ */
+public class DeploymentResult implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final boolean success;
+	private final String dnsNamePrefix;
+	private final String deploymentName;
+	private final String mgmtFQDN;
+	private final List<Integer> enabledPorts;
+
+	private DeploymentResult(boolean success, ACSDeploymentContext target) {
+		this.success = success;
+		this.dnsNamePrefix = target.getDnsNamePrefix();
+		this.deploymentName = target.getDeploymentName();
+		this.mgmtFQDN = target.getMgmtFQDN();
+		this.enabledPorts = new ArrayList<Integer>(target.getEnabledPorts());
+	}
+
+	public static DeploymentResult succeeded(ACSDeploymentContext target) {
+		return new DeploymentResult(true, target);
+	}
+
+	public static DeploymentResult failed(ACSDeploymentContext target) {
+		return new DeploymentResult(false, target);
+	}
+
+	public boolean isSuccess() {
+		return this.success;
+	}
+
+	public String getDnsNamePrefix() {
+		return this.dnsNamePrefix;
+	}
+
+	/**
+	 * @return the ARM deployment, null if the cluster was not (re)deployed
+	 */
+	public String getDeploymentName() {
+		return this.deploymentName;
+	}
+
+	public String getMgmtFQDN() {
+		return this.mgmtFQDN;
+	}
+
+	public List<Integer> getEnabledPorts() {
+		return this.enabledPorts;
+	}
+
+	/**
+	 * @return the result as returned to Pipeline scripts
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("dnsNamePrefix", this.dnsNamePrefix);
+		map.put("deploymentName", this.deploymentName);
+		map.put("mgmtFQDN", this.mgmtFQDN);
+		map.put("enabledPorts", new ArrayList<Integer>(this.enabledPorts));
+		return map;
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jenkinsci.plugins.microsoft.util.DeploymentHistory;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.model.Action;
+import hudson.model.Job;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import hudson.util.ShiftedCategoryAxis;
+
+/**
+ * Charts the deployment durations recorded in the job's
+ * {@link DeploymentHistory} on the job page.
+ */
+public class DeploymentTrendAction implements Action {
+	// number of builds shown in the chart
+	private static final int MAX_BUILDS = 50;
+
+	private final Job<?, ?> job;
+
+	public DeploymentTrendAction(Job<?, ?> job) {
+		this.job = job;
+	}
+
+	public Job<?, ?> getJob() {
+		return this.job;
+	}
+
+	public boolean hasHistory() {
+		return DeploymentHistory.forJob(this.job).exists();
+	}
+
+	@Override
+	public String getIconFileName() {
+		return null;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "ACS Deployment Trend";
+	}
+
+	@Override
+	public String getUrlName() {
+		return "acs-trend";
+	}
+
+	/**
+	 * Renders the total and per step durations of the last successful
+	 * deployments, the slowest target of every build.
+	 */
+	public void doTrend(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		DeploymentHistory history = DeploymentHistory.forJob(this.job);
+		List<DeploymentHistory.Entry> entries = history.read();
+
+		// build number -> series -> slowest duration
+		TreeMap<Integer, Map<String, Long>> builds = new TreeMap<Integer, Map<String, Long>>();
+		for(DeploymentHistory.Entry entry : entries) {
+			if(!entry.isSuccess()) {
+				continue;
+			}
+
+			Map<String, Long> series = builds.get(entry.getBuildNumber());
+			if(series == null) {
+				series = new HashMap<String, Long>();
+				builds.put(entry.getBuildNumber(), series);
+			}
+			putMax(series, "Total", entry.getTotalMillis());
+			for(Map.Entry<String, Long> phase : entry.getPhases().entrySet()) {
+				putMax(series, phase.getKey(), phase.getValue());
+			}
+		}
+		while(builds.size() > MAX_BUILDS) {
+			builds.pollFirstEntry();
+		}
+
+		final DataSetBuilder<String, Integer> dataSet = new DataSetBuilder<String, Integer>();
+		for(Map.Entry<Integer, Map<String, Long>> build : builds.entrySet()) {
+			for(Map.Entry<String, Long> series : build.getValue().entrySet()) {
+				dataSet.add(series.getValue() / 60000.0, series.getKey(), build.getKey());
+			}
+		}
+
+		new Graph(history.lastModified(), 500, 250) {
+			@Override
+			protected JFreeChart createGraph() {
+				JFreeChart chart = ChartFactory.createLineChart(
+						null, "Build", "Minutes", dataSet.build(), PlotOrientation.VERTICAL, true, true, false);
+				chart.setBackgroundPaint(Color.white);
+
+				CategoryPlot plot = chart.getCategoryPlot();
+				plot.setBackgroundPaint(Color.WHITE);
+				plot.setOutlinePaint(null);
+				plot.setRangeGridlinesVisible(true);
+				plot.setRangeGridlinePaint(Color.black);
+
+				CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+				plot.setDomainAxis(domainAxis);
+				domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+				domainAxis.setLowerMargin(0.0);
+				domainAxis.setUpperMargin(0.0);
+				domainAxis.setCategoryMargin(0.0);
+				return chart;
+			}
+		}.doPng(req, rsp);
+	}
+
+	private static void putMax(Map<String, Long> series, String name, long millis) {
+		Long current = series.get(name);
+		if(current == null || current < millis) {
+			series.put(name, millis);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft;
+
+/**
+ * How the results of a deployment to several clusters decide the result of
+ * the build step.
+ */
+public enum TargetSuccessPolicy {
+	/**
+	 * Every target is deployed independently. The build is unstable if some
+	 * targets failed and fails only if all of them failed.
+	 */
+	PER_TARGET("Per target"),
+	/**
+	 * The build fails as soon as one target fails. The deployments still
+	 * running are interrupted as if the build was aborted, targets which
+	 * have not started yet are not deployed.
+	 */
+	ALL_OR_NOTHING("All or nothing");
+
+	private final String displayName;
+
+	private TargetSuccessPolicy(String displayName) {
+		this.displayName = displayName;
+	}
+
+	public String getDisplayName() {
+		return this.displayName;
+	}
+}
@@ -0,0 +1,20 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.commands;
+
+/**
+ * Values commands hand to each other through the command data, used to
+ * order commands when they run concurrently.
+ */
+public enum CommandValue {
+	ResourceGroup,
+	TemplateValidation,
+	Deployment,
+	Cluster,
+	MgmtFQDN,
+	MarathonApp,
+	Ports,
+}
@@ -7,6 +7,8 @@ package org.jenkinsci.plugins.microsoft.commands;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Set;
 
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
@@ -17,37 +19,60 @@ import com.microsoft.azure.management.network.NetworkResourceProviderClient;
 import com.microsoft.azure.management.resources.ResourceManagementClient;
 import com.microsoft.windowsazure.exception.ServiceException;
 
-public class EnablePortCommand implements ICommand<EnablePortCommand.IEnablePortCommandData> {
+public class EnablePortCommand implements ICommand<EnablePortCommand.IEnablePortCommandData>, IDataFlowCommand {
 	public void execute(IEnablePortCommandData context) {
-		String marathonConfigFile = context.getMarathonConfigFile(); 
+		String marathonConfig = context.getMarathonConfig(); 
 		NetworkResourceProviderClient client = context.getNetworkClient();
 		String dnsNamePrefix = context.getDnsNamePrefix();
 		try {
 			ArrayList<Integer> hostPorts = 
-	    			JsonHelper.getHostPorts(marathonConfigFile);
+	    			JsonHelper.scanContent(marathonConfig).getHostPorts();
 	        context.logStatus("Enabling ports");
+	    	Set<Integer> enabledPorts = context.getEnabledPorts();
 	    	for(Integer hPort : hostPorts) {
+	    		if(enabledPorts.contains(hPort)) {
+	    			context.logStatus(String.format("Port %d already enabled", hPort));
+	    			continue;
+	    		}
+
 				boolean retVal = NetworkResourceProviderHelper.createSecurityGroup(context, client, dnsNamePrefix, hPort);
 				if(retVal) {
 					retVal = NetworkResourceProviderHelper.createLoadBalancerRule(context, client, dnsNamePrefix, hPort);
 					if(!retVal) {
 						throw new AzureCloudException("Error enabling port:" + hPort + ".  Unknown status of other ports.");
 					}
+					context.addEnabledPort(hPort);
 				}else {
 					throw new AzureCloudException("Error enabling port:" + hPort + ".  Unknown status of other ports.");
 				}
 	    	}
 	    	
 	    	context.setDeploymentState(DeploymentState.Success);
-		} catch (InterruptedException | IOException | ServiceException | AzureCloudException e) {
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.logError("Interrupted while enabling ports:", e);
+		} catch (IOException | ServiceException | AzureCloudException e) {
 			context.logError(e);
 		}
 	}
 	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.of(CommandValue.Cluster);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.of(CommandValue.Ports);
+	}
+
 	public interface IEnablePortCommandData extends IBaseCommandData {
 		public String getDnsNamePrefix();
 		public String getLocation();
 		public String getMarathonConfigFile();
+		public String getMarathonConfig();
+		public Set<Integer> getEnabledPorts();
+		public void addEnabledPort(int port);
 		public NetworkResourceProviderClient getNetworkClient();
 		public ResourceManagementClient getResourceClient();
 	}
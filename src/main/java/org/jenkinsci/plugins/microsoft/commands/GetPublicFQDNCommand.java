@@ -6,32 +6,52 @@
 package org.jenkinsci.plugins.microsoft.commands;
 
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.EnumSet;
 
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.util.ContainerServiceHelper;
 import org.jenkinsci.plugins.microsoft.util.NetworkResourceProviderHelper;
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 
 import com.microsoft.azure.management.network.NetworkResourceProviderClient;
+import com.microsoft.azure.management.resources.ResourceManagementClient;
 import com.microsoft.windowsazure.exception.ServiceException;
 
-public class GetPublicFQDNCommand implements ICommand<GetPublicFQDNCommand.IGetPublicFQDNCommandData> {
+public class GetPublicFQDNCommand implements ICommand<GetPublicFQDNCommand.IGetPublicFQDNCommandData>, IDataFlowCommand {
 	public void execute(GetPublicFQDNCommand.IGetPublicFQDNCommandData context) {
 		try {
 	        context.logStatus("Getting management public FQDN.");
-			String mgmtFQDN = NetworkResourceProviderHelper.getMgmtPublicIPFQDN(
-					context.getNetworkClient(), 
-					context.getDnsNamePrefix());
+	        // the container service knows the FQDN of its masters, no need to list the public IPs
+	        String mgmtFQDN = ContainerServiceHelper.getMasterFQDN(ContainerServiceHelper.getContainerService(
+	        		context.getResourceClient(), context.getDnsNamePrefix()));
+	        if(mgmtFQDN == null) {
+	        	mgmtFQDN = NetworkResourceProviderHelper.getMgmtPublicIPFQDN(
+	        			context.getNetworkClient(), 
+	        			context.getDnsNamePrefix());
+	        }
 			context.logStatus("Management public FQDN: " + mgmtFQDN);
 			context.setMgmtFQDN(mgmtFQDN);
 			context.setDeploymentState(DeploymentState.Success);
-		} catch (IOException | ServiceException | AzureCloudException e) {
+		} catch (IOException | ServiceException | URISyntaxException | AzureCloudException e) {
 			context.logError("Error deploying marathon service or enabling ports:", e);
 		}
     }
 	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.of(CommandValue.Cluster);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.of(CommandValue.MgmtFQDN);
+	}
+
 	public interface IGetPublicFQDNCommandData extends IBaseCommandData {
 		public String getDnsNamePrefix();
 		public NetworkResourceProviderClient getNetworkClient();
+		public ResourceManagementClient getResourceClient();
 		public void setMgmtFQDN(String mgmtFQDN);
 	}
 }
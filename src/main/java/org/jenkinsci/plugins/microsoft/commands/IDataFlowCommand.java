@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.commands;
+
+import java.util.EnumSet;
+
+/**
+ * A command declaring what it reads from and writes to the command data.
+ * When commands run concurrently such a command starts as soon as all of
+ * its inputs are available instead of after its predecessor in the flow.
+ */
+public interface IDataFlowCommand {
+	/**
+	 * @return the values which must have been produced before the command runs
+	 */
+	public EnumSet<CommandValue> getInputs();
+
+	/**
+	 * @return the values available once the command completed successfully
+	 */
+	public EnumSet<CommandValue> getOutputs();
+}
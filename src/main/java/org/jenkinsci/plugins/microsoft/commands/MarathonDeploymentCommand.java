@@ -5,12 +5,22 @@
  */
 package org.jenkinsci.plugins.microsoft.commands;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
+import java.util.EnumSet;
 
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.util.Constants;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
+import org.jenkinsci.plugins.microsoft.util.ExchangeRecording;
 import org.jenkinsci.plugins.microsoft.util.JsonHelper;
+import org.jenkinsci.plugins.microsoft.util.MarathonDeploymentHelper;
+import org.jenkinsci.plugins.microsoft.util.PollingPolicy;
 
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
@@ -21,10 +31,10 @@ import com.jcraft.jsch.SftpException;
 import com.microsoft.azure.management.network.NetworkResourceProviderClient;
 import com.microsoft.azure.management.resources.ResourceManagementClient;
 
-public class MarathonDeploymentCommand implements ICommand<MarathonDeploymentCommand.IMarathonDeploymentCommandData> {
+public class MarathonDeploymentCommand implements ICommand<MarathonDeploymentCommand.IMarathonDeploymentCommandData>, IDataFlowCommand {
     public void execute(MarathonDeploymentCommand.IMarathonDeploymentCommandData context) {    
     	String host = context.getMgmtFQDN();
-    	String marathonConfigFile = context.getMarathonConfigFile();
+    	String marathonConfig = context.getMarathonConfig();
     	String sshFile = context.getSshKeyFileLocation();
 		String filePassword = context.getSshKeyFilePassword();
 		String linuxAdminUsername = context.getLinuxAdminUsername(); 
@@ -35,27 +45,41 @@ public class MarathonDeploymentCommand implements ICommand<MarathonDeploymentCom
 			java.util.Properties config = new java.util.Properties(); 
 			config.put("StrictHostKeyChecking", "no");
 			jsch.addIdentity(sshFile, filePassword);
-			session=jsch.getSession(linuxAdminUsername, host, 2200);
+			session=jsch.getSession(linuxAdminUsername, host, context.getMgmtSshPort());
 			session.setConfig(config);
-			session.connect();
+			DeploymentTimer.Phase phase = DeploymentTimer.startSubCall("SSH connect");
+			try {
+				session.connect(Constants.SSH_CONNECT_TIMEOUT_MILLIS);
+			} finally {
+				phase.close();
+			}
 			
 			ChannelSftp channel = null;
 			channel = (ChannelSftp)session.openChannel("sftp");
-			channel.connect();
-			String appId = JsonHelper.getId(marathonConfigFile);
+			channel.connect(Constants.SSH_CONNECT_TIMEOUT_MILLIS);
+			String appId = JsonHelper.scanContent(marathonConfig).getId();
+			String deleteCommand = MarathonDeploymentHelper.getDeleteAppCommand(appId);
 			String deployedFilename = "acsDep" + Calendar.getInstance().getTimeInMillis() + ".json";
 	        context.logStatus("Copying marathon file to remote file: " + deployedFilename);
+			phase = DeploymentTimer.startSubCall("SFTP put " + deployedFilename);
+			long putStart = DeploymentClock.get().nanoTime();
 			try {
-				channel.put(marathonConfigFile, deployedFilename);
+				channel.put(new ByteArrayInputStream(marathonConfig.getBytes(StandardCharsets.UTF_8)), deployedFilename);
 			} catch (SftpException e) {
 				context.logError("Error creating remote file:", e);
 				return;
+			} finally {
+				phase.close();
+			}
+			ExchangeRecording recording = DeploymentTimer.currentRecording();
+			if(recording != null) {
+				recording.add(ExchangeRecording.SSH, "put", deployedFilename, putStart, 0, null, marathonConfig);
 			}
 			channel.disconnect();
 			
 			//ignore if app does not exist
 			context.logStatus(String.format("Deleting application with appId: '%s' if it exists", appId));
-			this.executeCommand(session, "curl -X DELETE localhost:8080/v2/apps/" + appId, context);
+			this.executeCommand(session, deleteCommand, context);
 			context.logStatus(String.format("Deploying file '%s' with appId to marathon.", deployedFilename, appId));
 			this.executeCommand(session, "curl -i -H 'Content-Type: application/json' -d@" + deployedFilename + " localhost:8080/v2/apps", context);
 			context.setDeploymentState(DeploymentState.Success);
@@ -70,9 +94,17 @@ public class MarathonDeploymentCommand implements ICommand<MarathonDeploymentCom
     		throws IOException, JSchException, AzureCloudException {
     	ChannelExec execChnl = (ChannelExec)session.openChannel("exec");
 		execChnl.setCommand(command); 
+		ExchangeRecording recording = DeploymentTimer.currentRecording();
+		ByteArrayOutputStream output = null;
+		if(recording != null) {
+			output = new ByteArrayOutputStream();
+			execChnl.setOutputStream(output);
+		}
 		
+		long start = DeploymentClock.get().nanoTime();
+		DeploymentTimer.Phase phase = DeploymentTimer.startSubCall("SSH exec " + command);
 		try {
-			 execChnl.connect();
+			 execChnl.connect(Constants.SSH_CONNECT_TIMEOUT_MILLIS);
 			 try {
 		      while(true){
 		        if(execChnl.isClosed()){
@@ -80,24 +112,47 @@ public class MarathonDeploymentCommand implements ICommand<MarathonDeploymentCom
 		        		throw new AzureCloudException("Error building or running docker image. Process exected with status: " + 
 		        				execChnl.getExitStatus());
 		        	}
-		          System.out.println("exit-status: "+execChnl.getExitStatus());
+		          context.logStatus("exit-status: " + execChnl.getExitStatus());
 		          break;
 		        }
-		        try{Thread.sleep(1000);}catch(Exception ee){}
+		        try{
+		        	PollingPolicy.SSH_EXEC.await();
+		        }catch(InterruptedException ee){
+		        	Thread.currentThread().interrupt();
+		        	throw new AzureCloudException("Interrupted while running: " + command);
+		        }
 		     }
 			 }finally {
 				 execChnl.disconnect();
 			 }
 		}catch(AzureCloudException ex) {
 			throw ex;
+		}finally {
+			phase.end(String.valueOf(execChnl.getExitStatus()));
+			if(recording != null) {
+				recording.add(ExchangeRecording.SSH, "exec", command, start, execChnl.getExitStatus(), null,
+						output.toString("UTF-8"));
+			}
 		}
     }
     
+    @Override
+    public EnumSet<CommandValue> getInputs() {
+    	return EnumSet.of(CommandValue.MgmtFQDN);
+    }
+
+    @Override
+    public EnumSet<CommandValue> getOutputs() {
+    	return EnumSet.of(CommandValue.MarathonApp);
+    }
+
     public interface IMarathonDeploymentCommandData extends IBaseCommandData {
     	public String getDnsNamePrefix();
     	public String getLocation();
     	public String getMarathonConfigFile();
+    	public String getMarathonConfig();
     	public String getMgmtFQDN();
+    	public int getMgmtSshPort();
     	public String getSshKeyFileLocation();
     	public String getSshKeyFilePassword();
     	public String getLinuxAdminUsername(); 
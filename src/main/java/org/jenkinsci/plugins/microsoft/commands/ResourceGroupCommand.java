@@ -7,6 +7,7 @@ package org.jenkinsci.plugins.microsoft.commands;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.EnumSet;
 
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 
@@ -15,7 +16,7 @@ import com.microsoft.azure.management.resources.models.ResourceGroup;
 import com.microsoft.azure.management.resources.models.ResourceGroupCreateOrUpdateResult;
 import com.microsoft.windowsazure.exception.ServiceException;
 
-public class ResourceGroupCommand implements ICommand<ResourceGroupCommand.IResourceGroupCommandData> {
+public class ResourceGroupCommand implements ICommand<ResourceGroupCommand.IResourceGroupCommandData>, IDataFlowCommand {
 	public void execute(ResourceGroupCommand.IResourceGroupCommandData context) {
 		try {
 			String resourceGroupName = context.getResourceGroupName();
@@ -35,6 +36,16 @@ public class ResourceGroupCommand implements ICommand<ResourceGroupCommand.IReso
 		}
 	}
 	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.noneOf(CommandValue.class);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.of(CommandValue.ResourceGroup);
+	}
+
 	public interface IResourceGroupCommandData extends IBaseCommandData {
 		public String getResourceGroupName();
 		public String getLocation();
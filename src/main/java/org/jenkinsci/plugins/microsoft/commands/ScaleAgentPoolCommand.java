@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.commands;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.EnumSet;
+
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.util.ContainerServiceHelper;
+import org.jenkinsci.plugins.microsoft.util.PollingPolicy;
+
+import com.microsoft.azure.management.resources.ResourceManagementClient;
+import com.microsoft.azure.management.resources.models.GenericResourceExtended;
+import com.microsoft.azure.management.resources.models.ProvisioningState;
+import com.microsoft.azure.management.resources.models.ResourceCreateOrUpdateResult;
+import com.microsoft.windowsazure.exception.ServiceException;
+
+/**
+ * Brings the agent pool of an existing cluster to the configured agent
+ * count by updating the container service in place, without redeploying
+ * the template.
+ */
+public class ScaleAgentPoolCommand implements ICommand<ScaleAgentPoolCommand.IScaleAgentPoolCommandData>, IDataFlowCommand {
+	public void execute(ScaleAgentPoolCommand.IScaleAgentPoolCommandData context) {
+		try {
+			String dnsNamePrefix = context.getDnsNamePrefix();
+			ResourceManagementClient rmc = context.getResourceClient();
+			int agentCount = Integer.parseInt(context.getAgentCount());
+			GenericResourceExtended containerService = ContainerServiceHelper.getContainerService(rmc, dnsNamePrefix);
+			int currentCount = ContainerServiceHelper.getAgentCount(containerService);
+			if(currentCount == agentCount) {
+				context.setDeploymentState(DeploymentState.Success);
+				return;
+			}
+
+			context.logStatus(String.format("Scaling agent pool from %d to %d agents.", currentCount, agentCount));
+			ResourceCreateOrUpdateResult result = 
+					ContainerServiceHelper.updateAgentCount(rmc, dnsNamePrefix, containerService, agentCount);
+			if(result.getStatusCode() > 299) {
+				context.logError("Error scaling agent pool. Status code was:" + result.getStatusCode());
+				return;
+			}
+
+			while(true) {
+				String state = ContainerServiceHelper.getProvisioningState(
+						ContainerServiceHelper.getContainerService(rmc, dnsNamePrefix));
+				if(ProvisioningState.SUCCEEDED.equalsIgnoreCase(state)) {
+					context.logStatus(String.format("Agent pool scaled to %d agents.", agentCount));
+					context.setDeploymentState(DeploymentState.Success);
+					return;
+				} else if(ProvisioningState.FAILED.equalsIgnoreCase(state) || ProvisioningState.CANCELED.equalsIgnoreCase(state)) {
+					context.logError(String.format("Scaling agent pool failed, provisioning state is '%s'.", state));
+					return;
+				}
+
+				context.logStatus(String.format("Scaling agent pool (%s)", state));
+				PollingPolicy.AGENT_POOL.await();
+			}
+		} catch (NumberFormatException e) {
+			context.logError("Invalid agent count:", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.logError("Interrupted while scaling agent pool:", e);
+		} catch (IOException | ServiceException | URISyntaxException e) {
+			context.logError("Error scaling agent pool:", e);
+		}
+	}
+	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.noneOf(CommandValue.class);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.of(CommandValue.Cluster);
+	}
+
+	public interface IScaleAgentPoolCommandData extends IBaseCommandData {
+		public String getDnsNamePrefix();
+		public String getAgentCount();
+		public ResourceManagementClient getResourceClient();
+	}
+}
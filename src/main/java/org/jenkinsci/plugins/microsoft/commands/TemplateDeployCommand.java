@@ -5,26 +5,178 @@
  */
 package org.jenkinsci.plugins.microsoft.commands;
 
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
 import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.services.CoreQuotaCheck;
+import org.jenkinsci.plugins.microsoft.services.DeploymentGovernor;
 import org.jenkinsci.plugins.microsoft.services.IARMTemplateServiceData;
+import org.jenkinsci.plugins.microsoft.util.ArmTemplate;
+import org.jenkinsci.plugins.microsoft.util.PollingPolicy;
+
+import com.microsoft.azure.management.compute.ComputeManagementClient;
 
-public class TemplateDeployCommand implements ICommand<TemplateDeployCommand.ITemplateDeployCommandData> {
+public class TemplateDeployCommand implements ICommand<TemplateDeployCommand.ITemplateDeployCommandData>, IDataFlowCommand {
 	public void execute(TemplateDeployCommand.ITemplateDeployCommandData context) {
-	    	context.logStatus("Starting deployment");
 	        try {
-	        	String deploymentName = AzureManagementServiceDelegate.deploy(context.getArmTemplateServiceData());
-				context.setDeploymentState(DeploymentState.Success);
+	        	String validationError = this.getValidationResult(context);
+	        	if(validationError != null) {
+	        		context.logError("Template validation failed: " + validationError);
+	        		return;
+	        	}
+
+		    	if(!this.acquireDeploymentSlot(context)) {
+		    		return;
+		    	}
+		    	context.logStatus("Starting deployment");
+		    	// recorded before submitting so an interrupted build can reattach to the deployment
+		    	String deploymentName = AzureManagementServiceDelegate.createDeploymentName();
 				context.setDeploymentName(deploymentName);
+	        	AzureManagementServiceDelegate.deploy(context.getArmTemplateServiceData(), deploymentName);
+				context.setDeploymentState(DeploymentState.Success);
 		        context.logStatus("Deployment started.");
 			} catch (AzureCloudException e) {
+				context.releaseDeploymentSlot();
 				context.logError("Error starting deployment:", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				context.releaseDeploymentSlot();
+				context.logError("Deployment interrupted:", e);
+			}
+	}
+
+	/**
+	 * Takes a slot of the {@link DeploymentGovernor} for the deployment once
+	 * the cluster fits the core quota of the region. The quota is checked
+	 * before waiting for the slot and again with the slot, counting the
+	 * cores of the other deployments admitted in the region. A cluster over
+	 * the quota fails the deployment right away, or waits for cores to be
+	 * freed if so configured. A quota which cannot be checked does not hold
+	 * back the deployment.
+	 *
+	 * @return whether the slot was taken and the deployment may go ahead
+	 */
+	private boolean acquireDeploymentSlot(TemplateDeployCommand.ITemplateDeployCommandData context) 
+			throws InterruptedException {
+		String subscriptionId = context.getArmTemplateServiceData().getAzureConnectionData().getSubscriptionId();
+		String location = context.getLocation();
+		Integer required;
+		try {
+			ArmTemplate template = AzureManagementServiceDelegate.getEmbeddedTemplate(
+					context.getArmTemplateServiceData().getEmbeddedTemplateName());
+			required = CoreQuotaCheck.getRequiredCores(
+					context.getComputeClient(),
+					subscriptionId,
+					location,
+					template.getMasterVMSize(),
+					Integer.parseInt(context.getMasterCount()),
+					context.getAgentVMSize(),
+					Integer.parseInt(context.getAgentCount()));
+		} catch (AzureCloudException | IOException | NumberFormatException e) {
+			context.logStatus("Unable to check the core quota, deploying anyway: " + e.getMessage());
+			context.acquireDeploymentSlot(0);
+			return true;
+		}
+		if(required == null) {
+			// waiting would never help
+			context.logError(String.format("VM size '%s' is not offered in region '%s'", 
+					context.getAgentVMSize(), location));
+			return false;
+		}
+
+		String reported = null;
+		while(true) {
+			String shortage = this.checkCoreQuota(context, location, required, 0);
+			if(shortage == null) {
+				context.acquireDeploymentSlot(required);
+				int reserved = DeploymentGovernor.get().getAdmittedCores(subscriptionId, location) - required;
+				shortage = reserved > 0 ? this.checkCoreQuota(context, location, required, reserved) : null;
+				if(shortage == null) {
+					if(reported != null) {
+						context.logStatus("Core quota available.");
+					}
+					return true;
+				}
+				context.releaseDeploymentSlot();
+			}
+
+			if(!CoreQuotaCheck.isWaitForQuota()) {
+				context.logError("Core quota exceeded: " + shortage);
+				return false;
 			}
+			if(!shortage.equals(reported)) {
+				context.logStatus(shortage + ", waiting for cores to be freed.");
+				reported = shortage;
+			}
+			PollingPolicy.CORE_QUOTA.await();
+		}
+	}
+
+	/**
+	 * @return null if the cores fit or the quota cannot be checked,
+	 * otherwise why they do not fit
+	 */
+	private String checkCoreQuota(TemplateDeployCommand.ITemplateDeployCommandData context, String location,
+			int required, int reserved) {
+		try {
+			return CoreQuotaCheck.check(context.getComputeClient(), location, required, reserved);
+		} catch (AzureCloudException e) {
+			context.logStatus("Unable to check the core quota, deploying anyway: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private String getValidationResult(TemplateDeployCommand.ITemplateDeployCommandData context) 
+			throws AzureCloudException, InterruptedException {
+		Future<String> validation = context.getTemplateValidation();
+		if(validation != null) {
+			try {
+				String result = validation.get();
+				if(result == null) {
+					context.logStatus("Pre-flight template validation succeeded.");
+				}
+				return result;
+			} catch (ExecutionException | CancellationException e) {
+				// e.g. a transient ARM error, or the validation was canceled
+				context.logStatus("Pre-flight template validation did not complete, validating again.");
+			}
+		}
+
+		return AzureManagementServiceDelegate.validate(context.getArmTemplateServiceData());
 	}
 	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.of(CommandValue.ResourceGroup, CommandValue.TemplateValidation);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.of(CommandValue.Deployment);
+	}
+
 	public interface ITemplateDeployCommandData extends IBaseCommandData {
 		public IARMTemplateServiceData getArmTemplateServiceData();
+		public Future<String> getTemplateValidation();
 		public void setDeploymentName(String deploymentName);
+		public ComputeManagementClient getComputeClient();
+		public String getLocation();
+		public String getMasterCount();
+		public String getAgentCount();
+		public String getAgentVMSize();
+		/**
+		 * Waits until the deployment limits of the subscription and region
+		 * allow another deployment, see {@link DeploymentGovernor}.
+		 *
+		 * @param cores the cores the deployment provisions
+		 */
+		public void acquireDeploymentSlot(int cores) throws InterruptedException;
+		public void releaseDeploymentSlot();
 	}
 }
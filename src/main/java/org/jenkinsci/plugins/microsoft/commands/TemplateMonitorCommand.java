@@ -5,17 +5,24 @@
  */
 package org.jenkinsci.plugins.microsoft.commands;
 
+import java.util.EnumSet;
+
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
 
 import com.microsoft.azure.management.resources.ResourceManagementClient;
 
-public class TemplateMonitorCommand implements ICommand<TemplateMonitorCommand.ITemplateMonitorCommandData> {
+public class TemplateMonitorCommand implements ICommand<TemplateMonitorCommand.ITemplateMonitorCommandData>, IDataFlowCommand {
 	public void execute(TemplateMonitorCommand.ITemplateMonitorCommandData context) {
 		String deploymentName = context.getDeploymentName();
 		String rcName  = context.getResourceGroupName(); 
         ResourceManagementClient rmc = context.getResourceClient();
-    	boolean deploySuccess = AzureManagementServiceDelegate.monitor(rmc, rcName, deploymentName, context);
+    	boolean deploySuccess;
+    	try {
+    		deploySuccess = AzureManagementServiceDelegate.monitor(rmc, rcName, deploymentName, context);
+    	} finally {
+    		context.releaseDeploymentSlot();
+    	}
         if(deploySuccess) {
         	context.setDeploymentState(DeploymentState.Success);
 	        context.logStatus(
@@ -26,9 +33,20 @@ public class TemplateMonitorCommand implements ICommand<TemplateMonitorCommand.I
         }
 	}
 	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.of(CommandValue.Deployment);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.of(CommandValue.Cluster);
+	}
+
 	public interface ITemplateMonitorCommandData extends IBaseCommandData {
 		public String getDeploymentName();
 		public String getResourceGroupName();
 		public ResourceManagementClient getResourceClient();
+		public void releaseDeploymentSlot();
 	}
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.commands;
+
+import java.util.EnumSet;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.services.IARMTemplateServiceData;
+
+/**
+ * Starts the pre-flight validation of the template and parameters once the
+ * resource group exists, ARM cannot validate against a missing one. The
+ * validation runs in the background while the container service is
+ * checked, {@link TemplateDeployCommand} waits for the result before
+ * submitting the deployment and {@link ValidateContainerCommand} cancels
+ * it if the cluster is current.
+ */
+public class TemplateValidateCommand implements ICommand<TemplateValidateCommand.ITemplateValidateCommandData>, IDataFlowCommand {
+	public void execute(TemplateValidateCommand.ITemplateValidateCommandData context) {
+		context.logStatus("Starting pre-flight template validation");
+		context.setTemplateValidation(
+				AzureManagementServiceDelegate.validateAsync(context.getArmTemplateServiceData()));
+		context.setDeploymentState(DeploymentState.Success);
+	}
+	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.of(CommandValue.ResourceGroup);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.of(CommandValue.TemplateValidation);
+	}
+
+	public interface ITemplateValidateCommandData extends IBaseCommandData {
+		public IARMTemplateServiceData getArmTemplateServiceData();
+		public void setTemplateValidation(Future<String> templateValidation);
+	}
+}
@@ -7,52 +7,102 @@ package org.jenkinsci.plugins.microsoft.commands;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
+import java.util.EnumSet;
 
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.services.IARMTemplateServiceData;
+import org.jenkinsci.plugins.microsoft.util.ContainerServiceHelper;
 
 import com.microsoft.azure.management.resources.ResourceManagementClient;
 import com.microsoft.azure.management.resources.models.GenericResourceExtended;
-import com.microsoft.azure.management.resources.models.ResourceListParameters;
-import com.microsoft.azure.management.resources.models.ResourceListResult;
+import com.microsoft.azure.management.resources.models.ProvisioningState;
 import com.microsoft.windowsazure.exception.ServiceException;
 
-public class ValidateContainerCommand implements ICommand<ValidateContainerCommand.IValidateContainerCommandData> {
+public class ValidateContainerCommand implements ICommand<ValidateContainerCommand.IValidateContainerCommandData>, IDataFlowCommand {
 	public void execute(ValidateContainerCommand.IValidateContainerCommandData context) {
 		try {
 			String dnsNamePrefix = context.getDnsNamePrefix();
 	        ResourceManagementClient rmc = context.getResourceClient();
-			ResourceListParameters parameters = new ResourceListParameters();
-			parameters.setResourceGroupName(dnsNamePrefix);			
-			ResourceListResult result1 = rmc.getResourcesOperations().list(parameters);
-			ArrayList<GenericResourceExtended> resources = result1.getResources();
 	        context.logStatus(
 	        		String.format("Checking if the Azure Container Service with name 'containerservice-%s' exist.", dnsNamePrefix));
-	        boolean found = false;
-			for(GenericResourceExtended resource : resources) {
-				String name = resource.getName();
-				if(name.equals("containerservice-"  + dnsNamePrefix)){
-			        context.logStatus(
-			        		String.format("Azure Container Service with name 'containerservice-%s' found.", dnsNamePrefix));
-					context.setDeploymentState(DeploymentState.Success);
-					found = true;
-					break;
-				}				
-			}
-			
-			if(!found) {
+	        // a direct GET stays as fast as the resource group grows, unlike listing its resources
+	        GenericResourceExtended containerService = ContainerServiceHelper.findContainerService(rmc, dnsNamePrefix);
+			if(containerService == null) {
 				context.logStatus(
 						String.format("Azure Container Service 'containerservice-%s' not found.", dnsNamePrefix));
 				context.setDeploymentState(DeploymentState.UnSuccessful);
+				return;
 			}
-		} catch (IOException | ServiceException | URISyntaxException e) {
-			context.logError("Error creating resource group:", e);
+
+			context.logStatus(
+					String.format("Azure Container Service with name 'containerservice-%s' found.", dnsNamePrefix));
+			if(this.isDeploymentCurrent(context, containerService)) {
+				// the template is not deployed, its validation is of no use
+				context.cancelTemplateValidation();
+				context.setDeploymentState(DeploymentState.Success);
+			} else {
+				context.setDeploymentState(DeploymentState.UnSuccessful);
+			}
+		} catch (IOException | ServiceException | URISyntaxException | IllegalAccessException | AzureCloudException e) {
+			context.logError("Error checking the Azure Container Service:", e);
 		}
 	}
+
+	/**
+	 * Checks whether the last succeeded deployment of the container service
+	 * used the same template and parameters as this build. A container
+	 * service without fingerprint was deployed by a version of the plugin
+	 * which did not record one, it is adopted as deployed with the
+	 * configuration of this build and tagged with its fingerprint.
+	 */
+	boolean isDeploymentCurrent(IValidateContainerCommandData context, GenericResourceExtended containerService) 
+			throws IOException, IllegalAccessException, AzureCloudException {
+		String fingerprint = AzureManagementServiceDelegate.getDeploymentFingerprint(context.getArmTemplateServiceData());
+		String deployedFingerprint = ContainerServiceHelper.getDeploymentFingerprint(containerService);
+		String provisioningState = ContainerServiceHelper.getProvisioningState(containerService);
+		if(!ProvisioningState.SUCCEEDED.equalsIgnoreCase(provisioningState)) {
+			context.logStatus(String.format(
+					"Azure Container Service provisioning state is '%s', deploying again.", provisioningState));
+			return false;
+		}
+
+		if(deployedFingerprint == null) {
+			context.logStatus("Azure Container Service has no deployment fingerprint, adopting it as deployed with this configuration.");
+			try {
+				ContainerServiceHelper.updateDeploymentFingerprint(
+						context.getResourceClient(), context.getDnsNamePrefix(), containerService, fingerprint);
+			} catch (ServiceException | URISyntaxException e) {
+				context.logStatus("Unable to tag the Azure Container Service with the deployment fingerprint: " + e.getMessage());
+			}
+			return true;
+		}
+
+		if(!fingerprint.equals(deployedFingerprint)) {
+			context.logStatus("Azure Container Service configuration changed, deploying again.");
+			return false;
+		}
+
+		context.logStatus("Azure Container Service configuration unchanged, skipping deployment.");
+		return true;
+	}
 	
+	@Override
+	public EnumSet<CommandValue> getInputs() {
+		return EnumSet.of(CommandValue.ResourceGroup);
+	}
+
+	@Override
+	public EnumSet<CommandValue> getOutputs() {
+		return EnumSet.noneOf(CommandValue.class);
+	}
+
 	public interface IValidateContainerCommandData extends IBaseCommandData {
 		public String getDnsNamePrefix();
 		public String getLocation();
 		public ResourceManagementClient getResourceClient();
+		public IARMTemplateServiceData getArmTemplateServiceData();
+		public void cancelTemplateValidation();
 	}
 }
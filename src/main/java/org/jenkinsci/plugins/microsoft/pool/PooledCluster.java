@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.pool;
+
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+
+public class PooledCluster {
+	public enum State {
+		Provisioning,
+		Ready,
+		Leased,
+		Deleting
+	}
+
+	private final String dnsNamePrefix;
+	private final String specKey;
+	private final long createdAt;
+	private State state;
+	private String leasedBy;
+	private long leasedAt;
+
+	public PooledCluster(String dnsNamePrefix, String specKey) {
+		this.dnsNamePrefix = dnsNamePrefix;
+		this.specKey = specKey;
+		this.createdAt = DeploymentClock.get().currentTimeMillis();
+		this.state = State.Provisioning;
+	}
+
+	public String getDnsNamePrefix() {
+		return this.dnsNamePrefix;
+	}
+
+	public String getResourceGroupName() {
+		return this.dnsNamePrefix;
+	}
+
+	public String getSpecKey() {
+		return this.specKey;
+	}
+
+	public long getCreatedAt() {
+		return this.createdAt;
+	}
+
+	public State getState() {
+		return this.state;
+	}
+
+	void setState(State state) {
+		this.state = state;
+		if(state != State.Leased) {
+			this.leasedBy = null;
+			this.leasedAt = 0;
+		}
+	}
+
+	/**
+	 * @return the externalizable id of the build holding the lease
+	 */
+	public String getLeasedBy() {
+		return this.leasedBy;
+	}
+
+	public long getLeasedAt() {
+		return this.leasedAt;
+	}
+
+	void lease(String leasedBy) {
+		this.state = State.Leased;
+		this.leasedBy = leasedBy;
+		this.leasedAt = DeploymentClock.get().currentTimeMillis();
+	}
+}
@@ -0,0 +1,403 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.pool;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.microsoft.ACSDeploymentContext;
+import org.jenkinsci.plugins.microsoft.ACSGlobalConfiguration;
+import org.jenkinsci.plugins.microsoft.AzureAuthenticationContext;
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.services.CommandService;
+import org.jenkinsci.plugins.microsoft.services.ServiceDelegateHelper;
+import org.jenkinsci.plugins.microsoft.util.ContainerServiceHelper;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.PollingPolicy;
+
+import com.microsoft.azure.management.resources.ResourceManagementClient;
+import com.microsoft.azure.management.resources.models.ProvisioningState;
+import com.microsoft.windowsazure.exception.ServiceException;
+
+import hudson.XmlFile;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+import hudson.model.StreamBuildListener;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+
+/**
+ * Clusters provisioned ahead of the builds which lease them. The pool is
+ * persisted in JENKINS_HOME after every change so leases and clusters being
+ * provisioned or deleted are picked up again after a restart.
+ */
+public class WarmPool {
+	private static final Logger LOGGER = Logger.getLogger(WarmPool.class.getName());
+
+	// specs nobody asked for during this period are no longer replenished
+	private static final long SPEC_EXPIRY_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+	// how long a cluster found provisioning after a restart is waited for
+	private static final long RECOVERY_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static WarmPool instance;
+
+	private final List<PooledCluster> clusters = new ArrayList<PooledCluster>();
+	private final Map<String, WarmPoolSpec> specs = new HashMap<String, WarmPoolSpec>();
+
+	// resource groups with a provisioning or deletion running in this JVM
+	private transient Set<String> inFlight;
+	private transient ExecutorService executor;
+
+	private WarmPool() {
+		this.readResolve();
+	}
+
+	private Object readResolve() {
+		this.inFlight = new HashSet<String>();
+		this.executor = Executors.newCachedThreadPool(
+				new NamingThreadFactory(new DaemonThreadFactory(), "ACS warm pool"));
+		return this;
+	}
+
+	public static synchronized WarmPool get() {
+		if(instance == null) {
+			instance = load();
+		}
+
+		return instance;
+	}
+
+	private static WarmPool load() {
+		XmlFile file = getConfigFile();
+		if(file.exists()) {
+			try {
+				return (WarmPool)file.read();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Failed to load warm pool state from " + file, e);
+			}
+		}
+
+		return new WarmPool();
+	}
+
+	private static File getRootDir() {
+		return new File(Jenkins.getInstance().getRootDir(), "azure-acs-warm-pool");
+	}
+
+	private static XmlFile getConfigFile() {
+		return new XmlFile(Jenkins.XSTREAM2, new File(getRootDir(), "pool.xml"));
+	}
+
+	private static File getLogFile(PooledCluster cluster) {
+		return new File(getRootDir(), cluster.getDnsNamePrefix() + ".log");
+	}
+
+	private synchronized void save() {
+		try {
+			getConfigFile().write(this);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to save warm pool state", e);
+		}
+	}
+
+	public synchronized List<PooledCluster> getClusters() {
+		return new ArrayList<PooledCluster>(this.clusters);
+	}
+
+	/**
+	 * Leases a ready cluster matching the context and remembers the spec so
+	 * the pool keeps clusters ready for the next lease.
+	 *
+	 * @return the leased cluster, null if none is ready or the pool is disabled
+	 */
+	public synchronized PooledCluster lease(ACSDeploymentContext context, AzureAuthenticationContext authContext, 
+			String leasedBy) {
+		if(!ACSGlobalConfiguration.get().isWarmPoolEnabled()) {
+			return null;
+		}
+
+		String key = context.getClusterSpecKey(authContext);
+		WarmPoolSpec spec = new WarmPoolSpec(key, context.createCopy(null), authContext);
+		this.specs.put(key, spec);
+
+		PooledCluster leased = null;
+		for(PooledCluster cluster : this.clusters) {
+			if(cluster.getState() == PooledCluster.State.Ready && cluster.getSpecKey().equals(key)) {
+				cluster.lease(leasedBy);
+				leased = cluster;
+				break;
+			}
+		}
+
+		this.replenish(spec);
+		this.save();
+		return leased;
+	}
+
+	/**
+	 * Returns the clusters leased by the build to the pool, or deletes them
+	 * unless recycling is enabled.
+	 */
+	public synchronized List<PooledCluster> release(String leasedBy) {
+		List<PooledCluster> released = new ArrayList<PooledCluster>();
+		for(PooledCluster cluster : this.getClusters()) {
+			if(cluster.getState() == PooledCluster.State.Leased && leasedBy.equals(cluster.getLeasedBy())) {
+				this.release(cluster);
+				released.add(cluster);
+			}
+		}
+
+		if(!released.isEmpty()) {
+			this.save();
+		}
+		return released;
+	}
+
+	private void release(PooledCluster cluster) {
+		WarmPoolSpec spec = this.specs.get(cluster.getSpecKey());
+		if(ACSGlobalConfiguration.get().isRecycleWarmPoolClusters() && spec != null && !this.isExpired(spec)) {
+			cluster.setState(PooledCluster.State.Ready);
+		} else {
+			this.delete(cluster);
+		}
+	}
+
+	/**
+	 * Brings the pool in line with the configuration: releases leases of
+	 * builds which are gone, resumes work interrupted by a restart, drops
+	 * expired specs and provisions or deletes clusters to match the pool size.
+	 */
+	public synchronized void maintain(TaskListener listener) {
+		for(PooledCluster cluster : this.getClusters()) {
+			if(this.inFlight.contains(cluster.getResourceGroupName())) {
+				continue;
+			}
+
+			switch(cluster.getState()) {
+			case Leased:
+				Run<?, ?> run = Run.fromExternalizableId(cluster.getLeasedBy());
+				if(run == null || !run.isBuilding()) {
+					listener.getLogger().println(String.format("Releasing %s leased by %s", 
+							cluster.getDnsNamePrefix(), cluster.getLeasedBy()));
+					this.release(cluster);
+				}
+				break;
+			case Provisioning:
+				listener.getLogger().println("Resuming provisioning of " + cluster.getDnsNamePrefix());
+				this.recover(cluster);
+				break;
+			case Deleting:
+				this.delete(cluster);
+				break;
+			default:
+				break;
+			}
+		}
+
+		for(WarmPoolSpec spec : new ArrayList<WarmPoolSpec>(this.specs.values())) {
+			if(!this.isExpired(spec)) {
+				this.replenish(spec);
+				continue;
+			}
+
+			// the spec keeps the credentials needed to delete its clusters
+			boolean referenced = false;
+			for(PooledCluster cluster : this.getClusters()) {
+				if(cluster.getSpecKey().equals(spec.getKey())) {
+					referenced = true;
+					if(cluster.getState() == PooledCluster.State.Ready) {
+						this.delete(cluster);
+					}
+				}
+			}
+
+			if(!referenced) {
+				listener.getLogger().println("Warm pool spec " + spec.getKey() + " expired");
+				this.specs.remove(spec.getKey());
+			}
+		}
+
+		this.save();
+	}
+
+	private boolean isExpired(WarmPoolSpec spec) {
+		return DeploymentClock.get().currentTimeMillis() - spec.getLastLeaseRequest() > SPEC_EXPIRY_MILLIS;
+	}
+
+	private void replenish(WarmPoolSpec spec) {
+		int size = ACSGlobalConfiguration.get().getWarmPoolSize();
+		int available = 0;
+		for(PooledCluster cluster : this.getClusters()) {
+			if(!cluster.getSpecKey().equals(spec.getKey())) {
+				continue;
+			}
+
+			if(cluster.getState() == PooledCluster.State.Provisioning) {
+				available++;
+			} else if(cluster.getState() == PooledCluster.State.Ready) {
+				if(available < size) {
+					available++;
+				} else {
+					this.delete(cluster);
+				}
+			}
+		}
+
+		for(; available < size; available++) {
+			this.provision(spec);
+		}
+	}
+
+	private void provision(final WarmPoolSpec spec) {
+		String dnsNamePrefix = Jenkins.getInstance().getDescriptorByType(
+				ACSDeploymentContext.DescriptorImpl.class).defaultDnsNamePrefix();
+		final PooledCluster cluster = new PooledCluster(dnsNamePrefix, spec.getKey());
+		this.clusters.add(cluster);
+		this.inFlight.add(cluster.getResourceGroupName());
+		LOGGER.log(Level.INFO, "Provisioning warm pool cluster {0}", dnsNamePrefix);
+
+		this.executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				boolean success = false;
+				try {
+					BuildListener listener = new StreamBuildListener(
+							new FileOutputStream(getLogFile(cluster)), StandardCharsets.UTF_8);
+					try {
+						ACSDeploymentContext context = spec.createContext(cluster.getDnsNamePrefix());
+						context.configureProvisioning(listener, spec.getAuthContext());
+						success = CommandService.executeCommands(context) && !context.getHasError();
+						context.releaseDeploymentSlot();
+					} finally {
+						listener.getLogger().close();
+					}
+				} catch (IOException | AzureCloudException | RuntimeException e) {
+					LOGGER.log(Level.WARNING, "Failed to provision warm pool cluster " + cluster.getDnsNamePrefix(), e);
+				}
+
+				provisioned(cluster, success);
+			}
+		});
+	}
+
+	/**
+	 * Waits for a cluster whose provisioning was interrupted by a restart,
+	 * the ARM deployment itself keeps running in Azure.
+	 */
+	private void recover(final PooledCluster cluster) {
+		final WarmPoolSpec spec = this.specs.get(cluster.getSpecKey());
+		if(spec == null) {
+			this.delete(cluster);
+			return;
+		}
+
+		this.inFlight.add(cluster.getResourceGroupName());
+		this.executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				boolean success = false;
+				try {
+					ResourceManagementClient rmc = createClient(spec.getAuthContext());
+					DeploymentClock clock = DeploymentClock.get();
+					long deadline = clock.currentTimeMillis() + RECOVERY_TIMEOUT_MILLIS;
+					while(clock.currentTimeMillis() < deadline) {
+						String state = ContainerServiceHelper.getProvisioningState(
+								ContainerServiceHelper.getContainerService(rmc, cluster.getDnsNamePrefix()));
+						if(ProvisioningState.SUCCEEDED.equalsIgnoreCase(state)) {
+							success = true;
+							break;
+						} else if(ProvisioningState.FAILED.equalsIgnoreCase(state) || 
+								ProvisioningState.CANCELED.equalsIgnoreCase(state)) {
+							break;
+						}
+
+						PollingPolicy.WARM_POOL_RECOVERY.await();
+					}
+				} catch (IOException | ServiceException | URISyntaxException | AzureCloudException e) {
+					LOGGER.log(Level.WARNING, "Failed to recover warm pool cluster " + cluster.getDnsNamePrefix(), e);
+				} catch (InterruptedException e) {
+					LOGGER.log(Level.INFO, "Interrupted while recovering warm pool cluster {0}", cluster.getDnsNamePrefix());
+				}
+
+				provisioned(cluster, success);
+			}
+		});
+	}
+
+	private synchronized void provisioned(PooledCluster cluster, boolean success) {
+		this.inFlight.remove(cluster.getResourceGroupName());
+		if(success) {
+			LOGGER.log(Level.INFO, "Warm pool cluster {0} is ready", cluster.getDnsNamePrefix());
+			cluster.setState(PooledCluster.State.Ready);
+		} else {
+			this.delete(cluster);
+		}
+
+		this.save();
+	}
+
+	private void delete(final PooledCluster cluster) {
+		cluster.setState(PooledCluster.State.Deleting);
+		final WarmPoolSpec spec = this.specs.get(cluster.getSpecKey());
+		if(spec == null) {
+			// without credentials the resource group can only be removed by hand
+			LOGGER.log(Level.WARNING, "Dropping warm pool cluster {0}, its resource group has to be deleted manually", 
+					cluster.getResourceGroupName());
+			this.deleted(cluster);
+			return;
+		}
+
+		this.inFlight.add(cluster.getResourceGroupName());
+		this.executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					createClient(spec.getAuthContext()).getResourceGroupsOperations().beginDeleting(
+							cluster.getResourceGroupName());
+					LOGGER.log(Level.INFO, "Deleting warm pool cluster {0}", cluster.getDnsNamePrefix());
+					deleted(cluster);
+				} catch (IOException | ServiceException | AzureCloudException e) {
+					LOGGER.log(Level.WARNING, "Failed to delete warm pool cluster " + cluster.getDnsNamePrefix(), e);
+					deleteFailed(cluster);
+				}
+			}
+		});
+	}
+
+	private synchronized void deleted(PooledCluster cluster) {
+		this.inFlight.remove(cluster.getResourceGroupName());
+		this.clusters.remove(cluster);
+		getLogFile(cluster).delete();
+		this.save();
+	}
+
+	private synchronized void deleteFailed(PooledCluster cluster) {
+		// retried by the next maintenance run
+		this.inFlight.remove(cluster.getResourceGroupName());
+	}
+
+	private static ResourceManagementClient createClient(AzureAuthenticationContext authContext) 
+			throws AzureCloudException {
+		return ServiceDelegateHelper.getResourceManagementClient(ServiceDelegateHelper.load(authContext));
+	}
+}
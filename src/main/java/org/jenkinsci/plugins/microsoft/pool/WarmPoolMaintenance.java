@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.pool;
+
+import java.io.IOException;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+@Extension
+public class WarmPoolMaintenance extends AsyncPeriodicWork {
+
+	public WarmPoolMaintenance() {
+		super("Azure Container Service warm pool");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return MIN;
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		WarmPool.get().maintain(listener);
+	}
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.pool;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Releases warm pool clusters once the build which leased them completes,
+ * so later build steps can still use the cluster.
+ */
+@Extension
+public class WarmPoolRunListener extends RunListener<Run> {
+
+	@Override
+	public void onCompleted(Run run, TaskListener listener) {
+		for(PooledCluster cluster : WarmPool.get().release(run.getExternalizableId())) {
+			listener.getLogger().println(String.format(
+					"Released cluster '%s' to the Azure Container Service warm pool", cluster.getDnsNamePrefix()));
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.pool;
+
+import org.jenkinsci.plugins.microsoft.ACSDeploymentContext;
+import org.jenkinsci.plugins.microsoft.AzureAuthenticationContext;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+
+/**
+ * A cluster configuration some job leased, kept so the pool can provision
+ * clusters for it ahead of the next lease. The spec keeps the job's Azure
+ * credentials, storage account key and SSH key password, so pool.xml holds
+ * those of every job using the pool; they are saved encrypted as in the job
+ * configurations.
+ */
+public class WarmPoolSpec {
+	private final String key;
+	private final ACSDeploymentContext template;
+	private final AzureAuthenticationContext authContext;
+	private final long lastLeaseRequest;
+
+	public WarmPoolSpec(String key, ACSDeploymentContext template, AzureAuthenticationContext authContext) {
+		this.key = key;
+		this.template = template;
+		this.authContext = authContext;
+		this.lastLeaseRequest = DeploymentClock.get().currentTimeMillis();
+	}
+
+	public String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * @return a context to provision a new pool cluster with the given DNS name prefix
+	 */
+	public ACSDeploymentContext createContext(String dnsNamePrefix) {
+		return this.template.createCopy(dnsNamePrefix);
+	}
+
+	public AzureAuthenticationContext getAuthContext() {
+		return this.authContext;
+	}
+
+	public long getLastLeaseRequest() {
+		return this.lastLeaseRequest;
+	}
+}
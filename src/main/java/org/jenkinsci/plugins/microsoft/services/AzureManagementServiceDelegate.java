@@ -5,9 +5,7 @@
  */
 package org.jenkinsci.plugins.microsoft.services;
 
-import com.fasterxml.jackson.databind.JsonNode;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import com.microsoft.azure.management.resources.ResourceManagementClient;
@@ -15,10 +13,14 @@ import com.microsoft.azure.management.resources.models.Deployment;
 import com.microsoft.azure.management.resources.models.DeploymentMode;
 import com.microsoft.azure.management.resources.models.DeploymentOperation;
 import com.microsoft.azure.management.resources.models.DeploymentProperties;
+import com.microsoft.azure.management.resources.models.DeploymentValidateResponse;
 import com.microsoft.azure.management.resources.models.ProvisioningState;
+import com.microsoft.azure.management.resources.models.ResourceManagementErrorWithDetails;
+import com.microsoft.azure.management.resources.models.TemplateLink;
 
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -31,7 +33,10 @@ import com.microsoft.windowsazure.exception.ServiceException;
 import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
 import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.util.ArmTemplate;
 import org.jenkinsci.plugins.microsoft.util.Constants;
+import org.jenkinsci.plugins.microsoft.util.PollingPolicy;
+import org.jenkinsci.plugins.microsoft.util.TemplateStorageHelper;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,10 +45,19 @@ import java.util.logging.Level;
 
 import org.apache.commons.lang.StringUtils;
 
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.Secret;
+
 public class AzureManagementServiceDelegate {
 
     private static final Logger LOGGER = Logger.getLogger(AzureManagementServiceDelegate.class.getName());
 
+    private static final ExecutorService BACKGROUND = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), "AzureManagementServiceDelegate"));
+
+    private static final ConcurrentHashMap<String, ArmTemplate> EMBEDDED_TEMPLATES = new ConcurrentHashMap<String, ArmTemplate>();
+
     /**
      * Validates certificate configuration.
      *
@@ -97,61 +111,223 @@ public class AzureManagementServiceDelegate {
         }
     }
     
+    /**
+     * "West US" and "westus" are the same region.
+     */
+    public static String normalizeLocation(String location) {
+        return location == null ? "" : location.replace(" ", "").toLowerCase();
+    }
+
+    public static String createDeploymentName() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
     public static String deploy(final IARMTemplateServiceData azureServiceData)
             throws AzureCloudException {
+        return deploy(azureServiceData, createDeploymentName());
+    }
+
+    /**
+     * Submits the deployment under a name chosen by the caller, so the name
+     * can be recorded before the deployment exists.
+     */
+    public static String deploy(final IARMTemplateServiceData azureServiceData, final String deploymentName)
+            throws AzureCloudException {
         try {
             final ResourceManagementClient client = ServiceDelegateHelper.getResourceManagementClient(
                     ServiceDelegateHelper.load(azureServiceData.getAzureConnectionData()));
 
-            final long ts = System.currentTimeMillis();
+            final Deployment deployment = createDeployment(azureServiceData);
 
-            final Deployment deployment = new Deployment();
-            final DeploymentProperties properties = new DeploymentProperties();
-            deployment.setProperties(properties);
+            client.getDeploymentsOperations().createOrUpdate(azureServiceData.getResourceGroupName(), deploymentName, deployment);
+            return deploymentName;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "AzureManagementServiceDelegate: deployment: Unable to deploy", e);
+            throw new AzureCloudException(e);
+        }
+    }
+
+    /**
+     * @return the provisioning state of the deployment, null if ARM does
+     * not know the deployment
+     */
+    public static String getDeploymentState(final ResourceManagementClient client, final String resourceGroupName, 
+            final String deploymentName) throws AzureCloudException {
+        try {
+            return client.getDeploymentsOperations().get(resourceGroupName, deploymentName)
+                    .getDeployment().getProperties().getProvisioningState();
+        } catch (ServiceException e) {
+            if (e.getHttpStatusCode() == 404) {
+                return null;
+            }
+            throw new AzureCloudException(e);
+        } catch (IOException | URISyntaxException e) {
+            throw new AzureCloudException(e);
+        }
+    }
 
-            final InputStream embeddedTemplate;
+    /**
+     * Cancels a deployment which is still running. Resources it already
+     * created are kept.
+     *
+     * @return false if the deployment was no longer running
+     */
+    public static boolean cancelDeployment(final ResourceManagementClient client, final String resourceGroupName, 
+            final String deploymentName) throws AzureCloudException {
+        try {
+            client.getDeploymentsOperations().cancel(resourceGroupName, deploymentName);
+            return true;
+        } catch (ServiceException e) {
+            // 409 once the deployment completed, failed or was already canceled
+            if (e.getHttpStatusCode() == 404 || e.getHttpStatusCode() == 409) {
+                return false;
+            }
+            throw new AzureCloudException(e);
+        } catch (IOException e) {
+            throw new AzureCloudException(e);
+        }
+    }
 
-            // check if a custom image id has been provided otherwise work with publisher and offer
-            LOGGER.log(Level.INFO, "Use embedded deployment template {0}", azureServiceData.getEmbeddedTemplateName());
-            embeddedTemplate
-                    = AzureManagementServiceDelegate.class.getResourceAsStream(azureServiceData.getEmbeddedTemplateName());
-            
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode tmp = mapper.readTree(embeddedTemplate);
+    /**
+     * Validates the deployment with the ARM validate API without deploying
+     * anything.
+     *
+     * @return null if the template and parameters are valid, otherwise the
+     * validation error
+     * @throws AzureCloudException if the validation could not be performed,
+     * e.g. because the resource group does not exist yet
+     */
+    public static String validate(final IARMTemplateServiceData azureServiceData)
+            throws AzureCloudException {
+        try {
+            final ResourceManagementClient client = ServiceDelegateHelper.getResourceManagementClient(
+                    ServiceDelegateHelper.load(azureServiceData.getAzureConnectionData()));
 
-            azureServiceData.configureTemplate(tmp);
-            
-            // Deployment ....
-            properties.setMode(DeploymentMode.INCREMENTAL);
-            properties.setTemplate(tmp.toString());
+            final Deployment deployment = createDeployment(azureServiceData);
+            final String deploymentName = "preflight" + System.currentTimeMillis();
+            final DeploymentValidateResponse response = client.getDeploymentsOperations().validate(
+                    azureServiceData.getResourceGroupName(), deploymentName, deployment);
+            final ResourceManagementErrorWithDetails error = response.getError();
+            if (error == null) {
+                return null;
+            }
 
-            final String deploymentName = String.valueOf(ts);
-            client.getDeploymentsOperations().createOrUpdate(azureServiceData.getResourceGroupName(), deploymentName, deployment);
-            return deploymentName;
+            return String.format("%s: %s", error.getCode(), error.getMessage());
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "AzureManagementServiceDelegate: deployment: Unable to deploy", e);
+            LOGGER.log(Level.INFO, "AzureManagementServiceDelegate: validate: Unable to validate", e);
             throw new AzureCloudException(e);
         }
     }
-    
+
+    /**
+     * Starts {@link #validate(IARMTemplateServiceData)} in the background.
+     */
+    public static Future<String> validateAsync(final IARMTemplateServiceData azureServiceData) {
+        return BACKGROUND.submit(new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+                return validate(azureServiceData);
+            }
+        });
+    }
+
+    /**
+     * Builds the deployment request. The template body is the same for every
+     * deployment, the values of this deployment are sent as parameters.
+     */
+    public static Deployment createDeployment(final IARMTemplateServiceData azureServiceData)
+            throws IOException, IllegalAccessException, AzureCloudException {
+        LOGGER.log(Level.INFO, "Use embedded deployment template {0}", azureServiceData.getEmbeddedTemplateName());
+        final ArmTemplate template = getEmbeddedTemplate(azureServiceData.getEmbeddedTemplateName());
+
+        final ObjectNode parameters = JsonNodeFactory.instance.objectNode();
+        azureServiceData.configureParameters(parameters);
+        // stamped as a tag on the container service, see ValidateContainerCommand
+        parameters.putObject(Constants.DEPLOYMENT_FINGERPRINT_PARAMETER)
+                .put("value", getFingerprint(template, parameters));
+
+        final Deployment deployment = new Deployment();
+        final DeploymentProperties properties = new DeploymentProperties();
+        deployment.setProperties(properties);
+        properties.setMode(DeploymentMode.INCREMENTAL);
+        properties.setParameters(parameters.toString());
+
+        if (StringUtils.isNotBlank(azureServiceData.getTemplateStorageAccountName())) {
+            final TemplateLink templateLink = new TemplateLink();
+            templateLink.setUri(TemplateStorageHelper.getTemplateLink(
+                    azureServiceData.getTemplateStorageAccountName(),
+                    Secret.toString(azureServiceData.getTemplateStorageAccountKey()),
+                    template));
+            properties.setTemplateLink(templateLink);
+        } else {
+            properties.setTemplate(template.getContent());
+        }
+
+        return deployment;
+    }
+
+    /**
+     * Computes the fingerprint of the template and parameters the next
+     * deployment would use, without building the deployment request.
+     */
+    public static String getDeploymentFingerprint(final IARMTemplateServiceData azureServiceData)
+            throws IOException, IllegalAccessException, AzureCloudException {
+        final ArmTemplate template = getEmbeddedTemplate(azureServiceData.getEmbeddedTemplateName());
+        final ObjectNode parameters = JsonNodeFactory.instance.objectNode();
+        azureServiceData.configureParameters(parameters);
+        return getFingerprint(template, parameters);
+    }
+
+    private static String getFingerprint(final ArmTemplate template, final ObjectNode parameters) {
+        // the agent count is changed by scaling the agent pool, not by redeploying
+        final ObjectNode fingerprintParameters = parameters.deepCopy();
+        fingerprintParameters.remove(Constants.AGENT_COUNT_PARAMETER);
+        return template.getFingerprint(fingerprintParameters);
+    }
+
+    /**
+     * Parses the embedded template on first use and caches it for the
+     * lifetime of the plugin class loader.
+     */
+    public static ArmTemplate getEmbeddedTemplate(String templateName) throws IOException, AzureCloudException {
+    	ArmTemplate template = EMBEDDED_TEMPLATES.get(templateName);
+    	if(template == null) {
+    		try(InputStream embeddedTemplate = AzureManagementServiceDelegate.class.getResourceAsStream(templateName)) {
+    			if(embeddedTemplate == null) {
+    				throw new AzureCloudException("Embedded template not found: " + templateName);
+    			}
+    			template = ArmTemplate.read(embeddedTemplate);
+    		}
+
+    		ArmTemplate existing = EMBEDDED_TEMPLATES.putIfAbsent(templateName, template);
+    		if(existing != null) {
+    			template = existing;
+    		}
+    	}
+
+    	return template;
+    }
+
     public static void validateAndAddFieldValue(String type,
     		String fieldValue, 
     		String fieldName, 
     		String errorMessage, 
-    		JsonNode tmp) 
+    		ObjectNode parameters) 
     		throws AzureCloudException, IllegalAccessException{
         if (StringUtils.isNotBlank(fieldValue)) {
-            // Add count variable for loop....
-        	final ObjectMapper mapper = new ObjectMapper();
-			final ObjectNode parameter = mapper.createObjectNode();
-			parameter.put("type", type);
-			if(type == "int") {
-				parameter.put("defaultValue", Integer.parseInt(fieldValue));
+			final ObjectNode parameter = parameters.putObject(fieldName);
+			if("int".equals(type)) {
+				try {
+					parameter.put("value", Integer.parseInt(fieldValue));
+				} catch (NumberFormatException e) {
+					throw new AzureCloudException(
+							String.format("Invalid value '%s' for parameter '%s'", fieldValue, fieldName), e);
+				}
 			}else {
-				parameter.put("defaultValue", fieldValue);
+				parameter.put("value", fieldValue);
 			}
-            ObjectNode.class.cast(tmp.get("parameters")).replace(fieldName, parameter);
-        } else if (StringUtils.isBlank(errorMessage)) {
+        } else if (StringUtils.isNotBlank(errorMessage)) {
             throw new AzureCloudException(errorMessage);
         }
     }
@@ -164,9 +340,12 @@ public class AzureManagementServiceDelegate {
     	int completed = 0;
         do {
             try {
-                Thread.sleep(30 * 1000);
+                PollingPolicy.DEPLOYMENT.await();
             } catch (InterruptedException ex) {
-                // ignore
+                // the build was aborted or the command timed out
+                Thread.currentThread().interrupt();
+                baseCommandData.logError(String.format("Stopped monitoring deployment '%s': interrupted", deploymentName));
+                return false;
             }
 
             List<DeploymentOperation> ops = null;
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
+import org.jenkinsci.plugins.microsoft.util.ExchangeRecording;
+
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestFilter;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseFilter;
+
+/**
+ * Adds every ARM call to the {@link ExchangeRecording} of the deployment
+ * making it, if the deployment is recorded.
+ */
+public class AzureRecordingFilter implements ServiceRequestFilter, ServiceResponseFilter {
+	private static final Logger LOGGER = Logger.getLogger(AzureRecordingFilter.class.getName());
+
+	private static final String START_PROPERTY = "acsRecordingStart";
+	private static final String[] HEADERS = { "Content-Type", "Location", "Azure-AsyncOperation", "Retry-After" };
+
+	public void filter(ServiceRequestContext request) {
+		if(DeploymentTimer.currentRecording() != null) {
+			request.setProperty(START_PROPERTY, DeploymentClock.get().nanoTime());
+		}
+	}
+
+	public void filter(ServiceRequestContext request, ServiceResponseContext response) {
+		ExchangeRecording recording = DeploymentTimer.currentRecording();
+		Object start = request.getProperty(START_PROPERTY);
+		if(recording == null || !(start instanceof Long)) {
+			return;
+		}
+
+		String body = null;
+		if(response.hasEntity()) {
+			try {
+				// the client reads the entity after the filters
+				InputStream entity = response.getEntityInputStream();
+				byte[] content = IOUtils.toByteArray(entity);
+				entity.close();
+				response.setEntityInputStream(new ByteArrayInputStream(content));
+				body = new String(content, StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to record the response body", e);
+			}
+		}
+
+		Map<String, String> headers = new LinkedHashMap<String, String>();
+		for(String header : HEADERS) {
+			String value = response.getHeader(header);
+			if(value != null) {
+				headers.put(header, value);
+			}
+		}
+
+		URI uri = request.getURI();
+		recording.add(
+				ExchangeRecording.ARM,
+				request.getMethod(),
+				uri == null ? "" : uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery()),
+				(Long)start,
+				response.getStatus(),
+				headers,
+				body);
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import java.net.URI;
+
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
+
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestFilter;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseFilter;
+
+/**
+ * Records every ARM call as a sub-call of the command making it.
+ */
+public class AzureTimingFilter implements ServiceRequestFilter, ServiceResponseFilter {
+	private static final String START_PROPERTY = "acsTimingStart";
+
+	public void filter(ServiceRequestContext request) {
+		request.setProperty(START_PROPERTY, DeploymentClock.get().nanoTime());
+	}
+
+	public void filter(ServiceRequestContext request, ServiceResponseContext response) {
+		Object start = request.getProperty(START_PROPERTY);
+		if(start instanceof Long) {
+			DeploymentTimer.recordSubCall(
+					getCallName(request),
+					(Long)start,
+					String.valueOf(response.getStatus()));
+		}
+	}
+
+	private static String getCallName(ServiceRequestContext request) {
+		URI uri = request.getURI();
+		String path = uri == null ? "" : uri.getPath();
+		// the subscription is the same for every call of a deployment
+		int resourceGroups = path.indexOf("/resourcegroups/");
+		if(resourceGroups < 0) {
+			resourceGroups = path.indexOf("/resourceGroups/");
+		}
+		if(resourceGroups >= 0) {
+			path = path.substring(resourceGroups);
+		}
+
+		return "ARM " + request.getMethod() + " " + path;
+	}
+}
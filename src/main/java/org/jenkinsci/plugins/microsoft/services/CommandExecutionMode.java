@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+/**
+ * How {@link CommandService} walks the commands of a deployment.
+ */
+public enum CommandExecutionMode {
+	/**
+	 * One command at a time, following the success and fail transitions.
+	 */
+	SEQUENTIAL("Sequential"),
+	/**
+	 * Commands run as soon as their inputs are available, see
+	 * {@link CommandGraph}.
+	 */
+	CONCURRENT("Concurrent");
+
+	private final String displayName;
+
+	private CommandExecutionMode(String displayName) {
+		this.displayName = displayName;
+	}
+
+	public String getDisplayName() {
+		return this.displayName;
+	}
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.ClassUtils;
+import org.jenkinsci.plugins.microsoft.commands.CommandValue;
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
+import org.jenkinsci.plugins.microsoft.commands.ICommand;
+import org.jenkinsci.plugins.microsoft.commands.IDataFlowCommand;
+import org.jenkinsci.plugins.microsoft.commands.TransitionInfo;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Runs the commands of a flow concurrently. The transitions of the flow
+ * become edges of a graph:
+ * <ul>
+ * <li>the fail transition of a command and the success transition of a
+ * command which also has a fail transition are branches, their targets only
+ * run when the transition is taken,</li>
+ * <li>a success transition between two {@link IDataFlowCommand}s is only an
+ * ordering and is replaced by the inputs and outputs they declare,</li>
+ * <li>any other success transition must be taken before its target runs.</li>
+ * </ul>
+ * A command runs once all of its inputs were produced by commands which
+ * completed successfully. Inputs no command of the flow produces are not
+ * waited for. Commands never started because their branch was not taken are
+ * skipped. Every command sees its own deployment state, errors are also
+ * recorded on the shared command data.
+ * <p>
+ * The graph starts at the start command of the flow: commands which cannot
+ * be reached from it ran in an earlier build or were skipped by it, they
+ * never run and the values only they produce count as produced. The
+ * checkpoint follows the path the sequential flow would take and points at
+ * the first command on it which did not complete yet.
+ */
+public class CommandGraph {
+	private final ICommandServiceData data;
+	private final Hashtable<Class, TransitionInfo> commands;
+	private final Set<Class> conditional = new HashSet<Class>();
+	private final Set<Class> activated = new HashSet<Class>();
+	private final Set<Class> started = new HashSet<Class>();
+	private final Set<Class> reachable = new HashSet<Class>();
+	private final Map<Class, DeploymentState> completed = new HashMap<Class, DeploymentState>();
+	private final EnumSet<CommandValue> produced = EnumSet.noneOf(CommandValue.class);
+	private final EnumSet<CommandValue> producible = EnumSet.noneOf(CommandValue.class);
+	private Class checkpoint;
+
+	public CommandGraph(ICommandServiceData data) {
+		this.data = data;
+		this.commands = data.getCommands();
+		this.activated.add(data.getStartCommandClass());
+		this.addReachable(data.getStartCommandClass());
+
+		for(Class commandClass : this.reachable) {
+			this.producible.addAll(getOutputs(this.commands.get(commandClass).getCommand()));
+		}
+		for(Map.Entry<Class, TransitionInfo> entry : this.commands.entrySet()) {
+			if(!this.reachable.contains(entry.getKey())) {
+				// skipped upstream, the values only it produces are already there
+				EnumSet<CommandValue> outputs = getOutputs(entry.getValue().getCommand());
+				outputs.removeAll(this.producible);
+				this.produced.addAll(outputs);
+			}
+		}
+
+		for(Class commandClass : this.reachable) {
+			TransitionInfo transition = this.commands.get(commandClass);
+
+			if(transition.getFail() != null) {
+				this.conditional.add(transition.getFail());
+				if(transition.getSuccess() != null) {
+					this.conditional.add(transition.getSuccess());
+				}
+			} else if(transition.getSuccess() != null) {
+				TransitionInfo target = this.commands.get(transition.getSuccess());
+				if(!(transition.getCommand() instanceof IDataFlowCommand) || 
+						target == null || !(target.getCommand() instanceof IDataFlowCommand)) {
+					this.conditional.add(transition.getSuccess());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return false if a command failed, commands already running when that
+	 * happens still complete but no other command is started
+	 */
+	public boolean execute(int parallelism) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, 
+				new NamingThreadFactory(new DaemonThreadFactory(), "CommandGraph"));
+		CompletionService<IBaseCommandData> completion = new ExecutorCompletionService<IBaseCommandData>(executor);
+		Map<Future<IBaseCommandData>, Class> running = new HashMap<Future<IBaseCommandData>, Class>();
+		boolean failed = false;
+		try {
+			this.checkpoint();
+			this.startReady(completion, running);
+			while(!running.isEmpty()) {
+				Future<IBaseCommandData> future = completion.take();
+				Class commandClass = running.remove(future);
+				DeploymentState state;
+				try {
+					state = future.get().getDeploymentState();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause() == null ? e : e.getCause();
+					this.data.getDataForCommand(this.commands.get(commandClass).getCommand()).logError(
+							String.format("%s failed: %s", commandClass.getSimpleName(), cause));
+					state = DeploymentState.HasError;
+				}
+
+				this.completed.put(commandClass, state);
+				TransitionInfo transition = this.commands.get(commandClass);
+				if(state == DeploymentState.Success) {
+					this.produced.addAll(getOutputs(transition.getCommand()));
+					if(transition.getSuccess() != null) {
+						this.activated.add(transition.getSuccess());
+					}
+				} else if(state == DeploymentState.UnSuccessful) {
+					if(transition.getFail() != null) {
+						this.activated.add(transition.getFail());
+					}
+				} else {
+					failed = true;
+				}
+
+				if(!failed) {
+					this.checkpoint();
+					this.startReady(completion, running);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if(failed && !Thread.currentThread().isInterrupted()) {
+			// failed rather than aborted, the next build starts over instead of resuming the failure
+			this.data.checkpoint(null);
+		}
+		return !failed;
+	}
+
+	private void addReachable(Class commandClass) {
+		if(commandClass == null || !this.commands.containsKey(commandClass) || !this.reachable.add(commandClass)) {
+			return;
+		}
+
+		TransitionInfo transition = this.commands.get(commandClass);
+		this.addReachable(transition.getSuccess());
+		this.addReachable(transition.getFail());
+	}
+
+	/**
+	 * Points the checkpoint at the first command on the path of the
+	 * sequential flow which did not complete yet, or clears it once the path
+	 * ended.
+	 */
+	private void checkpoint() {
+		Class next = this.data.getStartCommandClass();
+		while(next != null && this.commands.containsKey(next) && this.completed.containsKey(next)) {
+			TransitionInfo transition = this.commands.get(next);
+			DeploymentState state = this.completed.get(next);
+			if(state == DeploymentState.Success) {
+				next = transition.getSuccess();
+			} else if(state == DeploymentState.UnSuccessful) {
+				next = transition.getFail();
+			} else {
+				// the failure is handled once the running commands completed
+				return;
+			}
+		}
+		if(next != null && !this.commands.containsKey(next)) {
+			next = null;
+		}
+
+		if(next != this.checkpoint) {
+			this.checkpoint = next;
+			this.data.checkpoint(next);
+		}
+	}
+
+	private void startReady(CompletionService<IBaseCommandData> completion, 
+			Map<Future<IBaseCommandData>, Class> running) {
+		for(Class commandClass : this.reachable) {
+			TransitionInfo transition = this.commands.get(commandClass);
+			if(this.started.contains(commandClass) || !this.isReady(commandClass, transition.getCommand())) {
+				continue;
+			}
+
+			this.started.add(commandClass);
+			final ICommand<IBaseCommandData> command = transition.getCommand();
+			final IBaseCommandData commandData = createView(this.data.getDataForCommand(command));
+			final DeploymentTimer timer = this.data.getTimer();
+			running.put(completion.submit(new Callable<IBaseCommandData>() {
+				@Override
+				public IBaseCommandData call() throws Exception {
+					CommandService.execute(command, commandData, timer);
+					return commandData;
+				}
+			}), commandClass);
+		}
+	}
+
+	private boolean isReady(Class commandClass, ICommand<IBaseCommandData> command) {
+		if(this.conditional.contains(commandClass) && !this.activated.contains(commandClass)) {
+			return false;
+		}
+
+		for(CommandValue input : getInputs(command)) {
+			if(this.producible.contains(input) && !this.produced.contains(input)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static EnumSet<CommandValue> getInputs(ICommand command) {
+		if(command instanceof IDataFlowCommand) {
+			return ((IDataFlowCommand)command).getInputs();
+		}
+
+		return EnumSet.noneOf(CommandValue.class);
+	}
+
+	private static EnumSet<CommandValue> getOutputs(ICommand command) {
+		if(command instanceof IDataFlowCommand) {
+			return ((IDataFlowCommand)command).getOutputs();
+		}
+
+		return EnumSet.noneOf(CommandValue.class);
+	}
+
+	/**
+	 * Wraps the command data so the deployment state a command sets is its
+	 * own, everything else goes to the shared command data.
+	 */
+	@SuppressWarnings("unchecked")
+	private static IBaseCommandData createView(final IBaseCommandData commandData) {
+		List<Class<?>> interfaces = ClassUtils.getAllInterfaces(commandData.getClass());
+		return (IBaseCommandData)Proxy.newProxyInstance(
+				commandData.getClass().getClassLoader(),
+				interfaces.toArray(new Class<?>[interfaces.size()]),
+				new InvocationHandler() {
+					private volatile DeploymentState state = DeploymentState.Unknown;
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if(name.equals("getDeploymentState") && args == null) {
+							return this.state;
+						} else if(name.equals("setDeploymentState") && args != null && args.length == 1) {
+							this.state = (DeploymentState)args[0];
+							return null;
+						} else if(name.startsWith("logError")) {
+							this.state = DeploymentState.HasError;
+						}
+
+						try {
+							return method.invoke(commandData, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+}
@@ -6,14 +6,34 @@
 package org.jenkinsci.plugins.microsoft.services;
 
 import java.util.Hashtable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
 import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
 import org.jenkinsci.plugins.microsoft.commands.ICommand;
 import org.jenkinsci.plugins.microsoft.commands.TransitionInfo;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
+
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
 public class CommandService {
+	// upper bound of commands running at the same time in concurrent mode
+	public static final int MAX_CONCURRENT_COMMANDS = 4;
+
+	// interrupts commands running longer than their timeout
+	private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+			new NamingThreadFactory(new DaemonThreadFactory(), "CommandService watchdog"));
+
 	public static boolean executeCommands(ICommandServiceData commandServiceData) {
+		if(commandServiceData.getExecutionMode() == CommandExecutionMode.CONCURRENT) {
+			return executeCommandGraph(commandServiceData);
+		}
+
 		Class startCommand = commandServiceData.getStartCommandClass(); 
 		Hashtable<Class, TransitionInfo> commands = commandServiceData.getCommands();
 		if(!commands.isEmpty() && startCommand != null) {
@@ -22,7 +42,13 @@ public class CommandService {
 			while(current != null) {
 				ICommand<IBaseCommandData> command = current.getCommand();
 				IBaseCommandData commandData = commandServiceData.getDataForCommand(command);
-				command.execute(commandData);
+				if(Thread.currentThread().isInterrupted()) {
+					// aborted, the checkpoint still points at the command which did not run
+					commandData.logError("Deployment interrupted before " + command.getClass().getSimpleName());
+					return false;
+				}
+				commandServiceData.checkpoint(command.getClass());
+				execute(command, commandData, commandServiceData.getTimer());
 				TransitionInfo previous = current;
 				current = null;
 				
@@ -33,13 +59,96 @@ public class CommandService {
 						previous.getFail() != null) {
 					current = commands.get(previous.getFail());
 				} else if(commandData.getDeploymentState() == DeploymentState.HasError) {
+					if(!Thread.currentThread().isInterrupted()) {
+						// failed rather than aborted, the next build starts over instead of resuming the failure
+						commandServiceData.checkpoint(null);
+					}
 					return false;
 				}
 			}
 			
+			commandServiceData.checkpoint(null);
 			return true;
 		}
 		
 		return false;
 	}
+
+	/**
+	 * Runs a single command, recording how long it took. The command is
+	 * interrupted once it runs longer than its timeout and then fails.
+	 */
+	static void execute(ICommand<IBaseCommandData> command, IBaseCommandData commandData, DeploymentTimer timer) {
+		String name = command.getClass().getSimpleName();
+		long timeout = CommandTimeouts.getTimeoutMillis(command.getClass());
+		CommandWatch watch = null;
+		ScheduledFuture<?> watchdog = null;
+		if(timeout > 0) {
+			watch = new CommandWatch(Thread.currentThread());
+			watchdog = WATCHDOG.schedule(watch, timeout, TimeUnit.MILLISECONDS);
+		}
+
+		DeploymentTimer.Phase phase = timer.startCommand(name);
+		try {
+			command.execute(commandData);
+		} finally {
+			if(watch != null && watch.finish()) {
+				// the interrupt was ours, not an abort of the build
+				Thread.interrupted();
+				if(commandData.getDeploymentState() != DeploymentState.Success) {
+					commandData.logError(String.format("%s timed out after %s", name, Util.getTimeSpanString(timeout)));
+				}
+			}
+			if(watchdog != null) {
+				watchdog.cancel(false);
+			}
+			long elapsed = phase.end(String.valueOf(commandData.getDeploymentState()));
+			commandData.logStatus(String.format("%s finished in %s", name, Util.getTimeSpanString(elapsed)));
+		}
+	}
+
+	/**
+	 * Interrupts a command which timed out. The watchdog and the command
+	 * finishing are serialized, so the interrupt never lands after the
+	 * command finished and only an interrupt the watchdog raised is cleared.
+	 */
+	private static class CommandWatch implements Runnable {
+		private final Thread thread;
+		private boolean finished;
+		private boolean interrupted;
+
+		CommandWatch(Thread thread) {
+			this.thread = thread;
+		}
+
+		@Override
+		public synchronized void run() {
+			// an already interrupted command is being aborted, leave that interrupt alone
+			if(!this.finished && !this.thread.isInterrupted()) {
+				this.interrupted = true;
+				this.thread.interrupt();
+			}
+		}
+
+		/**
+		 * @return whether the watchdog interrupted the command
+		 */
+		synchronized boolean finish() {
+			this.finished = true;
+			return this.interrupted;
+		}
+	}
+
+	private static boolean executeCommandGraph(ICommandServiceData commandServiceData) {
+		if(commandServiceData.getCommands().isEmpty() || commandServiceData.getStartCommandClass() == null) {
+			return false;
+		}
+
+		try {
+			return new CommandGraph(commandServiceData).execute(MAX_CONCURRENT_COMMANDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
 }
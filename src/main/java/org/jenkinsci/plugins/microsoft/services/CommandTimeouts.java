@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.commands.ICommand;
+
+/**
+ * How long a command may run before it is considered stalled and
+ * interrupted. The timeouts can be changed globally by the simple name of
+ * the command, see
+ * {@link org.jenkinsci.plugins.microsoft.ACSGlobalConfiguration#getCommandTimeouts()}.
+ */
+public class CommandTimeouts {
+	public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+	private static final String COMMANDS_PACKAGE = ICommand.class.getPackage().getName();
+	// provisioning the cluster or new agents takes much longer than anything else
+	private static final Map<String, Long> DEFAULTS;
+	static {
+		Map<String, Long> defaults = new HashMap<String, Long>();
+		defaults.put("TemplateMonitorCommand", TimeUnit.MINUTES.toMillis(90));
+		defaults.put("ScaleAgentPoolCommand", TimeUnit.MINUTES.toMillis(60));
+		DEFAULTS = Collections.unmodifiableMap(defaults);
+	}
+
+	private static volatile Map<String, Long> configured = Collections.emptyMap();
+
+	/**
+	 * @return the timeout in milliseconds, 0 if the command is never timed out
+	 */
+	public static long getTimeoutMillis(Class commandClass) {
+		String name = commandClass.getSimpleName();
+		Long timeout = configured.get(name);
+		if(timeout == null) {
+			timeout = DEFAULTS.get(name);
+		}
+
+		return timeout == null ? DEFAULT_TIMEOUT_MILLIS : timeout;
+	}
+
+	/**
+	 * Parses one <code>command=minutes</code> pair per line, e.g.
+	 * <code>TemplateMonitorCommand=120</code>. 0 minutes disables the
+	 * timeout of the command.
+	 *
+	 * @return the timeouts in milliseconds by command name
+	 * @throws IllegalArgumentException naming the first invalid line
+	 */
+	public static Map<String, Long> parse(String timeouts) {
+		Map<String, Long> parsed = new LinkedHashMap<String, Long>();
+		if(timeouts == null) {
+			return parsed;
+		}
+
+		for(String line : timeouts.split("\\r?\\n")) {
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			int separator = line.indexOf('=');
+			String name = separator < 0 ? null : line.substring(0, separator).trim();
+			if(name == null || !isCommand(name)) {
+				throw new IllegalArgumentException("Unknown command in '" + line + "'");
+			}
+			try {
+				double minutes = Double.parseDouble(line.substring(separator + 1).trim());
+				if(minutes < 0) {
+					throw new IllegalArgumentException("Negative timeout in '" + line + "'");
+				}
+				parsed.put(name, (long)(minutes * TimeUnit.MINUTES.toMillis(1)));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number of minutes in '" + line + "'", e);
+			}
+		}
+
+		return parsed;
+	}
+
+	/**
+	 * Replaces the configured timeouts, commands not given use their default.
+	 */
+	public static void configure(Map<String, Long> timeouts) {
+		configured = Collections.unmodifiableMap(new HashMap<String, Long>(timeouts));
+	}
+
+	private static boolean isCommand(String name) {
+		try {
+			return ICommand.class.isAssignableFrom(Class.forName(
+					COMMANDS_PACKAGE + "." + name, false, CommandTimeouts.class.getClassLoader()));
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+
+import com.microsoft.azure.management.compute.ComputeManagementClient;
+import com.microsoft.azure.management.compute.models.Usage;
+
+/**
+ * Checks before a template is submitted whether the regional core quota of
+ * the subscription leaves room for the cluster. Without the check a cluster
+ * over the quota only fails once ARM provisions its VMs, many minutes into
+ * the deployment.
+ */
+public class CoreQuotaCheck {
+	// the size ACS provisions the masters as when the template does not set one
+	public static final String DEFAULT_MASTER_VM_SIZE = "Standard_D2";
+
+	// the regional total, the VM families have usages of their own
+	private static final String REGIONAL_CORES = "cores";
+
+	private static volatile boolean waitForQuota;
+
+	/**
+	 * @return whether deployments over the quota wait for cores to be freed
+	 * instead of failing
+	 */
+	public static boolean isWaitForQuota() {
+		return waitForQuota;
+	}
+
+	public static void setWaitForQuota(boolean wait) {
+		waitForQuota = wait;
+	}
+
+	/**
+	 * @param masterVMSize the VM size of the masters, null for
+	 * {@link #DEFAULT_MASTER_VM_SIZE}
+	 * @return the cores the masters and agents of the cluster need, null if
+	 * the agent VM size is not offered in the region
+	 * @throws AzureCloudException if the sizes could not be listed, or the
+	 * master VM size is not among them
+	 */
+	public static Integer getRequiredCores(ComputeManagementClient client, String subscriptionId, String location,
+			String masterVMSize, int masterCount, String agentVMSize, int agentCount) throws AzureCloudException {
+		Integer agentCores = VmSizeCatalog.getCores(client, subscriptionId, location, agentVMSize);
+		if(agentCores == null) {
+			return null;
+		}
+
+		if(masterVMSize == null) {
+			masterVMSize = DEFAULT_MASTER_VM_SIZE;
+		}
+		// the masters are sized by ACS, an unlisted size does not mean the cluster cannot be deployed
+		Integer masterCores = VmSizeCatalog.getCores(client, subscriptionId, location, masterVMSize);
+		if(masterCores == null) {
+			throw new AzureCloudException(String.format("Master VM size '%s' is not listed in region '%s'",
+					masterVMSize, location));
+		}
+
+		return masterCount * masterCores + agentCount * agentCores;
+	}
+
+	/**
+	 * @param reservedCores cores of deployments already under way which the
+	 * usage of the region may not include yet
+	 * @return null if the cores fit the quota of the region, otherwise why
+	 * they do not
+	 * @throws AzureCloudException if the usage could not be listed
+	 */
+	public static String check(ComputeManagementClient client, String location, int requiredCores, int reservedCores) 
+			throws AzureCloudException {
+		Usage cores = null;
+		try {
+			for(Usage usage : client.getUsageOperations().list(location).getUsages()) {
+				if(usage.getName() != null && REGIONAL_CORES.equalsIgnoreCase(usage.getName().getValue())) {
+					cores = usage;
+				}
+			}
+		} catch (Exception e) {
+			throw new AzureCloudException("Unable to get the core usage of " + location + ": " + e.getMessage(), e);
+		}
+		if(cores == null) {
+			return null;
+		}
+
+		long limit = cores.getLimit();
+		long available = limit - cores.getCurrentValue() - reservedCores;
+		if(requiredCores > available) {
+			return String.format("The cluster needs %d cores but only %d of the %d cores of region '%s' are available",
+					requiredCores, Math.max(0, available), limit, location);
+		}
+
+		return null;
+	}
+}
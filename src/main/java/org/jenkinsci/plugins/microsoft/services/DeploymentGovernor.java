@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.PollingPolicy;
+
+/**
+ * Limits how many ARM template deployments run at the same time per
+ * subscription and per region of a subscription, across all builds of the
+ * controller. Deployments over the limits wait in one queue and are
+ * admitted in arrival order as soon as both of their limits allow it, a
+ * deployment to a full region does not hold back those to other regions.
+ * A limit of 0 is no limit.
+ */
+public class DeploymentGovernor {
+	private static final DeploymentGovernor INSTANCE = new DeploymentGovernor();
+
+	private final List<Slot> waiting = new ArrayList<Slot>();
+	private final List<Slot> admitted = new ArrayList<Slot>();
+	private final Map<String, Integer> running = new HashMap<String, Integer>();
+	private int maxPerSubscription;
+	private int maxPerRegion;
+
+	public static DeploymentGovernor get() {
+		return INSTANCE;
+	}
+
+	public synchronized void setLimits(int maxPerSubscription, int maxPerRegion) {
+		this.maxPerSubscription = Math.max(0, maxPerSubscription);
+		this.maxPerRegion = Math.max(0, maxPerRegion);
+		this.admit();
+	}
+
+	/**
+	 * Waits until the deployment may start, reporting the position in the
+	 * queue on the command data when it changes and every
+	 * {@link PollingPolicy#DEPLOYMENT_SLOT} interval.
+	 *
+	 * @param cores the cores the deployment provisions, see
+	 * {@link #getAdmittedCores(String, String)}
+	 * @return the slot to {@link Slot#release()} once the deployment completed
+	 */
+	public Slot acquire(String subscriptionId, String location, int cores, IBaseCommandData context) 
+			throws InterruptedException {
+		Slot slot = new Slot(this, subscriptionId, AzureManagementServiceDelegate.normalizeLocation(location), cores);
+		int reported = -1;
+		long reportedAt = 0;
+		synchronized(this) {
+			this.waiting.add(slot);
+			this.admit();
+			try {
+				while(!slot.admitted) {
+					int position = this.waiting.indexOf(slot) + 1;
+					long now = DeploymentClock.get().currentTimeMillis();
+					if(position != reported || now - reportedAt >= PollingPolicy.DEPLOYMENT_SLOT.getIntervalMillis()) {
+						context.logStatus(String.format(
+								"Waiting for a deployment slot in region '%s' of subscription %s, position %d in the queue (%d running)",
+								slot.region, subscriptionId, position, this.count(slot.subscriptionKey)));
+						reported = position;
+						reportedAt = now;
+					}
+					PollingPolicy.DEPLOYMENT_SLOT.await(this);
+				}
+			} catch (InterruptedException e) {
+				if(!slot.admitted) {
+					this.waiting.remove(slot);
+					this.admit();
+				} else {
+					this.release(slot);
+				}
+				throw e;
+			}
+		}
+
+		if(reported > 0) {
+			context.logStatus("Deployment slot acquired");
+		}
+		return slot;
+	}
+
+	/**
+	 * @return the number of deployments waiting for a slot
+	 */
+	public synchronized int getQueueLength() {
+		return this.waiting.size();
+	}
+
+	/**
+	 * @return the number of running deployments in the subscription
+	 */
+	public synchronized int getRunning(String subscriptionId) {
+		return this.count(subscriptionKey(subscriptionId));
+	}
+
+	/**
+	 * @return the cores of the deployments admitted in the region of the
+	 * subscription and not released yet, Azure only counts them in the
+	 * usage of the region once their VMs exist
+	 */
+	public synchronized int getAdmittedCores(String subscriptionId, String location) {
+		String regionKey = subscriptionKey(subscriptionId) + "/" + AzureManagementServiceDelegate.normalizeLocation(location);
+		int cores = 0;
+		for(Slot slot : this.admitted) {
+			if(slot.regionKey.equals(regionKey)) {
+				cores += slot.cores;
+			}
+		}
+		return cores;
+	}
+
+	private synchronized void release(Slot slot) {
+		if(!slot.admitted || slot.released) {
+			return;
+		}
+
+		slot.released = true;
+		this.admitted.remove(slot);
+		this.decrement(slot.subscriptionKey);
+		this.decrement(slot.regionKey);
+		this.admit();
+	}
+
+	/**
+	 * Admits the waiting deployments in arrival order while their limits
+	 * allow it.
+	 */
+	private void admit() {
+		boolean changed = false;
+		Iterator<Slot> iterator = this.waiting.iterator();
+		while(iterator.hasNext()) {
+			Slot slot = iterator.next();
+			if(this.hasCapacity(slot.subscriptionKey, this.maxPerSubscription) &&
+					this.hasCapacity(slot.regionKey, this.maxPerRegion)) {
+				iterator.remove();
+				slot.admitted = true;
+				this.admitted.add(slot);
+				this.increment(slot.subscriptionKey);
+				this.increment(slot.regionKey);
+				changed = true;
+			}
+		}
+
+		if(changed) {
+			this.notifyAll();
+		}
+	}
+
+	private boolean hasCapacity(String key, int limit) {
+		return limit <= 0 || this.count(key) < limit;
+	}
+
+	private int count(String key) {
+		Integer count = this.running.get(key);
+		return count == null ? 0 : count;
+	}
+
+	private void increment(String key) {
+		this.running.put(key, this.count(key) + 1);
+	}
+
+	private void decrement(String key) {
+		int count = this.count(key) - 1;
+		if(count <= 0) {
+			this.running.remove(key);
+		} else {
+			this.running.put(key, count);
+		}
+	}
+
+	private static String subscriptionKey(String subscriptionId) {
+		return String.valueOf(subscriptionId).toLowerCase();
+	}
+
+	public static class Slot {
+		private final DeploymentGovernor governor;
+		private final String region;
+		private final String subscriptionKey;
+		private final String regionKey;
+		private final int cores;
+		private boolean admitted;
+		private boolean released;
+
+		private Slot(DeploymentGovernor governor, String subscriptionId, String region, int cores) {
+			this.governor = governor;
+			this.region = region;
+			this.cores = cores;
+			this.subscriptionKey = subscriptionKey(subscriptionId);
+			this.regionKey = this.subscriptionKey + "/" + region;
+		}
+
+		public int getCores() {
+			return this.cores;
+		}
+
+		/**
+		 * Frees the slot for the next waiting deployment, releasing more than
+		 * once has no effect.
+		 */
+		public void release() {
+			this.governor.release(this);
+		}
+	}
+}
@@ -7,11 +7,15 @@ package org.jenkinsci.plugins.microsoft.services;
 
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import hudson.util.Secret;
 
 public interface IARMTemplateServiceData {
 	public IAzureConnectionData getAzureConnectionData();
 	public String getResourceGroupName();
 	public String getEmbeddedTemplateName();
-	public void configureTemplate(JsonNode tmp) throws IllegalAccessException, AzureCloudException;
+	public String getTemplateStorageAccountName();
+	public Secret getTemplateStorageAccountKey();
+	public void configureParameters(ObjectNode parameters) throws IllegalAccessException, AzureCloudException;
 }
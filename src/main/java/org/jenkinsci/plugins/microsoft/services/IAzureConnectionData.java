@@ -10,4 +10,5 @@ public interface IAzureConnectionData {
 	public String getClientId();
 	public String getClientSecret();
 	public String getOauth2TokenEndpoint();
+	public String getServiceManagementURL();
 }
@@ -10,9 +10,19 @@ import java.util.Hashtable;
 import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
 import org.jenkinsci.plugins.microsoft.commands.ICommand;
 import org.jenkinsci.plugins.microsoft.commands.TransitionInfo;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
 
 public interface ICommandServiceData {
 	public Class getStartCommandClass();
 	public Hashtable<Class, TransitionInfo> getCommands(); 
 	public IBaseCommandData getDataForCommand(ICommand command);
+	public CommandExecutionMode getExecutionMode();
+	public DeploymentTimer getTimer();
+
+	/**
+	 * Called before every command of a sequential flow, in a concurrent flow
+	 * whenever the first command on that path which did not complete yet
+	 * changes, and with null once the flow completed.
+	 */
+	public void checkpoint(Class nextCommand);
 }
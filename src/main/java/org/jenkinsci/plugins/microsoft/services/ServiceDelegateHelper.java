@@ -7,6 +7,8 @@ package org.jenkinsci.plugins.microsoft.services;
 
 import static com.microsoft.windowsazure.management.configuration.ManagementConfiguration.SUBSCRIPTION_CLOUD_CREDENTIALS;
 
+import com.microsoft.azure.management.compute.ComputeManagementClient;
+import com.microsoft.azure.management.compute.ComputeManagementService;
 import com.microsoft.azure.management.network.NetworkResourceProviderClient;
 import com.microsoft.azure.management.network.NetworkResourceProviderService;
 import com.microsoft.azure.management.resources.ResourceManagementClient;
@@ -16,6 +18,7 @@ import com.microsoft.azure.management.storage.StorageManagementService;
 import com.microsoft.windowsazure.Configuration;
 import com.microsoft.windowsazure.credentials.TokenCloudCredentials;
 
+import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
 import org.jenkinsci.plugins.microsoft.services.AzureUserAgentFilter;
 import org.jenkinsci.plugins.microsoft.util.Constants;
@@ -28,6 +31,10 @@ public class ServiceDelegateHelper {
 
     private static final Logger LOGGER = Logger.getLogger(ServiceDelegateHelper.class.getName());
 
+    private static final AzureTimingFilter TIMING_FILTER = new AzureTimingFilter();
+
+    private static final AzureRecordingFilter RECORDING_FILTER = new AzureRecordingFilter();
+
     /**
      * Loads configuration object..
      *
@@ -42,7 +49,7 @@ public class ServiceDelegateHelper {
     			publisher.getClientId(),
     			publisher.getClientSecret(),
     			publisher.getOauth2TokenEndpoint(),
-    			Constants.DEFAULT_MANAGEMENT_URL); 
+    			StringUtils.defaultIfBlank(publisher.getServiceManagementURL(), Constants.DEFAULT_MANAGEMENT_URL)); 
     }
     
     /**
@@ -91,7 +98,11 @@ public class ServiceDelegateHelper {
 
         try {
             return StorageManagementService.create(config)
-            		.withRequestFilterFirst(new AzureUserAgentFilter());
+            		.withRequestFilterFirst(new AzureUserAgentFilter())
+            		.withRequestFilterLast(TIMING_FILTER)
+            		.withRequestFilterLast(RECORDING_FILTER)
+            		.withResponseFilterLast(TIMING_FILTER)
+            		.withResponseFilterLast(RECORDING_FILTER);
         } finally {
             Thread.currentThread().setContextClassLoader(thread);
         }
@@ -109,7 +120,11 @@ public class ServiceDelegateHelper {
 
         try {
             return ResourceManagementService.create(config)
-            		.withRequestFilterFirst(new AzureUserAgentFilter());
+            		.withRequestFilterFirst(new AzureUserAgentFilter())
+            		.withRequestFilterLast(TIMING_FILTER)
+            		.withRequestFilterLast(RECORDING_FILTER)
+            		.withResponseFilterLast(TIMING_FILTER)
+            		.withResponseFilterLast(RECORDING_FILTER);
         } finally {
             Thread.currentThread().setContextClassLoader(thread);
         }
@@ -122,7 +137,28 @@ public class ServiceDelegateHelper {
         
         try {
             return NetworkResourceProviderService.create(config)
-            		.withRequestFilterFirst(new AzureUserAgentFilter());
+            		.withRequestFilterFirst(new AzureUserAgentFilter())
+            		.withRequestFilterLast(TIMING_FILTER)
+            		.withRequestFilterLast(RECORDING_FILTER)
+            		.withResponseFilterLast(TIMING_FILTER)
+            		.withResponseFilterLast(RECORDING_FILTER);
+        } finally {
+            Thread.currentThread().setContextClassLoader(thread);
+        }
+    }
+    
+    // Gets ComputeManagementClient
+    public static ComputeManagementClient getComputeManagementClient(final Configuration config) {
+        ClassLoader thread = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(AzureManagementServiceDelegate.class.getClassLoader());
+        
+        try {
+            return ComputeManagementService.create(config)
+            		.withRequestFilterFirst(new AzureUserAgentFilter())
+            		.withRequestFilterLast(TIMING_FILTER)
+            		.withRequestFilterLast(RECORDING_FILTER)
+            		.withResponseFilterLast(TIMING_FILTER)
+            		.withResponseFilterLast(RECORDING_FILTER);
         } finally {
             Thread.currentThread().setContextClassLoader(thread);
         }
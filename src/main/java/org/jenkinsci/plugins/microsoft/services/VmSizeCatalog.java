@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+
+import com.microsoft.azure.management.compute.ComputeManagementClient;
+import com.microsoft.azure.management.compute.models.VirtualMachineSize;
+
+/**
+ * The number of cores of the VM sizes offered in a region. The sizes of a
+ * region rarely change, they are listed once a day per subscription and
+ * region instead of for every deployment.
+ */
+public class VmSizeCatalog {
+	private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+	private static final Map<String, Catalog> CATALOGS = new ConcurrentHashMap<String, Catalog>();
+
+	/**
+	 * @return the number of cores of the size, null if the size is not
+	 * offered in the region
+	 */
+	public static Integer getCores(ComputeManagementClient client, String subscriptionId, String location,
+			String vmSize) throws AzureCloudException {
+		String key = String.valueOf(subscriptionId).toLowerCase() + "/" +
+				AzureManagementServiceDelegate.normalizeLocation(location);
+		Catalog catalog = CATALOGS.get(key);
+		if(catalog == null || catalog.isExpired()) {
+			catalog = load(client, location);
+			CATALOGS.put(key, catalog);
+		}
+
+		return catalog.cores.get(vmSize.toLowerCase());
+	}
+
+	private static Catalog load(ComputeManagementClient client, String location) throws AzureCloudException {
+		Map<String, Integer> cores = new HashMap<String, Integer>();
+		try {
+			for(VirtualMachineSize size : client.getVirtualMachineSizesOperations().list(location).getVirtualMachineSizes()) {
+				cores.put(size.getName().toLowerCase(), size.getNumberOfCores());
+			}
+		} catch (Exception e) {
+			throw new AzureCloudException("Unable to list the VM sizes of " + location + ": " + e.getMessage(), e);
+		}
+
+		return new Catalog(cores);
+	}
+
+	private static class Catalog {
+		private final long loadedAt = DeploymentClock.get().currentTimeMillis();
+		private final Map<String, Integer> cores;
+
+		Catalog(Map<String, Integer> cores) {
+			this.cores = cores;
+		}
+
+		boolean isExpired() {
+			return DeploymentClock.get().currentTimeMillis() - this.loadedAt > TTL_MILLIS;
+		}
+	}
+}
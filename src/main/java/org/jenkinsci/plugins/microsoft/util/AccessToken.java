@@ -31,10 +31,15 @@ public class AccessToken implements Serializable {
 
     AccessToken(
             final String subscriptionId, final String serviceManagementUrl, final AuthenticationResult authres) {
+        this(subscriptionId, serviceManagementUrl, authres.getAccessToken(), authres.getExpiresOn());
+    }
+
+    AccessToken(
+            final String subscriptionId, final String serviceManagementUrl, final String token, final long expiration) {
         this.subscriptionId = subscriptionId;
         this.serviceManagementUrl = serviceManagementUrl;
-        this.token = authres.getAccessToken();
-        this.expiration = authres.getExpiresOn();
+        this.token = token;
+        this.expiration = expiration;
     }
 
     public Configuration getConfiguration() throws AzureCloudException {
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import hudson.Util;
+
+/**
+ * A parsed ARM template. The template body is constant, per deployment
+ * values are sent separately as deployment parameters, so the serialized
+ * content and its hash are computed once.
+ */
+public class ArmTemplate {
+	private final String content;
+	private final String contentHash;
+	private final String masterVMSize;
+
+	private ArmTemplate(JsonNode template) {
+		this.content = template.toString();
+		this.contentHash = sha256(this.content);
+		this.masterVMSize = findMasterVMSize(template);
+	}
+
+	public static ArmTemplate read(InputStream template) throws IOException {
+		// normalize the formatting so the hash only depends on the template itself
+		return new ArmTemplate(JsonHelper.getMapper().readTree(template));
+	}
+
+	public String getContent() {
+		return this.content;
+	}
+
+	/**
+	 * Hex encoded SHA-256 of {@link #getContent()}.
+	 */
+	public String getContentHash() {
+		return this.contentHash;
+	}
+
+	/**
+	 * @return the VM size the template gives the masters of its container
+	 * service, null if it leaves the size to the service or sets it from a
+	 * template expression
+	 */
+	public String getMasterVMSize() {
+		return this.masterVMSize;
+	}
+
+	/**
+	 * Identifies a deployment of this template with the given parameters.
+	 * Two deployments with the same fingerprint produce the same resources.
+	 */
+	public String getFingerprint(ObjectNode parameters) {
+		return sha256(this.contentHash + "\n" + parameters.toString());
+	}
+
+	private static String findMasterVMSize(JsonNode template) {
+		for(JsonNode resource : template.path("resources")) {
+			JsonNode vmSize = resource.path("properties").path("masterProfile").path("vmSize");
+			if(vmSize.isTextual() && !vmSize.asText().startsWith("[")) {
+				return vmSize.asText();
+			}
+		}
+
+		return null;
+	}
+
+	private static String sha256(String value) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Util.toHexString(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import hudson.util.AtomicFileWriter;
+import jenkins.model.Jenkins;
+
+/**
+ * The clusters deployments found in Azure, by subscription and DNS name
+ * prefix, shared by all jobs and kept across restarts. A deployment to a
+ * cluster validated within the TTL, with the same template, parameters and
+ * agent count, does not discover it again. A cluster is forgotten when a
+ * deployment to it fails.
+ */
+public class ClusterInventory {
+	public static final String FILE_NAME = "azure-acs-cluster-inventory.json";
+
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(60);
+
+	private static final Logger LOGGER = Logger.getLogger(ClusterInventory.class.getName());
+
+	private static final ClusterInventory INSTANCE = new ClusterInventory();
+
+	private static volatile long ttlMillis = DEFAULT_TTL_MILLIS;
+
+	private Map<String, Entry> entries;
+
+	public static ClusterInventory get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return how long a cluster is trusted after it was last discovered, 0
+	 * if clusters are always discovered
+	 */
+	public static long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	public static void setTtlMillis(long ttl) {
+		ttlMillis = Math.max(0, ttl);
+	}
+
+	/**
+	 * @return the cluster if it was discovered within the TTL, otherwise null
+	 */
+	public synchronized Entry find(String subscriptionId, String dnsNamePrefix) {
+		Entry entry = this.getEntries().get(getKey(subscriptionId, dnsNamePrefix));
+		if(entry == null || ttlMillis <= 0 ||
+				DeploymentClock.get().currentTimeMillis() - entry.getValidatedAt() > ttlMillis) {
+			return null;
+		}
+
+		return entry;
+	}
+
+	public synchronized void update(String subscriptionId, String dnsNamePrefix, Entry entry) {
+		this.getEntries().put(getKey(subscriptionId, dnsNamePrefix), entry);
+		this.save();
+	}
+
+	public synchronized void invalidate(String subscriptionId, String dnsNamePrefix) {
+		if(this.getEntries().remove(getKey(subscriptionId, dnsNamePrefix)) != null) {
+			this.save();
+		}
+	}
+
+	private static String getKey(String subscriptionId, String dnsNamePrefix) {
+		return String.valueOf(subscriptionId).toLowerCase() + "/" + String.valueOf(dnsNamePrefix).toLowerCase();
+	}
+
+	/**
+	 * @return the file the inventory is kept in, null outside of Jenkins
+	 */
+	private static File getFile() {
+		Jenkins jenkins = Jenkins.getInstance();
+		return jenkins == null ? null : new File(jenkins.getRootDir(), FILE_NAME);
+	}
+
+	private Map<String, Entry> getEntries() {
+		if(this.entries == null) {
+			this.entries = new HashMap<String, Entry>();
+			File file = getFile();
+			if(file != null && file.isFile()) {
+				try {
+					Iterator<Map.Entry<String, JsonNode>> fields = JsonHelper.getMapper().readTree(file).fields();
+					while(fields.hasNext()) {
+						Map.Entry<String, JsonNode> field = fields.next();
+						this.entries.put(field.getKey(), Entry.fromJson(field.getValue()));
+					}
+				} catch (IOException e) {
+					// an unreadable inventory just means discovering the clusters again
+					LOGGER.log(Level.WARNING, "Unable to read the cluster inventory", e);
+				}
+			}
+		}
+
+		return this.entries;
+	}
+
+	private void save() {
+		File file = getFile();
+		if(file == null) {
+			return;
+		}
+
+		ObjectNode node = JsonHelper.getMapper().createObjectNode();
+		for(Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+			node.set(entry.getKey(), entry.getValue().toJson());
+		}
+		try {
+			AtomicFileWriter writer = new AtomicFileWriter(file);
+			try {
+				writer.write(node.toString());
+				writer.commit();
+			} finally {
+				writer.abort();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to save the cluster inventory", e);
+		}
+	}
+
+	public static class Entry {
+		private final String clusterKey;
+		private final String mgmtFQDN;
+		private final Set<Integer> enabledPorts;
+		private final long validatedAt;
+
+		/**
+		 * @param clusterKey identifies the template, parameters and agent
+		 * count the cluster was deployed with
+		 * @param validatedAt when the cluster was last discovered in Azure
+		 */
+		public Entry(String clusterKey, String mgmtFQDN, Set<Integer> enabledPorts, long validatedAt) {
+			this.clusterKey = clusterKey;
+			this.mgmtFQDN = mgmtFQDN;
+			this.enabledPorts = Collections.unmodifiableSet(new TreeSet<Integer>(enabledPorts));
+			this.validatedAt = validatedAt;
+		}
+
+		public String getClusterKey() {
+			return this.clusterKey;
+		}
+
+		public String getMgmtFQDN() {
+			return this.mgmtFQDN;
+		}
+
+		public Set<Integer> getEnabledPorts() {
+			return this.enabledPorts;
+		}
+
+		public long getValidatedAt() {
+			return this.validatedAt;
+		}
+
+		private ObjectNode toJson() {
+			ObjectNode node = JsonHelper.getMapper().createObjectNode();
+			node.put("clusterKey", this.clusterKey);
+			node.put("mgmtFQDN", this.mgmtFQDN);
+			ArrayNode ports = node.putArray("enabledPorts");
+			for(Integer port : this.enabledPorts) {
+				ports.add(port);
+			}
+			node.put("validatedAt", this.validatedAt);
+			return node;
+		}
+
+		private static Entry fromJson(JsonNode node) {
+			Set<Integer> ports = new TreeSet<Integer>();
+			for(JsonNode port : node.path("enabledPorts")) {
+				ports.add(port.asInt());
+			}
+			return new Entry(
+					node.path("clusterKey").asText(),
+					node.path("mgmtFQDN").asText(null),
+					ports,
+					node.path("validatedAt").asLong());
+		}
+	}
+}
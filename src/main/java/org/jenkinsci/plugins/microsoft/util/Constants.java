@@ -11,6 +11,11 @@ public class Constants {
 
     public static final int DEFAULT_SSH_PORT = 22;
 
+    public static final int DCOS_MGMT_SSH_PORT = 2200;
+
+    /** Upper bound of the SSH handshake and of opening a channel, so an unreachable master fails instead of hanging */
+    public static final int SSH_CONNECT_TIMEOUT_MILLIS = 60 * 1000;
+
     public static final int DEFAULT_RDP_PORT = 3389;
 
     public static final String BLOB = "blob";
@@ -118,4 +123,17 @@ public class Constants {
 
     public static final String RESOURCE_GROUP_NAME = "jenkins";
 
+    /** Container service */
+    public static final String CONTAINER_SERVICE_RESOURCE_TYPE = "Microsoft.ContainerService/containerServices";
+
+    public static final String CONTAINER_SERVICE_API_VERSION = "2016-03-30";
+
+    public static final String CONTAINER_SERVICE_NAME_PREFIX = "containerservice-";
+
+    public static final String DEPLOYMENT_FINGERPRINT_TAG = "acsDeploymentFingerprint";
+
+    public static final String DEPLOYMENT_FINGERPRINT_PARAMETER = "deploymentFingerprint";
+
+    public static final String AGENT_COUNT_PARAMETER = "agentCount";
+
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.management.resources.ResourceManagementClient;
+import com.microsoft.azure.management.resources.models.GenericResource;
+import com.microsoft.azure.management.resources.models.GenericResourceExtended;
+import com.microsoft.azure.management.resources.models.ResourceCreateOrUpdateResult;
+import com.microsoft.azure.management.resources.models.ResourceIdentity;
+import com.microsoft.windowsazure.exception.ServiceException;
+
+public class ContainerServiceHelper {
+	public static String getContainerServiceName(String dnsNamePrefix) {
+		return Constants.CONTAINER_SERVICE_NAME_PREFIX + dnsNamePrefix;
+	}
+
+	public static ResourceIdentity getContainerServiceIdentity(String dnsNamePrefix) {
+		return new ResourceIdentity(
+				getContainerServiceName(dnsNamePrefix),
+				Constants.CONTAINER_SERVICE_RESOURCE_TYPE,
+				Constants.CONTAINER_SERVICE_API_VERSION);
+	}
+
+	public static GenericResourceExtended getContainerService(ResourceManagementClient client, String dnsNamePrefix) 
+			throws IOException, ServiceException, URISyntaxException {
+		return client.getResourcesOperations().get(dnsNamePrefix, getContainerServiceIdentity(dnsNamePrefix)).getResource();
+	}
+
+	/**
+	 * @return the container service, null if it does not exist
+	 */
+	public static GenericResourceExtended findContainerService(ResourceManagementClient client, String dnsNamePrefix) 
+			throws IOException, ServiceException, URISyntaxException {
+		try {
+			return getContainerService(client, dnsNamePrefix);
+		} catch (ServiceException e) {
+			if(e.getHttpStatusCode() == 404) {
+				return null;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the FQDN of the masters, null if the container service does
+	 * not report it
+	 */
+	public static String getMasterFQDN(GenericResourceExtended containerService) throws IOException {
+		return getProperties(containerService).path("masterProfile").path("fqdn").asText(null);
+	}
+
+	public static JsonNode getProperties(GenericResourceExtended containerService) throws IOException {
+		String properties = containerService.getProperties();
+		if(properties == null) {
+			return JsonHelper.getMapper().createObjectNode();
+		}
+
+		return JsonHelper.getMapper().readTree(properties);
+	}
+
+	public static String getProvisioningState(GenericResourceExtended containerService) throws IOException {
+		return getProperties(containerService).path("provisioningState").asText(null);
+	}
+
+	/**
+	 * @return the agent count of the first agent pool, -1 if it is unknown
+	 */
+	public static int getAgentCount(GenericResourceExtended containerService) throws IOException {
+		return getProperties(containerService).path("agentPoolProfiles").path(0).path("count").asInt(-1);
+	}
+
+	/**
+	 * Updates only the agent count of the first agent pool, every other
+	 * property of the container service is sent back unchanged.
+	 */
+	public static ResourceCreateOrUpdateResult updateAgentCount(ResourceManagementClient client, String dnsNamePrefix, 
+			GenericResourceExtended containerService, int agentCount) 
+			throws IOException, ServiceException, URISyntaxException {
+		JsonNode properties = getProperties(containerService);
+		ObjectNode updated = ObjectNode.class.cast(properties);
+		updated.remove("provisioningState");
+		ObjectNode.class.cast(updated.path("agentPoolProfiles").path(0)).put("count", agentCount);
+
+		GenericResource resource = new GenericResource();
+		resource.setLocation(containerService.getLocation());
+		resource.setTags(containerService.getTags());
+		resource.setProperties(updated.toString());
+		return client.getResourcesOperations().createOrUpdate(
+				dnsNamePrefix, getContainerServiceIdentity(dnsNamePrefix), resource);
+	}
+
+	/**
+	 * Tags the container service with the fingerprint of the deployment it
+	 * was created by, every property is sent back unchanged.
+	 */
+	public static ResourceCreateOrUpdateResult updateDeploymentFingerprint(ResourceManagementClient client, 
+			String dnsNamePrefix, GenericResourceExtended containerService, String fingerprint) 
+			throws IOException, ServiceException, URISyntaxException {
+		ObjectNode properties = ObjectNode.class.cast(getProperties(containerService));
+		properties.remove("provisioningState");
+		HashMap<String, String> tags = new HashMap<String, String>();
+		if(containerService.getTags() != null) {
+			tags.putAll(containerService.getTags());
+		}
+		tags.put(Constants.DEPLOYMENT_FINGERPRINT_TAG, fingerprint);
+
+		GenericResource resource = new GenericResource();
+		resource.setLocation(containerService.getLocation());
+		resource.setTags(tags);
+		resource.setProperties(properties.toString());
+		return client.getResourcesOperations().createOrUpdate(
+				dnsNamePrefix, getContainerServiceIdentity(dnsNamePrefix), resource);
+	}
+
+	public static String getDeploymentFingerprint(GenericResourceExtended containerService) {
+		if(containerService.getTags() == null) {
+			return null;
+		}
+
+		return containerService.getTags().get(Constants.DEPLOYMENT_FINGERPRINT_TAG);
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import hudson.model.Run;
+import hudson.util.AtomicFileWriter;
+
+/**
+ * Progress of the command flow of one target, saved in the build directory
+ * before every command. A later build, or the same build after a restart,
+ * continues from the command which did not complete. A flow which failed
+ * rather than being interrupted is not continued.
+ */
+public class DeploymentCheckpoint {
+	private final File file;
+	private final String target;
+	private final String configKey;
+	private String currentCommand;
+	private String deploymentName;
+	private String mgmtFQDN;
+	private final Set<Integer> enabledPorts = new TreeSet<Integer>();
+	private boolean completed;
+
+	public DeploymentCheckpoint(File file, String target, String configKey) {
+		this.file = file;
+		this.target = target;
+		this.configKey = configKey;
+	}
+
+	public static File getFile(Run<?, ?> build, String target) {
+		return new File(build.getRootDir(), "acs-checkpoint-" + target + ".json");
+	}
+
+	/**
+	 * Looks for an incomplete checkpoint of the same target and
+	 * configuration, first in the build itself and then in the previous build.
+	 *
+	 * @return null if there is nothing to resume
+	 */
+	public static DeploymentCheckpoint findResumable(Run<?, ?> build, String target, String configKey) {
+		Run<?, ?>[] candidates = { build, build.getPreviousBuild() };
+		for(Run<?, ?> candidate : candidates) {
+			// a previous build still running is not interrupted
+			if(candidate == null || (candidate != build && candidate.isBuilding())) {
+				continue;
+			}
+
+			File file = getFile(candidate, target);
+			if(!file.isFile()) {
+				continue;
+			}
+
+			try {
+				DeploymentCheckpoint checkpoint = load(file);
+				if(!checkpoint.isCompleted() && checkpoint.getCurrentCommand() != null && 
+						configKey.equals(checkpoint.configKey)) {
+					return checkpoint;
+				}
+			} catch (IOException e) {
+				// an unreadable checkpoint just means starting over
+			}
+			break;
+		}
+
+		return null;
+	}
+
+	public static DeploymentCheckpoint load(File file) throws IOException {
+		JsonNode node = JsonHelper.getMapper().readTree(file);
+		DeploymentCheckpoint checkpoint = new DeploymentCheckpoint(
+				file, node.path("target").asText(), node.path("configKey").asText());
+		checkpoint.currentCommand = node.path("currentCommand").asText(null);
+		checkpoint.deploymentName = node.path("deploymentName").asText(null);
+		checkpoint.mgmtFQDN = node.path("mgmtFQDN").asText(null);
+		for(JsonNode port : node.path("enabledPorts")) {
+			checkpoint.enabledPorts.add(port.asInt());
+		}
+		checkpoint.completed = node.path("completed").asBoolean();
+		return checkpoint;
+	}
+
+	public synchronized void save() throws IOException {
+		ObjectNode node = JsonHelper.getMapper().createObjectNode();
+		node.put("target", this.target);
+		node.put("configKey", this.configKey);
+		node.put("currentCommand", this.currentCommand);
+		node.put("deploymentName", this.deploymentName);
+		node.put("mgmtFQDN", this.mgmtFQDN);
+		ArrayNode ports = node.putArray("enabledPorts");
+		for(Integer port : this.enabledPorts) {
+			ports.add(port);
+		}
+		node.put("completed", this.completed);
+
+		AtomicFileWriter writer = new AtomicFileWriter(this.file);
+		try {
+			writer.write(node.toString());
+			writer.commit();
+		} finally {
+			writer.abort();
+		}
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	public String getTarget() {
+		return this.target;
+	}
+
+	/**
+	 * @return the class name of the command which was about to run or
+	 * running, null once the flow completed or failed
+	 */
+	public String getCurrentCommand() {
+		return this.currentCommand;
+	}
+
+	public synchronized void setCurrentCommand(String currentCommand) {
+		this.currentCommand = currentCommand;
+		this.completed = currentCommand == null;
+	}
+
+	public String getDeploymentName() {
+		return this.deploymentName;
+	}
+
+	public synchronized void setDeploymentName(String deploymentName) {
+		this.deploymentName = deploymentName;
+	}
+
+	public String getMgmtFQDN() {
+		return this.mgmtFQDN;
+	}
+
+	public synchronized void setMgmtFQDN(String mgmtFQDN) {
+		this.mgmtFQDN = mgmtFQDN;
+	}
+
+	public synchronized Set<Integer> getEnabledPorts() {
+		return Collections.unmodifiableSet(new TreeSet<Integer>(this.enabledPorts));
+	}
+
+	public synchronized void setEnabledPorts(Set<Integer> enabledPorts) {
+		this.enabledPorts.clear();
+		this.enabledPorts.addAll(enabledPorts);
+	}
+
+	public boolean isCompleted() {
+		return this.completed;
+	}
+}
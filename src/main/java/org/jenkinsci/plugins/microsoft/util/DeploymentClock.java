@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time as seen by deployments: the waits of the {@link PollingPolicy}s and
+ * the timings of {@link DeploymentTimer}. Benchmarks and load tests replace
+ * it to run the command flow faster than real time.
+ */
+public abstract class DeploymentClock {
+	private static final DeploymentClock SYSTEM = new DeploymentClock() {
+
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void sleep(long millis) throws InterruptedException {
+			Thread.sleep(millis);
+		}
+	};
+
+	private static volatile DeploymentClock current = SYSTEM;
+
+	public static DeploymentClock get() {
+		return current;
+	}
+
+	/**
+	 * @param clock the clock to use from now on, null for the system clock
+	 */
+	public static void set(DeploymentClock clock) {
+		current = clock == null ? SYSTEM : clock;
+	}
+
+	/**
+	 * Runs <code>timeScale</code> times faster than the system clock: waits
+	 * are shortened and elapsed times stretched by that factor.
+	 */
+	public static DeploymentClock scaled(final double timeScale) {
+		if(timeScale <= 0) {
+			throw new IllegalArgumentException("The time scale must be positive");
+		}
+
+		final long startNanos = System.nanoTime();
+		final long startMillis = System.currentTimeMillis();
+		return new DeploymentClock() {
+
+			@Override
+			public long nanoTime() {
+				return startNanos + (long)((System.nanoTime() - startNanos) * timeScale);
+			}
+
+			@Override
+			public long currentTimeMillis() {
+				return startMillis + TimeUnit.NANOSECONDS.toMillis(this.nanoTime() - startNanos);
+			}
+
+			@Override
+			public void sleep(long millis) throws InterruptedException {
+				long nanos = (long)(TimeUnit.MILLISECONDS.toNanos(millis) / timeScale);
+				TimeUnit.NANOSECONDS.sleep(nanos);
+			}
+
+			@Override
+			public void waitOn(Object monitor, long millis) throws InterruptedException {
+				long nanos = (long)(TimeUnit.MILLISECONDS.toNanos(millis) / timeScale);
+				TimeUnit.NANOSECONDS.timedWait(monitor, Math.max(1, nanos));
+			}
+		};
+	}
+
+	/**
+	 * @return a value for measuring elapsed time, like {@link System#nanoTime()}
+	 */
+	public abstract long nanoTime();
+
+	public abstract long currentTimeMillis();
+
+	public abstract void sleep(long millis) throws InterruptedException;
+
+	/**
+	 * Waits on the monitor for at most the given time, or until it is
+	 * notified. The caller holds the monitor.
+	 */
+	public void waitOn(Object monitor, long millis) throws InterruptedException {
+		monitor.wait(Math.max(1, millis));
+	}
+}
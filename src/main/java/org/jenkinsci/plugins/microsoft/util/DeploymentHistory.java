@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import hudson.Util;
+import hudson.model.Job;
+import hudson.util.AtomicFileWriter;
+
+/**
+ * Durations of the deployments of a job, one JSON line per deployment
+ * appended to a file in the job directory. Once the file outgrows
+ * {@link #MAX_BYTES} the older half of the entries is dropped.
+ */
+public class DeploymentHistory {
+	public static final String FILE_NAME = "acs-deployment-history.jsonl";
+
+	private static final long MAX_BYTES = 512 * 1024;
+
+	// number of previous successful deployments the baseline is computed from
+	private static final int BASELINE_BUILDS = 10;
+
+	private static final int MIN_BASELINE_BUILDS = 3;
+
+	// steps shorter than this vary too much to be compared
+	private static final long MIN_PHASE_MILLIS = 5000;
+
+	private static final Object LOCK = new Object();
+
+	private final File file;
+
+	public DeploymentHistory(File file) {
+		this.file = file;
+	}
+
+	public static DeploymentHistory forJob(Job<?, ?> job) {
+		return new DeploymentHistory(new File(job.getRootDir(), FILE_NAME));
+	}
+
+	public boolean exists() {
+		return this.file.isFile();
+	}
+
+	public long lastModified() {
+		return this.file.lastModified();
+	}
+
+	/**
+	 * @return all entries, oldest first
+	 */
+	public List<Entry> read() throws IOException {
+		synchronized(LOCK) {
+			List<Entry> entries = new ArrayList<Entry>();
+			if(!this.file.isFile()) {
+				return entries;
+			}
+
+			try(BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new FileInputStream(this.file), StandardCharsets.UTF_8))) {
+				String line;
+				while((line = reader.readLine()) != null) {
+					if(!line.isEmpty()) {
+						entries.add(Entry.fromJson(JsonHelper.getMapper().readTree(line)));
+					}
+				}
+			}
+			return entries;
+		}
+	}
+
+	public void append(Entry entry) throws IOException {
+		synchronized(LOCK) {
+			try(Writer writer = new OutputStreamWriter(new FileOutputStream(this.file, true), StandardCharsets.UTF_8)) {
+				writer.write(entry.toJson().toString());
+				writer.write('\n');
+			}
+
+			if(this.file.length() > MAX_BYTES) {
+				this.compact();
+			}
+		}
+	}
+
+	private void compact() throws IOException {
+		List<Entry> entries = this.read();
+		AtomicFileWriter writer = new AtomicFileWriter(this.file);
+		try {
+			for(Entry entry : entries.subList(entries.size() / 2, entries.size())) {
+				writer.write(entry.toJson().toString());
+				writer.write('\n');
+			}
+			writer.commit();
+		} finally {
+			writer.abort();
+		}
+	}
+
+	/**
+	 * Compares the entry with the median of the previous successful
+	 * deployments to the same target which took the same path, i.e. ran the
+	 * same commands. A deployment to an existing cluster is thus not
+	 * compared with one provisioning it, nor a resumed one with a full one.
+	 *
+	 * @return a description of the total and of every step which took more
+	 * than <code>factor</code> times their baseline
+	 */
+	public List<String> findRegressions(Entry entry, double factor) throws IOException {
+		List<Entry> baseline = new ArrayList<Entry>();
+		List<Entry> entries = this.read();
+		for(int i = entries.size() - 1; i >= 0 && baseline.size() < BASELINE_BUILDS; i--) {
+			Entry previous = entries.get(i);
+			if(previous.isSuccess() && previous.getTarget().equals(entry.getTarget()) && 
+					previous.getBuildNumber() != entry.getBuildNumber() &&
+					previous.getPath().equals(entry.getPath())) {
+				baseline.add(previous);
+			}
+		}
+
+		List<String> regressions = new ArrayList<String>();
+		if(baseline.size() < MIN_BASELINE_BUILDS) {
+			return regressions;
+		}
+
+		List<Long> totals = new ArrayList<Long>();
+		for(Entry previous : baseline) {
+			totals.add(previous.getTotalMillis());
+		}
+		addRegression(regressions, "Total", entry.getTotalMillis(), median(totals), factor);
+
+		for(Map.Entry<String, Long> phase : entry.getPhases().entrySet()) {
+			List<Long> durations = new ArrayList<Long>();
+			for(Entry previous : baseline) {
+				Long duration = previous.getPhases().get(phase.getKey());
+				if(duration != null) {
+					durations.add(duration);
+				}
+			}
+
+			if(durations.size() >= MIN_BASELINE_BUILDS) {
+				addRegression(regressions, phase.getKey(), phase.getValue(), median(durations), factor);
+			}
+		}
+
+		return regressions;
+	}
+
+	private static void addRegression(List<String> regressions, String name, long millis, long baselineMillis, 
+			double factor) {
+		if(Math.max(millis, baselineMillis) >= MIN_PHASE_MILLIS && millis > baselineMillis * factor) {
+			regressions.add(String.format("%s took %s, %.1f times the baseline of %s", 
+					name, 
+					Util.getTimeSpanString(millis), 
+					baselineMillis == 0 ? Double.POSITIVE_INFINITY : (double)millis / baselineMillis,
+					Util.getTimeSpanString(baselineMillis)));
+		}
+	}
+
+	private static long median(List<Long> values) {
+		Collections.sort(values);
+		return values.get(values.size() / 2);
+	}
+
+	public static class Entry {
+		private final int buildNumber;
+		private final long timestamp;
+		private final String target;
+		private final boolean success;
+		private final long totalMillis;
+		private final int armCalls;
+		private final int armRetries;
+		private final Map<String, Long> phases;
+
+		public Entry(int buildNumber, long timestamp, String target, boolean success, long totalMillis, 
+				int armCalls, int armRetries, Map<String, Long> phases) {
+			this.buildNumber = buildNumber;
+			this.timestamp = timestamp;
+			this.target = target;
+			this.success = success;
+			this.totalMillis = totalMillis;
+			this.armCalls = armCalls;
+			this.armRetries = armRetries;
+			this.phases = phases;
+		}
+
+		public static Entry fromReport(int buildNumber, long timestamp, DeploymentReport report, boolean success) {
+			Map<String, Long> phases = new LinkedHashMap<String, Long>();
+			for(PhaseTiming phase : report.getPhases()) {
+				if(!phase.isSubCall()) {
+					phases.put(phase.getName(), phase.getDurationMillis());
+				}
+			}
+
+			return new Entry(buildNumber, timestamp, report.getTarget(), success, report.getTotalMillis(), 
+					report.getArmCalls(), report.getArmRetries(), phases);
+		}
+
+		public int getBuildNumber() {
+			return this.buildNumber;
+		}
+
+		public long getTimestamp() {
+			return this.timestamp;
+		}
+
+		public String getTarget() {
+			return this.target;
+		}
+
+		public boolean isSuccess() {
+			return this.success;
+		}
+
+		public long getTotalMillis() {
+			return this.totalMillis;
+		}
+
+		public int getArmCalls() {
+			return this.armCalls;
+		}
+
+		public int getArmRetries() {
+			return this.armRetries;
+		}
+
+		/**
+		 * @return the duration of every command by command name
+		 */
+		public Map<String, Long> getPhases() {
+			return this.phases;
+		}
+
+		/**
+		 * @return the names of the commands which ran
+		 */
+		public Set<String> getPath() {
+			return new TreeSet<String>(this.phases.keySet());
+		}
+
+		ObjectNode toJson() {
+			ObjectNode node = JsonHelper.getMapper().createObjectNode();
+			node.put("build", this.buildNumber);
+			node.put("timestamp", this.timestamp);
+			node.put("target", this.target);
+			node.put("success", this.success);
+			node.put("total", this.totalMillis);
+			node.put("armCalls", this.armCalls);
+			node.put("armRetries", this.armRetries);
+			ObjectNode phases = node.putObject("phases");
+			for(Map.Entry<String, Long> phase : this.phases.entrySet()) {
+				phases.put(phase.getKey(), phase.getValue());
+			}
+			return node;
+		}
+
+		static Entry fromJson(JsonNode node) {
+			Map<String, Long> phases = new LinkedHashMap<String, Long>();
+			Iterator<Map.Entry<String, JsonNode>> fields = node.path("phases").fields();
+			while(fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				phases.put(field.getKey(), field.getValue().asLong());
+			}
+
+			return new Entry(
+					node.path("build").asInt(),
+					node.path("timestamp").asLong(),
+					node.path("target").asText(),
+					node.path("success").asBoolean(),
+					node.path("total").asLong(),
+					node.path("armCalls").asInt(),
+					node.path("armRetries").asInt(),
+					phases);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.Util;
+
+/**
+ * The timings of the deployment to one cluster. Commands are ordered by
+ * their start, each followed by the calls it made.
+ */
+@ExportedBean
+public class DeploymentReport {
+	private static final Comparator<PhaseTiming> BY_OFFSET = new Comparator<PhaseTiming>() {
+		@Override
+		public int compare(PhaseTiming left, PhaseTiming right) {
+			return Long.compare(left.getOffsetMillis(), right.getOffsetMillis());
+		}
+	};
+
+	private final String target;
+	private final long totalMillis;
+	private final List<PhaseTiming> phases;
+	private List<String> regressions;
+
+	public DeploymentReport(String target, List<PhaseTiming> timings) {
+		this.target = target;
+
+		List<PhaseTiming> commands = new ArrayList<PhaseTiming>();
+		List<PhaseTiming> subCalls = new ArrayList<PhaseTiming>();
+		long total = 0;
+		for(PhaseTiming timing : timings) {
+			(timing.isSubCall() ? subCalls : commands).add(timing);
+			total = Math.max(total, timing.getOffsetMillis() + timing.getDurationMillis());
+		}
+		Collections.sort(commands, BY_OFFSET);
+		Collections.sort(subCalls, BY_OFFSET);
+
+		this.phases = new ArrayList<PhaseTiming>(timings.size());
+		for(PhaseTiming command : commands) {
+			this.phases.add(command);
+			for(PhaseTiming subCall : subCalls) {
+				if(command.getName().equals(subCall.getParent())) {
+					this.phases.add(subCall);
+				}
+			}
+		}
+		this.totalMillis = total;
+	}
+
+	@Exported
+	public String getTarget() {
+		return this.target;
+	}
+
+	@Exported
+	public long getTotalMillis() {
+		return this.totalMillis;
+	}
+
+	@Exported(inline = true)
+	public List<PhaseTiming> getPhases() {
+		return Collections.unmodifiableList(this.phases);
+	}
+
+	/**
+	 * @return the number of ARM calls made by the commands
+	 */
+	@Exported
+	public int getArmCalls() {
+		int count = 0;
+		for(PhaseTiming phase : this.phases) {
+			if(isArmCall(phase)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the ARM calls which were throttled or failed transiently and
+	 * thus had to be retried
+	 */
+	@Exported
+	public int getArmRetries() {
+		int count = 0;
+		for(PhaseTiming phase : this.phases) {
+			if(isArmCall(phase) && phase.getResult() != null && 
+					(phase.getResult().equals("429") || phase.getResult().startsWith("5"))) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isArmCall(PhaseTiming phase) {
+		return phase.isSubCall() && phase.getName().startsWith("ARM ");
+	}
+
+	/**
+	 * @return the steps which took much longer than in previous builds
+	 */
+	@Exported
+	public List<String> getRegressions() {
+		if(this.regressions == null) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(this.regressions);
+	}
+
+	public void setRegressions(List<String> regressions) {
+		this.regressions = new ArrayList<String>(regressions);
+	}
+
+	public String getTotalDuration() {
+		return Util.getTimeSpanString(this.totalMillis);
+	}
+
+	public String formatMillis(long millis) {
+		return Util.getTimeSpanString(millis);
+	}
+
+	public double getOffsetPercent(PhaseTiming phase) {
+		return this.totalMillis == 0 ? 0 : 100.0 * phase.getOffsetMillis() / this.totalMillis;
+	}
+
+	public double getWidthPercent(PhaseTiming phase) {
+		return this.totalMillis == 0 ? 0 : 100.0 * phase.getDurationMillis() / this.totalMillis;
+	}
+}
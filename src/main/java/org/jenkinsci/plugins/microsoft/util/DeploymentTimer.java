@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the timings of the commands of one deployment and of the ARM
+ * and SSH calls they make. Calls are attributed to the command running on
+ * the calling thread, calls made outside of a command are not recorded.
+ */
+public class DeploymentTimer {
+	// keeps long polling loops from growing the build record without bounds
+	private static final int MAX_SUB_CALLS = 500;
+
+	private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<Phase>();
+
+	private final long startNanos = DeploymentClock.get().nanoTime();
+	private final List<PhaseTiming> phases = new ArrayList<PhaseTiming>();
+	private int subCalls;
+	private volatile ExchangeRecording recording;
+
+	public Phase startCommand(String name) {
+		Phase phase = new Phase(this, name, null);
+		CURRENT.set(phase);
+		return phase;
+	}
+
+	/**
+	 * Starts timing a call made by the command running on this thread.
+	 */
+	public static Phase startSubCall(String name) {
+		Phase command = CURRENT.get();
+		if(command == null) {
+			return new Phase(null, name, null);
+		}
+
+		return new Phase(command.timer, name, command.name);
+	}
+
+	/**
+	 * Records a call whose start was taken elsewhere, e.g. in a request filter.
+	 */
+	public static void recordSubCall(String name, long startNanos, String result) {
+		Phase command = CURRENT.get();
+		if(command != null) {
+			command.timer.add(name, command.name, startNanos, result);
+		}
+	}
+
+	/**
+	 * @return where the calls of this deployment are recorded, null if they
+	 * are not
+	 */
+	public ExchangeRecording getRecording() {
+		return this.recording;
+	}
+
+	public void setRecording(ExchangeRecording recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * @return the recording of the deployment whose command runs on this
+	 * thread, null if there is none
+	 */
+	public static ExchangeRecording currentRecording() {
+		Phase command = CURRENT.get();
+		return command == null || command.timer == null ? null : command.timer.recording;
+	}
+
+	public synchronized List<PhaseTiming> getPhases() {
+		return new ArrayList<PhaseTiming>(this.phases);
+	}
+
+	private synchronized void add(String name, String parent, long startNanos, String result) {
+		if(parent != null && ++this.subCalls > MAX_SUB_CALLS) {
+			return;
+		}
+
+		long now = DeploymentClock.get().nanoTime();
+		this.phases.add(new PhaseTiming(
+				name,
+				parent,
+				TimeUnit.NANOSECONDS.toMillis(startNanos - this.startNanos),
+				TimeUnit.NANOSECONDS.toMillis(now - startNanos),
+				result));
+	}
+
+	public static class Phase implements AutoCloseable {
+		private final DeploymentTimer timer;
+		private final String name;
+		private final String parent;
+		private final long startNanos = DeploymentClock.get().nanoTime();
+		private boolean ended;
+
+		private Phase(DeploymentTimer timer, String name, String parent) {
+			this.timer = timer;
+			this.name = name;
+			this.parent = parent;
+		}
+
+		/**
+		 * @return the elapsed milliseconds
+		 */
+		public long end(String result) {
+			if(!this.ended) {
+				this.ended = true;
+				if(this.timer != null) {
+					this.timer.add(this.name, this.parent, this.startNanos, result);
+				}
+				if(this.parent == null && CURRENT.get() == this) {
+					CURRENT.remove();
+				}
+			}
+
+			return TimeUnit.NANOSECONDS.toMillis(DeploymentClock.get().nanoTime() - this.startNanos);
+		}
+
+		@Override
+		public void close() {
+			this.end(null);
+		}
+	}
+}
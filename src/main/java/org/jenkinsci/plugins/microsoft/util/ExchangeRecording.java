@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import hudson.util.AtomicFileWriter;
+
+/**
+ * The ARM and SSH exchanges of one deployment with their timing, secrets
+ * redacted, so a slow deployment can be replayed against the load test
+ * stand-ins. Exchanges are attributed to the deployment through the
+ * {@link DeploymentTimer} of the command making them.
+ */
+public class ExchangeRecording {
+	public static final String ARM = "ARM";
+	public static final String SSH = "SSH";
+	public static final String REDACTED = "REDACTED";
+	public static final String SUBSCRIPTION_ID = "00000000-0000-0000-0000-000000000000";
+
+	private static final Pattern SUBSCRIPTION = Pattern.compile("/subscriptions/[^/?]+", Pattern.CASE_INSENSITIVE);
+	private static final Pattern DEPLOYED_FILE = Pattern.compile("acsDep\\d+\\.json");
+	private static final Pattern DEPLOYMENT_NAME = Pattern.compile("(/deployments/)[^/?]+", Pattern.CASE_INSENSITIVE);
+	// the query parameters of a shared access signature, e.g. in templateLink.uri
+	private static final Pattern SAS_PARAMETER = Pattern.compile(
+			"([?&](?:sig|se|st|sp|sv|sr|ss|srt|spr|si|sip|skoid|sktid|skt|ske|sks|skv|sdd)=)[^&#\"\\s]*",
+			Pattern.CASE_INSENSITIVE);
+	// compared in lower case, values of "env" are redacted as a whole since
+	// marathon apps commonly pass credentials that way
+	private static final Set<String> SECRET_FIELDS = new HashSet<String>(Arrays.asList(
+			"password", "adminpassword", "secret", "clientsecret", "keydata", "access_token", "refresh_token",
+			"token", "storageaccountkey", "key1", "key2", "env"));
+	// everything else, e.g. Authorization, is dropped
+	private static final Set<String> RECORDED_HEADERS = new HashSet<String>(Arrays.asList(
+			"content-type", "location", "azure-asyncoperation", "retry-after", "marathon-deployment-id"));
+
+	private final long startNanos = DeploymentClock.get().nanoTime();
+	private final String target;
+	private final List<Exchange> exchanges = new ArrayList<Exchange>();
+
+	public ExchangeRecording(String target) {
+		this.target = target;
+	}
+
+	public String getTarget() {
+		return this.target;
+	}
+
+	public synchronized List<Exchange> getExchanges() {
+		return new ArrayList<Exchange>(this.exchanges);
+	}
+
+	/**
+	 * Records an exchange which started at <code>startNanos</code> and just
+	 * completed. Headers not needed for a replay are dropped.
+	 */
+	public void add(String kind, String method, String path, long startNanos, int status,
+			Map<String, String> headers, String body) {
+		long now = DeploymentClock.get().nanoTime();
+		Map<String, String> recordedHeaders = new LinkedHashMap<String, String>();
+		if(headers != null) {
+			for(Map.Entry<String, String> header : headers.entrySet()) {
+				if(header.getKey() != null && RECORDED_HEADERS.contains(header.getKey().toLowerCase())) {
+					recordedHeaders.put(header.getKey(), redactPath(header.getValue()));
+				}
+			}
+		}
+
+		Exchange exchange = new Exchange(
+				kind,
+				method,
+				redactPath(path),
+				TimeUnit.NANOSECONDS.toMillis(startNanos - this.startNanos),
+				TimeUnit.NANOSECONDS.toMillis(now - startNanos),
+				status,
+				recordedHeaders,
+				redactBody(body));
+		synchronized(this) {
+			this.exchanges.add(exchange);
+		}
+	}
+
+	/**
+	 * @return the path or URL with the subscription and the parameters of
+	 * shared access signatures replaced, anywhere in the text
+	 */
+	public static String redactPath(String path) {
+		if(path == null) {
+			return null;
+		}
+
+		String redacted = SUBSCRIPTION.matcher(path).replaceAll("/subscriptions/" + SUBSCRIPTION_ID);
+		return SAS_PARAMETER.matcher(redacted).replaceAll("$1" + REDACTED);
+	}
+
+	/**
+	 * @return the body with the values of secret looking fields replaced, or
+	 * the body itself if it is not JSON
+	 */
+	public static String redactBody(String body) {
+		if(body == null || body.isEmpty()) {
+			return body;
+		}
+
+		JsonNode node;
+		try {
+			node = JsonHelper.getMapper().readTree(body);
+		} catch (IOException e) {
+			return redactPath(body);
+		}
+		if(node == null) {
+			return redactPath(body);
+		}
+
+		redact(node);
+		return redactPath(node.toString());
+	}
+
+	private static void redact(JsonNode node) {
+		if(node.isObject()) {
+			ObjectNode object = (ObjectNode)node;
+			Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+			List<String> secrets = new ArrayList<String>();
+			while(fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				if(SECRET_FIELDS.contains(field.getKey().toLowerCase())) {
+					secrets.add(field.getKey());
+				} else {
+					redact(field.getValue());
+				}
+			}
+			for(String secret : secrets) {
+				object.put(secret, REDACTED);
+			}
+		} else if(node.isArray()) {
+			for(JsonNode item : node) {
+				redact(item);
+			}
+		}
+	}
+
+	/**
+	 * Exchanges are replayed by matching this key: the generated deployment
+	 * names and remote file names differ from run to run.
+	 */
+	public static String getReplayKey(String kind, String method, String path) {
+		String key = path == null ? "" : redactPath(path);
+		int query = key.indexOf('?');
+		if(query >= 0 && kind.equals(ARM)) {
+			key = key.substring(0, query);
+		}
+		key = DEPLOYMENT_NAME.matcher(key).replaceAll("$1*");
+		key = DEPLOYED_FILE.matcher(key).replaceAll("acsDep*.json");
+		return kind + " " + method + " " + key.toLowerCase();
+	}
+
+	public static ExchangeRecording load(File file) throws IOException {
+		JsonNode node = JsonHelper.getMapper().readTree(file);
+		ExchangeRecording recording = new ExchangeRecording(node.path("target").asText());
+		for(JsonNode item : node.path("exchanges")) {
+			Map<String, String> headers = new LinkedHashMap<String, String>();
+			Iterator<Map.Entry<String, JsonNode>> fields = item.path("headers").fields();
+			while(fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				headers.put(field.getKey(), field.getValue().asText());
+			}
+			recording.exchanges.add(new Exchange(
+					item.path("kind").asText(),
+					item.path("method").asText(),
+					item.path("path").asText(),
+					item.path("offsetMillis").asLong(),
+					item.path("durationMillis").asLong(),
+					item.path("status").asInt(),
+					headers,
+					item.path("body").asText(null)));
+		}
+
+		return recording;
+	}
+
+	public void save(File file) throws IOException {
+		ObjectNode node = JsonHelper.getMapper().createObjectNode();
+		node.put("target", this.target);
+		ArrayNode items = node.putArray("exchanges");
+		for(Exchange exchange : this.getExchanges()) {
+			ObjectNode item = items.addObject();
+			item.put("kind", exchange.getKind());
+			item.put("method", exchange.getMethod());
+			item.put("path", exchange.getPath());
+			item.put("offsetMillis", exchange.getOffsetMillis());
+			item.put("durationMillis", exchange.getDurationMillis());
+			item.put("status", exchange.getStatus());
+			ObjectNode headers = item.putObject("headers");
+			for(Map.Entry<String, String> header : exchange.getHeaders().entrySet()) {
+				headers.put(header.getKey(), header.getValue());
+			}
+			item.put("body", exchange.getBody());
+		}
+
+		AtomicFileWriter writer = new AtomicFileWriter(file);
+		try {
+			writer.write(node.toString());
+			writer.commit();
+		} finally {
+			writer.abort();
+		}
+	}
+
+	public static class Exchange {
+		private final String kind;
+		private final String method;
+		private final String path;
+		private final long offsetMillis;
+		private final long durationMillis;
+		private final int status;
+		private final Map<String, String> headers;
+		private final String body;
+
+		public Exchange(String kind, String method, String path, long offsetMillis, long durationMillis,
+				int status, Map<String, String> headers, String body) {
+			this.kind = kind;
+			this.method = method;
+			this.path = path;
+			this.offsetMillis = offsetMillis;
+			this.durationMillis = durationMillis;
+			this.status = status;
+			this.headers = Collections.unmodifiableMap(headers);
+			this.body = body;
+		}
+
+		/**
+		 * @return {@link ExchangeRecording#ARM} or {@link ExchangeRecording#SSH}
+		 */
+		public String getKind() {
+			return this.kind;
+		}
+
+		/**
+		 * @return the HTTP method, or exec and put for SSH
+		 */
+		public String getMethod() {
+			return this.method;
+		}
+
+		/**
+		 * @return the request URI, or the command or remote file for SSH
+		 */
+		public String getPath() {
+			return this.path;
+		}
+
+		public String getReplayKey() {
+			return ExchangeRecording.getReplayKey(this.kind, this.method, this.path);
+		}
+
+		/**
+		 * @return the start relative to the start of the recording
+		 */
+		public long getOffsetMillis() {
+			return this.offsetMillis;
+		}
+
+		public long getDurationMillis() {
+			return this.durationMillis;
+		}
+
+		/**
+		 * @return the HTTP status, or the exit status for SSH
+		 */
+		public int getStatus() {
+			return this.status;
+		}
+
+		public Map<String, String> getHeaders() {
+			return this.headers;
+		}
+
+		/**
+		 * @return the response body, or the output of the command or the
+		 * uploaded content for SSH
+		 */
+		public String getBody() {
+			return this.body;
+		}
+	}
+}
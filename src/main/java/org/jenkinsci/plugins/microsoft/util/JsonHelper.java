@@ -11,34 +11,146 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class JsonHelper {
-    public static ArrayList<Integer> getHostPorts(String marathonConfigFile) 
+    // ObjectMapper is thread-safe once configured, share a single instance for all JSON work
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    public static ObjectMapper getMapper() {
+    	return MAPPER;
+    }
+
+    public static ArrayList<Integer> getHostPorts(String marathonConfigFile)
+    		throws FileNotFoundException, IOException {
+    	return scan(marathonConfigFile).getHostPorts();
+    }
+
+    public static String getId(String marathonConfigFile)
+    		throws FileNotFoundException, IOException {
+    	return scan(marathonConfigFile).getId();
+    }
+
+    /**
+     * Extracts app ids, port mappings and port definitions from a marathon app
+     * or group definition in a single forward pass. Subtrees which cannot hold
+     * any of those values are skipped without being materialized.
+     */
+    public static MarathonConfigSummary scan(String marathonConfigFile)
     		throws FileNotFoundException, IOException {
-    	ArrayList<Integer> hostPorts = new ArrayList<Integer>();
     	try(InputStream marathonFile = new java.io.FileInputStream(marathonConfigFile)) {
-    		final ObjectMapper mapper = new ObjectMapper();
-    		JsonNode parentNode = mapper.readTree(marathonFile);
-    		JsonNode node = parentNode.get("container").get("docker").get("portMappings");
-    		Iterator<JsonNode> elements = node.elements();
-    		while(elements.hasNext()) {
-    			JsonNode element = elements.next();
-    			hostPorts.add((Integer)element.get("hostPort").asInt());
+    		return scan(marathonFile);
+    	}
+    }
+
+    public static MarathonConfigSummary scan(InputStream marathonConfig) throws IOException {
+    	try(JsonParser parser = FACTORY.createParser(marathonConfig)) {
+    		return scan(parser);
+    	}
+    }
+
+    /**
+     * Same as {@link #scan(InputStream)} for a marathon definition which is
+     * already in memory, e.g. one rendered by {@link MarathonConfigTemplate}.
+     */
+    public static MarathonConfigSummary scanContent(String marathonConfig) throws IOException {
+    	try(JsonParser parser = FACTORY.createParser(marathonConfig)) {
+    		return scan(parser);
+    	}
+    }
+
+    private static MarathonConfigSummary scan(JsonParser parser) throws IOException {
+    	MarathonConfigSummary summary = new MarathonConfigSummary();
+    	JsonToken token;
+    	while((token = parser.nextToken()) != null) {
+    		if(token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+    			String name = parser.getCurrentName();
+    			if(name != null && !MarathonConfigSummary.isRelevantContainer(name)) {
+    				parser.skipChildren();
+    			}
+    		} else if(token.isScalarValue()) {
+    			collect(parser, summary);
     		}
     	}
-    	
-    	return hostPorts;
+
+    	return summary;
     }
 
-    public static String getId(String marathonConfigFile) 
+    /**
+     * Reads the whole marathon config file into a tree. Only use this when
+     * the complete document is needed, {@link #scan(String)} is much cheaper
+     * for extracting ids and ports.
+     */
+    public static JsonNode readTree(String marathonConfigFile)
     		throws FileNotFoundException, IOException {
     	try(InputStream marathonFile = new java.io.FileInputStream(marathonConfigFile)) {
-    		final ObjectMapper mapper = new ObjectMapper();
-    		JsonNode parentNode = mapper.readTree(marathonFile);
-    		return parentNode.get("id").toString();
+    		return MAPPER.readTree(marathonFile);
     	}
     }
+
+    public static ArrayList<Integer> getHostPorts(JsonNode parentNode) {
+    	ArrayList<Integer> hostPorts = new ArrayList<Integer>();
+    	JsonNode node = parentNode.get("container").get("docker").get("portMappings");
+    	Iterator<JsonNode> elements = node.elements();
+    	while(elements.hasNext()) {
+    		JsonNode element = elements.next();
+    		hostPorts.add((Integer)element.get("hostPort").asInt());
+    	}
+
+    	return hostPorts;
+    }
+
+    public static String getId(JsonNode parentNode) {
+    	return parentNode.get("id").asText();
+    }
+
+    private static void collect(JsonParser parser, MarathonConfigSummary summary) throws IOException {
+    	String name = parser.getCurrentName();
+    	if(name == null) {
+    		return;
+    	}
+
+    	// context of the object holding the current field
+    	JsonStreamContext object = parser.getParsingContext();
+    	JsonStreamContext parent = object.getParent();
+    	if(name.equals("id") && parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+    		if(parent == null || parent.inRoot()) {
+    			summary.setRootId(parser.getText());
+    		} else if(isElementOf(parent, "apps")) {
+    			summary.addAppId(parser.getText());
+    		}
+    	} else if(name.equals("hostPort") && isElementOf(parent, "portMappings")) {
+    		summary.addHostPort(getPort(parser, summary));
+    	} else if(name.equals("port") && isElementOf(parent, "portDefinitions")) {
+    		summary.addPortDefinition(getPort(parser, summary));
+    	}
+    }
+
+    private static int getPort(JsonParser parser, MarathonConfigSummary summary) throws IOException {
+    	if(parser.getCurrentToken() != JsonToken.VALUE_NUMBER_INT) {
+    		ArrayList<String> appIds = summary.getAppIds();
+    		String app = appIds.isEmpty() ? "the marathon definition" : "app '" + appIds.get(appIds.size() - 1) + "'";
+    		throw new JsonParseException(String.format("'%s' of %s must be an integer, found %s", 
+    				parser.getCurrentName(), app, parser.getText()), parser.getCurrentLocation());
+    	}
+
+    	return parser.getIntValue();
+    }
+
+    private static boolean isElementOf(JsonStreamContext array, String fieldName) {
+    	if(array == null || !array.inArray()) {
+    		return false;
+    	}
+
+    	JsonStreamContext owner = array.getParent();
+    	return owner != null && fieldName.equals(owner.getCurrentName());
+    }
 }
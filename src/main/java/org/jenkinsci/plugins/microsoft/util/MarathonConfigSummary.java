@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.util.ArrayList;
+
+/**
+ * Values extracted from a marathon app or group definition by
+ * {@link JsonHelper#scan(java.io.InputStream)}.
+ */
+public class MarathonConfigSummary {
+	private static final String[] RELEVANT_CONTAINERS = {
+		"apps", "groups", "container", "docker", "portMappings", "portDefinitions"
+	};
+
+	private String rootId;
+	private final ArrayList<String> appIds = new ArrayList<String>();
+	private final ArrayList<Integer> hostPorts = new ArrayList<Integer>();
+	private final ArrayList<Integer> portDefinitions = new ArrayList<Integer>();
+
+	static boolean isRelevantContainer(String fieldName) {
+		for(String name : RELEVANT_CONTAINERS) {
+			if(name.equals(fieldName)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	void setRootId(String rootId) {
+		this.rootId = rootId;
+	}
+
+	void addAppId(String appId) {
+		this.appIds.add(appId);
+	}
+
+	void addHostPort(int hostPort) {
+		this.hostPorts.add(hostPort);
+	}
+
+	void addPortDefinition(int port) {
+		this.portDefinitions.add(port);
+	}
+
+	/**
+	 * Id of the top level app or group.
+	 */
+	public String getId() {
+		return this.rootId;
+	}
+
+	/**
+	 * Ids of the apps in the definition. For a single app definition this is
+	 * the top level id.
+	 */
+	public ArrayList<String> getAppIds() {
+		if(this.appIds.isEmpty() && this.rootId != null) {
+			ArrayList<String> ids = new ArrayList<String>();
+			ids.add(this.rootId);
+			return ids;
+		}
+
+		return this.appIds;
+	}
+
+	public ArrayList<Integer> getHostPorts() {
+		return this.hostPorts;
+	}
+
+	public ArrayList<Integer> getPortDefinitions() {
+		return this.portDefinitions;
+	}
+}
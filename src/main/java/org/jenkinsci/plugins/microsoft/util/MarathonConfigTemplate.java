@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * A marathon config file with its <code>${VAR}</code> placeholders located
+ * once. Rendering walks the precompiled segments and writes into a single
+ * buffer. Placeholders without a value are left untouched, values of
+ * placeholders inside a JSON string are escaped.
+ */
+public class MarathonConfigTemplate {
+	// one per config file of the jobs deploying at the same time is plenty
+	private static final int CACHE_SIZE = 64;
+
+	private static final Map<String, MarathonConfigTemplate> CACHE = Collections.synchronizedMap(
+			new LinkedHashMap<String, MarathonConfigTemplate>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, MarathonConfigTemplate> eldest) {
+					return this.size() > CACHE_SIZE;
+				}
+			});
+
+	private final long lastModified;
+	private final long length;
+	// literals.length == names.length + 1
+	private final String[] literals;
+	private final String[] names;
+	// whether the placeholder is inside a JSON string literal
+	private final boolean[] quoted;
+	private final int literalLength;
+
+	private MarathonConfigTemplate(long lastModified, long length, String[] literals, String[] names, boolean[] quoted) {
+		this.lastModified = lastModified;
+		this.length = length;
+		this.literals = literals;
+		this.names = names;
+		this.quoted = quoted;
+		int size = 0;
+		for(String literal : literals) {
+			size += literal.length();
+		}
+		this.literalLength = size;
+	}
+
+	/**
+	 * Returns the compiled template for the file, compiling it only when the
+	 * file changed since the last call.
+	 */
+	public static MarathonConfigTemplate forFile(String marathonConfigFile) throws IOException {
+		File file = new File(marathonConfigFile);
+		if(!file.isFile()) {
+			throw new FileNotFoundException("Marathon config file not found: " + marathonConfigFile);
+		}
+
+		String key = file.getCanonicalPath();
+		MarathonConfigTemplate cached = CACHE.get(key);
+		if(cached != null && cached.lastModified == file.lastModified() && cached.length == file.length()) {
+			return cached;
+		}
+
+		MarathonConfigTemplate template = compile(
+				FileUtils.readFileToString(file, StandardCharsets.UTF_8.name()),
+				file.lastModified(),
+				file.length());
+		CACHE.put(key, template);
+		return template;
+	}
+
+	public static MarathonConfigTemplate compile(String content) {
+		return compile(content, 0, content.length());
+	}
+
+	private static MarathonConfigTemplate compile(String content, long lastModified, long length) {
+		ArrayList<String> literals = new ArrayList<String>();
+		ArrayList<String> names = new ArrayList<String>();
+		int start = 0;
+		int index = content.indexOf("${");
+		while(index >= 0) {
+			int end = content.indexOf('}', index + 2);
+			if(end < 0) {
+				break;
+			}
+
+			String name = content.substring(index + 2, end);
+			if(isVariableName(name)) {
+				literals.add(content.substring(start, index));
+				names.add(name);
+				start = end + 1;
+				index = content.indexOf("${", start);
+			} else {
+				index = content.indexOf("${", index + 2);
+			}
+		}
+		literals.add(content.substring(start));
+
+		// the placeholders contain no quotes, the literals alone tell whether one is inside a string
+		boolean[] quoted = new boolean[names.size()];
+		boolean inString = false;
+		for(int i = 0; i < names.size(); i++) {
+			inString = isInString(literals.get(i), inString);
+			quoted[i] = inString;
+		}
+
+		return new MarathonConfigTemplate(
+				lastModified,
+				length,
+				literals.toArray(new String[literals.size()]),
+				names.toArray(new String[names.size()]),
+				quoted);
+	}
+
+	/**
+	 * @return whether the end of the text is inside a JSON string, given
+	 * whether its start is
+	 */
+	private static boolean isInString(String text, boolean inString) {
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(inString && c == '\\') {
+				i++;
+			} else if(c == '"') {
+				inString = !inString;
+			}
+		}
+
+		return inString;
+	}
+
+	private static boolean isVariableName(String name) {
+		if(name.isEmpty() || !(Character.isLetter(name.charAt(0)) || name.charAt(0) == '_')) {
+			return false;
+		}
+
+		for(int i = 1; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if(!(Character.isLetterOrDigit(c) || c == '_' || c == '.')) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public boolean hasPlaceholders() {
+		return this.names.length > 0;
+	}
+
+	public String render(Map<String, String> variables) {
+		if(this.names.length == 0) {
+			return this.literals[0];
+		}
+
+		StringBuilder builder = new StringBuilder(this.literalLength + this.names.length * 16);
+		for(int i = 0; i < this.names.length; i++) {
+			builder.append(this.literals[i]);
+			String value = variables == null ? null : variables.get(this.names[i]);
+			if(value == null) {
+				builder.append("${").append(this.names[i]).append('}');
+			} else if(this.quoted[i]) {
+				builder.append(JsonStringEncoder.getInstance().quoteAsString(value));
+			} else {
+				builder.append(value);
+			}
+		}
+		builder.append(this.literals[this.names.length]);
+
+		return builder.toString();
+	}
+}
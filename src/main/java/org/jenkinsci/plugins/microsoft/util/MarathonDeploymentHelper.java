@@ -8,6 +8,7 @@ package org.jenkinsci.plugins.microsoft.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Calendar;
+import java.util.regex.Pattern;
 
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
 
@@ -23,6 +24,10 @@ import hudson.model.BuildListener;
 import jenkins.model.Jenkins;
 
 public class MarathonDeploymentHelper {
+	// path segments of lower case letters, digits, dots and dashes, the app ids marathon accepts
+	private static final Pattern APP_ID = Pattern.compile(
+			"/?[a-z0-9]([a-z0-9.-]*[a-z0-9])?(/[a-z0-9]([a-z0-9.-]*[a-z0-9])?)*");
+
     public static void update(String host, String marathonConfigFile, String sshFile, 
     		String filePassword, String linuxAdminUsername, BuildListener listener) 
     		throws IOException, InterruptedException, AzureCloudException {    	
@@ -32,7 +37,7 @@ public class MarathonDeploymentHelper {
 			java.util.Properties config = new java.util.Properties(); 
 			config.put("StrictHostKeyChecking", "no");
 			jsch.addIdentity(sshFile, filePassword);
-			session=jsch.getSession(linuxAdminUsername, host, 2200);
+			session=jsch.getSession(linuxAdminUsername, host, Constants.DCOS_MGMT_SSH_PORT);
 			session.setConfig(config);
 			session.connect();
 			
@@ -40,6 +45,7 @@ public class MarathonDeploymentHelper {
 			channel = (ChannelSftp)session.openChannel("sftp");
 			channel.connect();
 			String appId = JsonHelper.getId(marathonConfigFile);
+			String deleteCommand = MarathonDeploymentHelper.getDeleteAppCommand(appId);
 			String deployedFilename = "acsDep" + Calendar.getInstance().getTimeInMillis() + ".json";
 	        listener.getLogger().println("Copying marathon file to remote file: " + deployedFilename);
 			try {
@@ -52,7 +58,7 @@ public class MarathonDeploymentHelper {
 			
 			//ignore if app does not exist
 	        listener.getLogger().println(String.format("Deleting application with appId: '%s' if it exists", appId));
-			MarathonDeploymentHelper.executeCommand(session, "curl -X DELETE localhost:8080/v2/apps/" + appId, listener);
+			MarathonDeploymentHelper.executeCommand(session, deleteCommand, listener);
 	        listener.getLogger().println(String.format("Deploying file '%s' with appId to marathon.", deployedFilename, appId));
 			MarathonDeploymentHelper.executeCommand(session, "curl -i -H 'Content-Type: application/json' -d@" + deployedFilename + " localhost:8080/v2/apps", listener);
 		} catch (JSchException e) {
@@ -64,6 +70,20 @@ public class MarathonDeploymentHelper {
 		}   
     }
     
+    /**
+     * @return the shell command deleting the marathon app. The id must be one
+     * marathon accepts and is single-quoted, so it can never be read as shell
+     * syntax.
+     */
+    public static String getDeleteAppCommand(String appId) throws AzureCloudException {
+    	if(appId == null || !APP_ID.matcher(appId).matches()) {
+    		throw new AzureCloudException(String.format(
+    				"Invalid marathon app id '%s', only lower case letters, digits, dots, dashes and slashes are allowed", appId));
+    	}
+
+    	return "curl -X DELETE 'localhost:8080/v2/apps/" + appId + "'";
+    }
+
     private static void executeCommand(Session session, String command, BuildListener listener) 
     		throws IOException, JSchException, AzureCloudException {
     	ChannelExec execChnl = (ChannelExec)session.openChannel("exec");
@@ -79,10 +99,15 @@ public class MarathonDeploymentHelper {
 		        		throw new AzureCloudException("Error building or running docker image. Process exected with status: " + 
 		        				execChnl.getExitStatus());
 		        	}
-		          System.out.println("exit-status: "+execChnl.getExitStatus());
+		          listener.getLogger().println("exit-status: " + execChnl.getExitStatus());
 		          break;
 		        }
-		        try{Thread.sleep(1000);}catch(Exception ee){}
+		        try{
+		        	PollingPolicy.SSH_EXEC.await();
+		        }catch(InterruptedException ee){
+		        	Thread.currentThread().interrupt();
+		        	throw new AzureCloudException("Interrupted while running: " + command);
+		        }
 		     }
 			 }finally {
 				 execChnl.disconnect();
@@ -7,6 +7,7 @@ package org.jenkinsci.plugins.microsoft.util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
 import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
@@ -49,24 +50,12 @@ public class NetworkResourceProviderHelper {
 		for(NetworkSecurityGroup group : groups) {
 			if(group.getName().startsWith("dcos-agent-public-nsg-")) {
 				String groupName = group.getName();
-				boolean secGroupFound = false;
-				int maxPrio = Integer.MIN_VALUE;
-				for(SecurityRule sRule : group.getSecurityRules()) {
-					int prio = sRule.getPriority();
-					if(prio > maxPrio) {
-						maxPrio = prio;
-					}
-					
-					if(sRule.getDestinationPortRange().equals(hostPort + "")) {
-						context.logStatus("Security rule for port " + hostPort + " found.");
-						secGroupFound = true;
-						break;
-					}
-				}
-				
-				if(!secGroupFound) {
+				if(findSecurityRule(group.getSecurityRules(), hostPort) != null) {
+					context.logStatus("Security rule for port " + hostPort + " found.");
+				} else {
 					context.logStatus("Security rule for port " + hostPort + " not found.");
-										maxPrio = maxPrio + 10;
+					int maxPrio = getMaxPriority(group.getSecurityRules());
+					maxPrio = maxPrio + 10;
 					if(maxPrio > 4086) {
 						context.logError("Exceeded max priority for inbound security rules.");
 						throw new AzureCloudException("Exceeded max priority for inbound security rules.");
@@ -110,7 +99,7 @@ public class NetworkResourceProviderHelper {
 								}	
 								
 								if(!done) {
-									Thread.sleep(20000);
+									PollingPolicy.NETWORK_RULE.await();
 								}
 								
 								break;
@@ -142,15 +131,9 @@ public class NetworkResourceProviderHelper {
 					throw new AzureCloudException("Balancer configuration from template not matching previous configuration.");
 				}
 				
-				boolean ruleFound = false;
-				for(LoadBalancingRule rule : balancer.getLoadBalancingRules()) {
-					if(rule.getFrontendPort() == hostPort) {
-						context.logStatus("Load balancer rule for port " + hostPort + " found.");
-						ruleFound = true;
-					}
-				}
-				
-				if(!ruleFound) {
+				if(findLoadBalancingRule(balancer.getLoadBalancingRules(), hostPort) != null) {
+					context.logStatus("Load balancer rule for port " + hostPort + " found.");
+				} else {
 					context.logStatus("Load balancer rule for port " + hostPort + " not found.");
 					LoadBalancingRule rule = new LoadBalancingRule();
 					String ruleName = "JLBRuleHttp" + hostPort;
@@ -188,7 +171,7 @@ public class NetworkResourceProviderHelper {
 								}	
 								
 								if(!done) {
-									Thread.sleep(20000);
+									PollingPolicy.NETWORK_RULE.await();
 								}
 								
 								break;
@@ -201,4 +184,42 @@ public class NetworkResourceProviderHelper {
 		
 		return true;
     }    
+
+    /**
+     * @return the rule opening the host port, null if there is none
+     */
+    public static SecurityRule findSecurityRule(List<SecurityRule> rules, int hostPort) {
+    	String portRange = String.valueOf(hostPort);
+    	for(SecurityRule rule : rules) {
+    		if(portRange.equals(rule.getDestinationPortRange())) {
+    			return rule;
+    		}
+    	}
+
+    	return null;
+    }
+
+    public static int getMaxPriority(List<SecurityRule> rules) {
+    	int maxPrio = Integer.MIN_VALUE;
+    	for(SecurityRule rule : rules) {
+    		if(rule.getPriority() > maxPrio) {
+    			maxPrio = rule.getPriority();
+    		}
+    	}
+
+    	return maxPrio;
+    }
+
+    /**
+     * @return the rule balancing the host port, null if there is none
+     */
+    public static LoadBalancingRule findLoadBalancingRule(List<LoadBalancingRule> rules, int hostPort) {
+    	for(LoadBalancingRule rule : rules) {
+    		if(rule.getFrontendPort() == hostPort) {
+    			return rule;
+    		}
+    	}
+
+    	return null;
+    }
 }
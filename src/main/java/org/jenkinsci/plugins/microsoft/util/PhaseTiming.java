@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * One command, or one ARM or SSH call made by a command, of a deployment.
+ */
+@ExportedBean
+public class PhaseTiming {
+	private final String name;
+	private final String parent;
+	private final long offsetMillis;
+	private final long durationMillis;
+	private final String result;
+
+	public PhaseTiming(String name, String parent, long offsetMillis, long durationMillis, String result) {
+		this.name = name;
+		this.parent = parent;
+		this.offsetMillis = offsetMillis;
+		this.durationMillis = durationMillis;
+		this.result = result;
+	}
+
+	@Exported
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return the command which made the call, null for a command
+	 */
+	@Exported
+	public String getParent() {
+		return this.parent;
+	}
+
+	public boolean isSubCall() {
+		return this.parent != null;
+	}
+
+	/**
+	 * @return milliseconds between the start of the deployment and the start of the phase
+	 */
+	@Exported
+	public long getOffsetMillis() {
+		return this.offsetMillis;
+	}
+
+	@Exported
+	public long getDurationMillis() {
+		return this.durationMillis;
+	}
+
+	@Exported
+	public String getResult() {
+		return this.result;
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The waits between two polls of something the plugin waits for. The
+ * intervals can be changed globally by name, see
+ * {@link org.jenkinsci.plugins.microsoft.ACSGlobalConfiguration#getPollingIntervals()}.
+ */
+public enum PollingPolicy {
+	// operations of the ARM template deployment
+	DEPLOYMENT("deployment", TimeUnit.SECONDS.toMillis(30)),
+	// security and load balancer rules showing up after an update
+	NETWORK_RULE("networkRule", TimeUnit.SECONDS.toMillis(20)),
+	// provisioning state of the container service while scaling
+	AGENT_POOL("agentPool", TimeUnit.SECONDS.toMillis(30)),
+	// completion of a command run on the master over SSH
+	SSH_EXEC("sshExec", TimeUnit.SECONDS.toMillis(1)),
+	// provisioning of a warm pool cluster interrupted by a restart
+	WARM_POOL_RECOVERY("warmPoolRecovery", TimeUnit.SECONDS.toMillis(30)),
+	// cores being freed in a region whose quota a cluster does not fit
+	CORE_QUOTA("coreQuota", TimeUnit.SECONDS.toMillis(60)),
+	// reporting the queue position while waiting for a deployment slot
+	DEPLOYMENT_SLOT("deploymentSlot", TimeUnit.SECONDS.toMillis(60));
+
+	// shorter intervals turn the waits into busy loops hammering ARM and the masters
+	public static final double MIN_INTERVAL_SECONDS = 1;
+
+	private final String policyName;
+	private final long defaultIntervalMillis;
+	private volatile long intervalMillis;
+
+	private PollingPolicy(String policyName, long defaultIntervalMillis) {
+		this.policyName = policyName;
+		this.defaultIntervalMillis = defaultIntervalMillis;
+		this.intervalMillis = defaultIntervalMillis;
+	}
+
+	/**
+	 * @return the name the interval is configured by
+	 */
+	public String getPolicyName() {
+		return this.policyName;
+	}
+
+	public long getDefaultIntervalMillis() {
+		return this.defaultIntervalMillis;
+	}
+
+	public long getIntervalMillis() {
+		return this.intervalMillis;
+	}
+
+	/**
+	 * Waits for one interval on the current {@link DeploymentClock}.
+	 */
+	public void await() throws InterruptedException {
+		DeploymentClock.get().sleep(this.intervalMillis);
+	}
+
+	/**
+	 * Waits for one interval on the current {@link DeploymentClock}, or
+	 * until the monitor is notified. The caller holds the monitor.
+	 */
+	public void await(Object monitor) throws InterruptedException {
+		DeploymentClock.get().waitOn(monitor, this.intervalMillis);
+	}
+
+	public static PollingPolicy forName(String policyName) {
+		for(PollingPolicy policy : values()) {
+			if(policy.policyName.equalsIgnoreCase(policyName)) {
+				return policy;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Parses one <code>name=seconds</code> pair per line, e.g.
+	 * <code>deployment=10</code>. Intervals are at least
+	 * {@link #MIN_INTERVAL_SECONDS}.
+	 *
+	 * @return the intervals in milliseconds by policy
+	 * @throws IllegalArgumentException naming the first invalid line
+	 */
+	public static Map<PollingPolicy, Long> parse(String intervals) {
+		Map<PollingPolicy, Long> parsed = new LinkedHashMap<PollingPolicy, Long>();
+		if(intervals == null) {
+			return parsed;
+		}
+
+		for(String line : intervals.split("\\r?\\n")) {
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			int separator = line.indexOf('=');
+			PollingPolicy policy = separator < 0 ? null : forName(line.substring(0, separator).trim());
+			if(policy == null) {
+				throw new IllegalArgumentException("Unknown polling policy in '" + line + "'");
+			}
+			try {
+				double seconds = Double.parseDouble(line.substring(separator + 1).trim());
+				if(!(seconds >= MIN_INTERVAL_SECONDS) || Double.isInfinite(seconds)) {
+					throw new IllegalArgumentException(String.format(
+							"Interval in '%s' must be at least %.0f second", line, MIN_INTERVAL_SECONDS));
+				}
+				parsed.put(policy, (long)(seconds * 1000));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number of seconds in '" + line + "'", e);
+			}
+		}
+
+		return parsed;
+	}
+
+	/**
+	 * Sets the intervals of the given policies and resets all others to
+	 * their default.
+	 */
+	public static void configure(Map<PollingPolicy, Long> intervals) {
+		for(PollingPolicy policy : values()) {
+			Long interval = intervals.get(policy);
+			policy.intervalMillis = interval == null ? policy.defaultIntervalMillis : interval;
+		}
+	}
+}
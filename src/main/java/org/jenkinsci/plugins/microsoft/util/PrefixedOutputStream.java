@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import hudson.console.LineTransformationOutputStream;
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
+
+/**
+ * Prefixes every line written to the underlying stream. Lines are written
+ * whole, so several prefixed streams can share one build log.
+ */
+public class PrefixedOutputStream extends LineTransformationOutputStream {
+	private final OutputStream out;
+	private final byte[] prefix;
+
+	public PrefixedOutputStream(OutputStream out, String prefix) {
+		this.out = out;
+		this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Creates a listener writing to the log of the given listener with every
+	 * line prefixed.
+	 */
+	public static BuildListener createListener(BuildListener listener, String prefix) {
+		Charset charset = StandardCharsets.UTF_8;
+		try {
+			return new StreamBuildListener(
+					new PrintStream(new PrefixedOutputStream(listener.getLogger(), prefix), true, charset.name()),
+					charset);
+		} catch (java.io.UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	protected void eol(byte[] b, int len) throws IOException {
+		synchronized (this.out) {
+			this.out.write(this.prefix);
+			this.out.write(b, 0, len);
+			this.out.flush();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		this.out.flush();
+	}
+}
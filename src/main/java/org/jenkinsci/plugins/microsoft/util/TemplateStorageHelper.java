@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.InvalidKeyException;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.StorageCredentialsAccountAndKey;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.CloudBlobContainer;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import com.microsoft.azure.storage.blob.SharedAccessBlobPermissions;
+import com.microsoft.azure.storage.blob.SharedAccessBlobPolicy;
+
+/**
+ * Uploads ARM templates to blob storage under their content hash, so a
+ * template is uploaded once and deployments only send a templateLink.
+ */
+public class TemplateStorageHelper {
+    private static final Logger LOGGER = Logger.getLogger(TemplateStorageHelper.class.getName());
+
+    public static final String TEMPLATE_CONTAINER_NAME = "acs-templates";
+
+    private static final int SAS_EXPIRY_HOURS = 2;
+
+    // account/blob names known to exist, saves the exists() round trip
+    private static final Set<String> UPLOADED = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Returns a read-only SAS URI for the template, uploading it first if no
+     * blob with the same content hash exists yet.
+     */
+    public static URI getTemplateLink(String storageAccountName, String storageAccountKey, ArmTemplate template)
+    		throws AzureCloudException {
+    	try {
+    		CloudStorageAccount account = new CloudStorageAccount(
+    				new StorageCredentialsAccountAndKey(storageAccountName, storageAccountKey), true);
+    		CloudBlobContainer container = account.createCloudBlobClient().getContainerReference(TEMPLATE_CONTAINER_NAME);
+    		String blobName = template.getContentHash() + ".json";
+    		CloudBlockBlob blob = container.getBlockBlobReference(blobName);
+
+    		String key = storageAccountName + "/" + blobName;
+    		if(!UPLOADED.contains(key)) {
+    			container.createIfNotExists();
+    			if(!blob.exists()) {
+    				LOGGER.log(Level.INFO, "Uploading template {0} to storage account {1}",
+    						new Object[] { blobName, storageAccountName });
+    				blob.getProperties().setContentType("application/json");
+    				blob.uploadText(template.getContent());
+    			}
+    			UPLOADED.add(key);
+    		}
+
+    		SharedAccessBlobPolicy policy = new SharedAccessBlobPolicy();
+    		policy.setPermissions(EnumSet.of(SharedAccessBlobPermissions.READ));
+    		Calendar expiry = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    		expiry.add(Calendar.HOUR, SAS_EXPIRY_HOURS);
+    		policy.setSharedAccessExpiryTime(expiry.getTime());
+    		return new URI(blob.getUri().toString() + "?" + blob.generateSharedAccessSignature(policy, null));
+    	} catch (URISyntaxException | StorageException | InvalidKeyException | IOException e) {
+    		throw new AzureCloudException("Error uploading template to storage account " + storageAccountName, e);
+    	}
+    }
+}
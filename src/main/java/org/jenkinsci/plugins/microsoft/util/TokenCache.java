@@ -15,8 +15,10 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.util.Date;
 import java.util.concurrent.ExecutionException;
@@ -35,6 +37,12 @@ public class TokenCache {
 
     private static final Logger LOGGER = Logger.getLogger(TokenCache.class.getName());
 
+    /**
+     * System property with the directory of the token file, for tools which
+     * use the plugin outside of Jenkins. The Jenkins home by default.
+     */
+    public static final String HOME_PROPERTY = TokenCache.class.getName() + ".home";
+
     private static final Object tsafe = new Object();
 
     private static TokenCache cache = null;
@@ -95,7 +103,10 @@ public class TokenCache {
             this.serviceManagementURL = serviceManagementURL;
         }
 
-        final String home = Jenkins.getInstance().root.getPath();
+        String home = System.getProperty(HOME_PROPERTY);
+        if (home == null) {
+            home = Jenkins.getInstance().root.getPath();
+        }
 
         LOGGER.log(Level.INFO, "Cache home \"{0}\"", home);
 
@@ -128,14 +139,12 @@ public class TokenCache {
     private AccessToken readTokenFile() {
         LOGGER.log(Level.INFO, "Read token from file {0}", path);
         FileInputStream is = null;
-        ObjectInputStream objectIS = null;
 
         try {
             final File fileCache = new File(path);
             if (fileCache.exists()) {
                 is = new FileInputStream(fileCache);
-                objectIS = new ObjectInputStream(is);
-                return AccessToken.class.cast(objectIS.readObject());
+                return readToken(is);
             } else {
                 LOGGER.log(Level.INFO, "File {0} does not exist", path);
             }
@@ -147,24 +156,32 @@ public class TokenCache {
             LOGGER.log(Level.SEVERE, "Error deserializing object", e);
         } finally {
             IOUtils.closeQuietly(is);
-            IOUtils.closeQuietly(objectIS);
         }
 
         return null;
     }
 
+    static AccessToken readToken(final InputStream is) throws IOException, ClassNotFoundException {
+        final ObjectInputStream objectIS = new ObjectInputStream(is);
+        return AccessToken.class.cast(objectIS.readObject());
+    }
+
+    static void writeToken(final AccessToken token, final OutputStream os) throws IOException {
+        final ObjectOutputStream oos = new ObjectOutputStream(os);
+        oos.writeObject(token);
+        oos.flush();
+    }
+
     private boolean writeTokenFile(final AccessToken token) {
         LOGGER.log(Level.INFO, "Write token into file {0}", path);
 
         FileOutputStream fout = null;
-        ObjectOutputStream oos = null;
 
         boolean res = false;
 
         try {
             fout = new FileOutputStream(path, false);
-            oos = new ObjectOutputStream(fout);
-            oos.writeObject(token);
+            writeToken(token, fout);
             res = true;
         } catch (FileNotFoundException e) {
             LOGGER.log(Level.SEVERE, "Cache file not found", e);
@@ -172,7 +189,6 @@ public class TokenCache {
             LOGGER.log(Level.SEVERE, "Error serializing object", e);
         } finally {
             IOUtils.closeQuietly(fout);
-            IOUtils.closeQuietly(oos);
         }
 
         return res;
@@ -200,6 +216,7 @@ public class TokenCache {
         } catch (MalformedURLException e) {
             throw new AzureCloudException("Authentication error", e);
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new AzureCloudException("Authentication interrupted", e);
         } catch (ExecutionException e) {
             throw new AzureCloudException("Authentication execution failed", e);
@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.jenkinsci.plugins.microsoft.services.AzureManagementServiceDelegate;
+import org.jenkinsci.plugins.microsoft.services.IARMTemplateServiceData;
+import org.jenkinsci.plugins.microsoft.services.IAzureConnectionData;
+import org.jenkinsci.plugins.microsoft.util.Constants;
+import org.jenkinsci.plugins.microsoft.util.JsonHelper;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.management.resources.ResourceManagementClient;
+import com.microsoft.azure.management.resources.ResourceOperations;
+import com.microsoft.azure.management.resources.models.GenericResource;
+import com.microsoft.azure.management.resources.models.GenericResourceExtended;
+import com.microsoft.azure.management.resources.models.ResourceCreateOrUpdateResult;
+
+import hudson.util.Secret;
+
+public class ValidateContainerCommandTest {
+	private final Context context = new Context();
+
+	@Test
+	public void skipsTheDeploymentOfAnUnchangedContainerService() throws Exception {
+		GenericResourceExtended containerService = containerService("Succeeded", this.context.getFingerprint());
+
+		assertTrue(new ValidateContainerCommand().isDeploymentCurrent(this.context, containerService));
+		assertTrue(this.context.updates.isEmpty());
+	}
+
+	@Test
+	public void deploysAChangedContainerService() throws Exception {
+		GenericResourceExtended containerService = containerService("Succeeded", this.context.getFingerprint());
+		this.context.agentVMSize = "Standard_D3";
+
+		assertFalse(new ValidateContainerCommand().isDeploymentCurrent(this.context, containerService));
+	}
+
+	@Test
+	public void deploysAContainerServiceWhichDidNotSucceed() throws Exception {
+		GenericResourceExtended containerService = containerService("Failed", this.context.getFingerprint());
+
+		assertFalse(new ValidateContainerCommand().isDeploymentCurrent(this.context, containerService));
+	}
+
+	@Test
+	public void adoptsAContainerServiceWithoutFingerprint() throws Exception {
+		// deployed by a version of the plugin which did not tag the container service
+		GenericResourceExtended containerService = containerService("Succeeded", null);
+
+		assertTrue(new ValidateContainerCommand().isDeploymentCurrent(this.context, containerService));
+
+		assertEquals(1, this.context.updates.size());
+		GenericResource update = this.context.updates.get(0);
+		assertEquals(this.context.getFingerprint(), update.getTags().get(Constants.DEPLOYMENT_FINGERPRINT_TAG));
+		assertEquals("jenkins", update.getTags().get("owner"));
+		assertEquals("westus", update.getLocation());
+		assertNull(JsonHelper.getMapper().readTree(update.getProperties()).get("provisioningState"));
+		assertEquals(3, JsonHelper.getMapper().readTree(update.getProperties()).path("masterProfile").path("count").asInt());
+	}
+
+	@Test
+	public void doesNotAdoptAContainerServiceWithoutFingerprintWhichDidNotSucceed() throws Exception {
+		GenericResourceExtended containerService = containerService("Failed", null);
+
+		assertFalse(new ValidateContainerCommand().isDeploymentCurrent(this.context, containerService));
+		assertTrue(this.context.updates.isEmpty());
+	}
+
+	private static GenericResourceExtended containerService(String provisioningState, String fingerprint) {
+		GenericResourceExtended containerService = new GenericResourceExtended();
+		containerService.setLocation("westus");
+		containerService.setProperties(String.format(
+				"{\"provisioningState\": \"%s\", \"masterProfile\": {\"count\": 3}}", provisioningState));
+		HashMap<String, String> tags = new HashMap<String, String>();
+		tags.put("owner", "jenkins");
+		if(fingerprint != null) {
+			tags.put(Constants.DEPLOYMENT_FINGERPRINT_TAG, fingerprint);
+		}
+		containerService.setTags(tags);
+		return containerService;
+	}
+
+	private static class Context implements ValidateContainerCommand.IValidateContainerCommandData, IARMTemplateServiceData {
+		private final List<GenericResource> updates = new ArrayList<GenericResource>();
+		private String agentVMSize = "Standard_A1";
+		private DeploymentState state = DeploymentState.Unknown;
+
+		String getFingerprint() throws Exception {
+			return AzureManagementServiceDelegate.getDeploymentFingerprint(this);
+		}
+
+		@Override
+		public String getDnsNamePrefix() {
+			return "acs";
+		}
+
+		@Override
+		public String getLocation() {
+			return "West US";
+		}
+
+		@Override
+		public ResourceManagementClient getResourceClient() {
+			final ResourceOperations operations = (ResourceOperations)Proxy.newProxyInstance(
+					ResourceOperations.class.getClassLoader(), new Class<?>[] { ResourceOperations.class }, 
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							if(!method.getName().equals("createOrUpdate")) {
+								throw new UnsupportedOperationException(method.getName());
+							}
+							updates.add((GenericResource)args[2]);
+							return new ResourceCreateOrUpdateResult();
+						}
+					});
+			return (ResourceManagementClient)Proxy.newProxyInstance(
+					ResourceManagementClient.class.getClassLoader(), new Class<?>[] { ResourceManagementClient.class }, 
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							if(!method.getName().equals("getResourcesOperations")) {
+								throw new UnsupportedOperationException(method.getName());
+							}
+							return operations;
+						}
+					});
+		}
+
+		@Override
+		public IARMTemplateServiceData getArmTemplateServiceData() {
+			return this;
+		}
+
+		@Override
+		public void cancelTemplateValidation() {
+		}
+
+		@Override
+		public IAzureConnectionData getAzureConnectionData() {
+			return null;
+		}
+
+		@Override
+		public String getResourceGroupName() {
+			return "acs";
+		}
+
+		@Override
+		public String getEmbeddedTemplateName() {
+			return "/templateValue.json";
+		}
+
+		@Override
+		public String getTemplateStorageAccountName() {
+			return null;
+		}
+
+		@Override
+		public Secret getTemplateStorageAccountKey() {
+			return null;
+		}
+
+		@Override
+		public void configureParameters(ObjectNode parameters) throws IllegalAccessException, AzureCloudException {
+			parameters.putObject("dnsNamePrefix").put("value", "acs");
+			parameters.putObject("agentCount").put("value", 3);
+			parameters.putObject("agentVMSize").put("value", this.agentVMSize);
+		}
+
+		@Override
+		public void logError(String message) {
+			this.state = DeploymentState.HasError;
+		}
+
+		@Override
+		public void logStatus(String status) {
+		}
+
+		@Override
+		public void logError(Exception ex) {
+			this.state = DeploymentState.HasError;
+		}
+
+		@Override
+		public void logError(String prefix, Exception ex) {
+			this.state = DeploymentState.HasError;
+		}
+
+		@Override
+		public void setDeploymentState(DeploymentState deployState) {
+			this.state = deployState;
+		}
+
+		@Override
+		public DeploymentState getDeploymentState() {
+			return this.state;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.ACSDeploymentContext;
+import org.jenkinsci.plugins.microsoft.ACSGlobalConfiguration;
+import org.jenkinsci.plugins.microsoft.AzureAuthenticationContext;
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.jenkinsci.plugins.microsoft.util.ManualClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import jenkins.model.Jenkins;
+
+public class WarmPoolTest {
+	private static final String LEASED_BY = "job#1";
+
+	@Rule
+	public JenkinsRule j = new JenkinsRule();
+
+	private final ManualClock clock = new ManualClock();
+	// nothing listens there, deleting a cluster fails at once instead of reaching Azure
+	private final AzureAuthenticationContext authContext = new AzureAuthenticationContext(
+			"00000000-0000-0000-0000-000000000000", "client", "secret", "http://localhost:1/token");
+	private final ACSDeploymentContext context = new ACSDeploymentContext(
+			"acs", "1", "Standard_A1", "azureuser", "1", "ssh-rsa AAAA", "marathon.json", "", "id_rsa", "West US");
+
+	@Before
+	public void configure() {
+		DeploymentClock.set(this.clock);
+		ACSGlobalConfiguration.get().setWarmPoolSize(1);
+		ACSGlobalConfiguration.get().setRecycleWarmPoolClusters(true);
+	}
+
+	@After
+	public void resetClock() {
+		DeploymentClock.set(null);
+	}
+
+	@Test
+	public void leasesAReadyClusterOfTheSameSpec() {
+		WarmPool pool = this.pool(this.specKey(), PooledCluster.State.Ready);
+		PooledCluster leased = pool.lease(this.context, this.authContext, LEASED_BY);
+
+		assertEquals("acs-ready", leased.getDnsNamePrefix());
+		assertEquals(PooledCluster.State.Leased, leased.getState());
+		assertEquals(LEASED_BY, leased.getLeasedBy());
+		assertEquals(this.clock.currentTimeMillis(), leased.getLeasedAt());
+		// the cluster still provisioning replaces the leased one, no new cluster is provisioned
+		assertEquals(2, pool.getClusters().size());
+	}
+
+	@Test
+	public void leasesNoClusterWhichIsNotReady() {
+		WarmPool pool = this.pool(this.specKey(), PooledCluster.State.Deleting);
+
+		assertNull(pool.lease(this.context, this.authContext, LEASED_BY));
+	}
+
+	@Test
+	public void leasesNothingWhenThePoolIsDisabled() {
+		ACSGlobalConfiguration.get().setWarmPoolSize(0);
+		WarmPool pool = this.pool(this.specKey(), PooledCluster.State.Ready);
+
+		assertNull(pool.lease(this.context, this.authContext, LEASED_BY));
+		assertEquals(PooledCluster.State.Ready, pool.getClusters().get(0).getState());
+	}
+
+	@Test
+	public void recyclesReleasedClusters() {
+		WarmPool pool = this.pool(this.specKey(), PooledCluster.State.Ready);
+		PooledCluster leased = pool.lease(this.context, this.authContext, LEASED_BY);
+
+		assertTrue(pool.release("job#2").isEmpty());
+		List<PooledCluster> released = pool.release(LEASED_BY);
+
+		assertEquals(1, released.size());
+		assertEquals(PooledCluster.State.Ready, leased.getState());
+		assertNull(leased.getLeasedBy());
+	}
+
+	@Test
+	public void deletesReleasedClustersOfExpiredSpecs() {
+		WarmPool pool = this.pool(this.specKey(), PooledCluster.State.Ready);
+		PooledCluster leased = pool.lease(this.context, this.authContext, LEASED_BY);
+
+		// nobody leased a cluster of the spec for more than a week
+		this.clock.advance(TimeUnit.DAYS.toMillis(8));
+		pool.release(LEASED_BY);
+
+		assertEquals(PooledCluster.State.Deleting, leased.getState());
+	}
+
+	@Test
+	public void deletesReleasedClustersUnlessRecycling() {
+		ACSGlobalConfiguration.get().setRecycleWarmPoolClusters(false);
+		WarmPool pool = this.pool(this.specKey(), PooledCluster.State.Ready);
+		PooledCluster leased = pool.lease(this.context, this.authContext, LEASED_BY);
+
+		pool.release(LEASED_BY);
+
+		assertEquals(PooledCluster.State.Deleting, leased.getState());
+	}
+
+	private String specKey() {
+		return this.context.getClusterSpecKey(this.authContext);
+	}
+
+	/**
+	 * @return a pool as loaded from JENKINS_HOME, holding a cluster in the
+	 * given state and one still provisioning, both of the given spec
+	 */
+	private WarmPool pool(String specKey, PooledCluster.State state) {
+		return (WarmPool)Jenkins.XSTREAM2.fromXML(String.format(
+				"<org.jenkinsci.plugins.microsoft.pool.WarmPool>" +
+				"<clusters>" +
+				"<org.jenkinsci.plugins.microsoft.pool.PooledCluster>" +
+				"<dnsNamePrefix>acs-ready</dnsNamePrefix><specKey>%1$s</specKey><createdAt>0</createdAt><state>%2$s</state>" +
+				"</org.jenkinsci.plugins.microsoft.pool.PooledCluster>" +
+				"<org.jenkinsci.plugins.microsoft.pool.PooledCluster>" +
+				"<dnsNamePrefix>acs-provisioning</dnsNamePrefix><specKey>%1$s</specKey><createdAt>0</createdAt><state>Provisioning</state>" +
+				"</org.jenkinsci.plugins.microsoft.pool.PooledCluster>" +
+				"</clusters>" +
+				"<specs/>" +
+				"</org.jenkinsci.plugins.microsoft.pool.WarmPool>", specKey, state));
+	}
+}
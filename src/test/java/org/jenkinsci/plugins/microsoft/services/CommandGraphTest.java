@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.jenkinsci.plugins.microsoft.commands.CommandValue;
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
+import org.junit.Test;
+
+public class CommandGraphTest {
+
+	@Test
+	public void runsCommandsOnceTheirInputsWereProduced() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Produce(DeploymentState.Success), Consume.class, null)
+				.add(new Consume(), Last.class, null)
+				.add(new Last(), Sibling.class, null)
+				.add(new Sibling(), null, null);
+
+		assertTrue(new CommandGraph(flow).execute(4));
+
+		List<Class> ran = flow.getRan();
+		assertEquals(4, ran.size());
+		assertEquals(Produce.class, ran.get(0));
+		assertTrue(ran.indexOf(Consume.class) < ran.indexOf(Last.class));
+		assertTrue(ran.contains(Sibling.class));
+	}
+
+	@Test
+	public void doesNotWaitForInputsNoCommandProduces() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Orphan(), null, null);
+
+		assertTrue(new CommandGraph(flow).execute(1));
+		assertEquals(Arrays.<Class>asList(Orphan.class), flow.getRan());
+	}
+
+	@Test
+	public void runsOnlyTheSuccessBranchOnSuccess() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Produce(DeploymentState.Success), Consume.class, Orphan.class)
+				.add(new Consume(), null, null)
+				.add(new Orphan(), null, null);
+
+		assertTrue(new CommandGraph(flow).execute(4));
+		assertEquals(Arrays.<Class>asList(Produce.class, Consume.class), flow.getRan());
+	}
+
+	@Test
+	public void runsOnlyTheFailBranchWhenUnsuccessful() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Produce(DeploymentState.UnSuccessful), Consume.class, Orphan.class)
+				.add(new Consume(), null, null)
+				.add(new Orphan(), null, null);
+
+		assertTrue(new CommandGraph(flow).execute(4));
+		assertEquals(Arrays.<Class>asList(Produce.class, Orphan.class), flow.getRan());
+	}
+
+	@Test
+	public void startsNothingAfterAnError() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Failing(), SlowProduce.class, null)
+				.add(new SlowProduce(), Consume.class, null)
+				.add(new Consume(), null, null);
+
+		assertFalse(new CommandGraph(flow).execute(4));
+
+		List<Class> ran = flow.getRan();
+		assertTrue(ran.contains(Failing.class));
+		// already running when the error happened, but its consumer is not started
+		assertTrue(ran.contains(SlowProduce.class));
+		assertFalse(ran.contains(Consume.class));
+		// the error of the command's own view also reaches the shared command data
+		assertEquals(DeploymentState.HasError, flow.getDeploymentState());
+		assertEquals(Arrays.asList("Failing failed"), flow.getErrors());
+	}
+
+	@Test
+	public void neverRunsTheCommandsBeforeTheStartCommand() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Produce(DeploymentState.Success), Check.class, null)
+				.add(new Check(), Scale.class, Deploy.class)
+				.add(new Scale(), Last.class, null)
+				.add(new Deploy(), Monitor.class, null)
+				.add(new Monitor(), Last.class, null)
+				.add(new Last(), null, null)
+				.startAt(Monitor.class);
+
+		assertTrue(new CommandGraph(flow).execute(4));
+		// the deployment the monitor waits for was started by an earlier build
+		assertEquals(Arrays.<Class>asList(Monitor.class, Last.class), flow.getRan());
+	}
+
+	@Test
+	public void checkpointsTheFirstCommandWhichDidNotComplete() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Produce(DeploymentState.Success), Consume.class, null)
+				.add(new Consume(), Last.class, null)
+				.add(new Last(), null, null);
+
+		assertTrue(new CommandGraph(flow).execute(4));
+		assertEquals(Arrays.<Class>asList(Produce.class, Consume.class, Last.class, null), flow.getCheckpoints());
+	}
+
+	@Test
+	public void clearsTheCheckpointWhenACommandFailed() throws Exception {
+		TestFlow flow = new TestFlow()
+				.add(new Produce(DeploymentState.Success), FailingConsume.class, null)
+				.add(new FailingConsume(), null, null);
+
+		assertFalse(new CommandGraph(flow).execute(4));
+		assertEquals(Arrays.<Class>asList(Produce.class, FailingConsume.class, null), flow.getCheckpoints());
+	}
+
+	private static class Produce extends TestFlow.Step {
+		Produce(DeploymentState result) {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.of(CommandValue.ResourceGroup), result);
+		}
+	}
+
+	private static class Consume extends TestFlow.Step {
+		Consume() {
+			super(EnumSet.of(CommandValue.ResourceGroup), EnumSet.of(CommandValue.Cluster), DeploymentState.Success);
+		}
+	}
+
+	private static class Last extends TestFlow.Step {
+		Last() {
+			super(EnumSet.of(CommandValue.Cluster), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+	}
+
+	private static class SlowProduce extends TestFlow.Step {
+		SlowProduce() {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.of(CommandValue.ResourceGroup), DeploymentState.Success);
+		}
+
+		@Override
+		protected void run(IBaseCommandData context) {
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static class Sibling extends TestFlow.Step {
+		Sibling() {
+			super(EnumSet.of(CommandValue.ResourceGroup), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+	}
+
+	private static class Orphan extends TestFlow.Step {
+		Orphan() {
+			super(EnumSet.of(CommandValue.MgmtFQDN), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+	}
+
+	private static class Check extends TestFlow.Step {
+		Check() {
+			super(EnumSet.of(CommandValue.ResourceGroup), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+	}
+
+	private static class Scale extends TestFlow.Step {
+		Scale() {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.of(CommandValue.Cluster), DeploymentState.Success);
+		}
+	}
+
+	private static class Deploy extends TestFlow.Step {
+		Deploy() {
+			super(EnumSet.of(CommandValue.ResourceGroup), EnumSet.of(CommandValue.Deployment), DeploymentState.Success);
+		}
+	}
+
+	private static class Monitor extends TestFlow.Step {
+		Monitor() {
+			super(EnumSet.of(CommandValue.Deployment), EnumSet.of(CommandValue.Cluster), DeploymentState.Success);
+		}
+	}
+
+	private static class FailingConsume extends TestFlow.Step {
+		FailingConsume() {
+			super(EnumSet.of(CommandValue.ResourceGroup), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+
+		@Override
+		protected void run(IBaseCommandData context) {
+			context.logError("FailingConsume failed");
+		}
+	}
+
+	private static class Failing extends TestFlow.Step {
+		Failing() {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+
+		@Override
+		protected void run(IBaseCommandData context) {
+			context.logError("Failing failed");
+		}
+	}
+}
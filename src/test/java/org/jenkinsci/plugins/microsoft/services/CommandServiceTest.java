@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.jenkinsci.plugins.microsoft.commands.CommandValue;
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The checkpoints a sequential flow leaves decide what a later build
+ * resumes: the command which did not complete, or nothing.
+ */
+public class CommandServiceTest {
+
+	@After
+	public void clearInterrupt() {
+		Thread.interrupted();
+	}
+
+	@Test
+	public void completedFlowLeavesNothingToResume() {
+		TestFlow flow = new TestFlow()
+				.add(new First(DeploymentState.Success), Second.class, null)
+				.add(new Second(), null, null);
+
+		assertTrue(CommandService.executeCommands(flow));
+		assertEquals(Arrays.<Class>asList(First.class, Second.class), flow.getRan());
+		assertEquals(Arrays.<Class>asList(First.class, Second.class, null), flow.getCheckpoints());
+	}
+
+	@Test
+	public void resumedFlowStartsAtTheCheckpointedCommand() {
+		TestFlow flow = new TestFlow()
+				.add(new First(DeploymentState.Success), Second.class, null)
+				.add(new Second(), null, null)
+				.startAt(Second.class);
+
+		assertTrue(CommandService.executeCommands(flow));
+		assertEquals(Arrays.<Class>asList(Second.class), flow.getRan());
+		assertEquals(Arrays.<Class>asList(Second.class, null), flow.getCheckpoints());
+	}
+
+	@Test
+	public void followsTheFailTransition() {
+		TestFlow flow = new TestFlow()
+				.add(new First(DeploymentState.UnSuccessful), null, Second.class)
+				.add(new Second(), null, null);
+
+		assertTrue(CommandService.executeCommands(flow));
+		assertEquals(Arrays.<Class>asList(First.class, Second.class), flow.getRan());
+	}
+
+	@Test
+	public void failedFlowLeavesNothingToResume() {
+		TestFlow flow = new TestFlow()
+				.add(new First(DeploymentState.HasError), Second.class, null)
+				.add(new Second(), null, null);
+
+		assertFalse(CommandService.executeCommands(flow));
+		assertEquals(Arrays.<Class>asList(First.class), flow.getRan());
+		assertEquals(Arrays.<Class>asList(First.class, null), flow.getCheckpoints());
+	}
+
+	@Test
+	public void abortedFlowResumesAtTheCommandWhichDidNotRun() {
+		TestFlow flow = new TestFlow()
+				.add(new Aborting(DeploymentState.Success), Second.class, null)
+				.add(new Second(), null, null);
+
+		assertFalse(CommandService.executeCommands(flow));
+		assertEquals(Arrays.<Class>asList(Aborting.class), flow.getRan());
+		assertEquals(Arrays.<Class>asList(Aborting.class), flow.getCheckpoints());
+		// the interrupt was not raised by the watchdog, so it is left alone
+		assertTrue(Thread.currentThread().isInterrupted());
+	}
+
+	@Test
+	public void abortedCommandResumesAtItself() {
+		TestFlow flow = new TestFlow()
+				.add(new Aborting(DeploymentState.HasError), Second.class, null)
+				.add(new Second(), null, null);
+
+		assertFalse(CommandService.executeCommands(flow));
+		assertEquals(Arrays.<Class>asList(Aborting.class), flow.getCheckpoints());
+	}
+
+	private static class First extends TestFlow.Step {
+		First(DeploymentState result) {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.noneOf(CommandValue.class), result);
+		}
+	}
+
+	private static class Second extends TestFlow.Step {
+		Second() {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+	}
+
+	/**
+	 * Ends while the build is being aborted.
+	 */
+	private static class Aborting extends TestFlow.Step {
+		Aborting(DeploymentState result) {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.noneOf(CommandValue.class), result);
+		}
+
+		@Override
+		protected void run(IBaseCommandData context) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.commands.CommandValue;
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
+import org.jenkinsci.plugins.microsoft.commands.ResourceGroupCommand;
+import org.jenkinsci.plugins.microsoft.commands.ScaleAgentPoolCommand;
+import org.jenkinsci.plugins.microsoft.commands.TemplateMonitorCommand;
+import org.junit.After;
+import org.junit.Test;
+
+public class CommandTimeoutsTest {
+
+	@After
+	public void resetTimeouts() {
+		CommandTimeouts.configure(Collections.<String, Long>emptyMap());
+	}
+
+	@Test
+	public void parsesOneTimeoutPerLine() {
+		Map<String, Long> timeouts = CommandTimeouts.parse(
+				"TemplateMonitorCommand=120\r\n# comment\n\n  ScaleAgentPoolCommand = 0.5  \nEnablePortCommand=0");
+
+		assertEquals(3, timeouts.size());
+		assertEquals(Long.valueOf(TimeUnit.MINUTES.toMillis(120)), timeouts.get("TemplateMonitorCommand"));
+		assertEquals(Long.valueOf(TimeUnit.SECONDS.toMillis(30)), timeouts.get("ScaleAgentPoolCommand"));
+		assertEquals(Long.valueOf(0), timeouts.get("EnablePortCommand"));
+	}
+
+	@Test
+	public void parsesNothing() {
+		assertTrue(CommandTimeouts.parse(null).isEmpty());
+		assertTrue(CommandTimeouts.parse("").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownCommands() {
+		CommandTimeouts.parse("NoSuchCommand=10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsClassesWhichAreNoCommands() {
+		CommandTimeouts.parse("DeploymentState=10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeTimeouts() {
+		CommandTimeouts.parse("TemplateMonitorCommand=-1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsLinesWithoutTimeout() {
+		CommandTimeouts.parse("TemplateMonitorCommand");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidNumbers() {
+		CommandTimeouts.parse("TemplateMonitorCommand=long");
+	}
+
+	@Test
+	public void usesTheDefaultsOfCommandsNotConfigured() {
+		assertEquals(TimeUnit.MINUTES.toMillis(90), CommandTimeouts.getTimeoutMillis(TemplateMonitorCommand.class));
+		assertEquals(TimeUnit.MINUTES.toMillis(60), CommandTimeouts.getTimeoutMillis(ScaleAgentPoolCommand.class));
+		assertEquals(CommandTimeouts.DEFAULT_TIMEOUT_MILLIS, CommandTimeouts.getTimeoutMillis(ResourceGroupCommand.class));
+	}
+
+	@Test
+	public void configuredTimeoutsReplaceTheDefaults() {
+		CommandTimeouts.configure(CommandTimeouts.parse("TemplateMonitorCommand=0\nResourceGroupCommand=5"));
+
+		assertEquals(0, CommandTimeouts.getTimeoutMillis(TemplateMonitorCommand.class));
+		assertEquals(TimeUnit.MINUTES.toMillis(5), CommandTimeouts.getTimeoutMillis(ResourceGroupCommand.class));
+		assertEquals(TimeUnit.MINUTES.toMillis(60), CommandTimeouts.getTimeoutMillis(ScaleAgentPoolCommand.class));
+	}
+
+	@Test
+	public void interruptsCommandsRunningLongerThanTheirTimeout() {
+		CommandTimeouts.configure(Collections.singletonMap("Hanging", 100L));
+		TestFlow flow = new TestFlow()
+				.add(new Hanging(), null, null);
+
+		assertFalse(CommandService.executeCommands(flow));
+
+		List<String> errors = flow.getErrors();
+		assertEquals("Hanging interrupted", errors.get(0));
+		assertTrue(errors.get(1).startsWith("Hanging timed out after"));
+		// the interrupt was the watchdog's, the build itself was not aborted
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	private static class Hanging extends TestFlow.Step {
+		Hanging() {
+			super(EnumSet.noneOf(CommandValue.class), EnumSet.noneOf(CommandValue.class), DeploymentState.Success);
+		}
+
+		@Override
+		protected void run(IBaseCommandData context) {
+			try {
+				Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException e) {
+				context.logError("Hanging interrupted");
+			}
+		}
+	}
+}
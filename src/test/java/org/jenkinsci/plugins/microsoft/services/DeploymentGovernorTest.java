@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.microsoft.util.DeploymentClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeploymentGovernorTest {
+	private static final String SUBSCRIPTION = "00000000-0000-0000-0000-000000000000";
+
+	private final DeploymentGovernor governor = new DeploymentGovernor();
+	private ExecutorService executor;
+
+	@Before
+	public void createExecutor() {
+		this.executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void shutdownExecutor() {
+		this.executor.shutdownNow();
+		DeploymentClock.set(null);
+	}
+
+	@Test
+	public void admitsWaitingDeploymentsInArrivalOrder() throws Exception {
+		this.governor.setLimits(1, 0);
+		DeploymentGovernor.Slot running = this.acquire("West US", 0);
+
+		Future<DeploymentGovernor.Slot> second = this.acquireLater("West US");
+		this.awaitQueueLength(1);
+		Future<DeploymentGovernor.Slot> third = this.acquireLater("East US");
+		this.awaitQueueLength(2);
+
+		running.release();
+		DeploymentGovernor.Slot secondSlot = second.get(10, TimeUnit.SECONDS);
+		this.awaitQueueLength(1);
+		assertFalse(third.isDone());
+
+		secondSlot.release();
+		third.get(10, TimeUnit.SECONDS).release();
+		assertEquals(0, this.governor.getRunning(SUBSCRIPTION));
+	}
+
+	@Test
+	public void fullRegionDoesNotHoldBackOtherRegions() throws Exception {
+		this.governor.setLimits(0, 1);
+		DeploymentGovernor.Slot west = this.acquire("West US", 0);
+		Future<DeploymentGovernor.Slot> waiting = this.acquireLater("westus");
+		this.awaitQueueLength(1);
+
+		// admitted right away although queued behind the deployment to West US
+		DeploymentGovernor.Slot east = this.acquire("East US", 0);
+		assertEquals(2, this.governor.getRunning(SUBSCRIPTION));
+		assertFalse(waiting.isDone());
+
+		west.release();
+		waiting.get(10, TimeUnit.SECONDS).release();
+		east.release();
+	}
+
+	@Test
+	public void interruptedDeploymentLeavesTheQueue() throws Exception {
+		this.governor.setLimits(1, 0);
+		DeploymentGovernor.Slot running = this.acquire("West US", 0);
+		Future<DeploymentGovernor.Slot> waiting = this.acquireLater("West US");
+		this.awaitQueueLength(1);
+
+		waiting.cancel(true);
+		this.awaitQueueLength(0);
+
+		running.release();
+		assertEquals(0, this.governor.getRunning(SUBSCRIPTION));
+		// the slot went to nobody, the next deployment is admitted right away
+		this.acquire("West US", 0).release();
+	}
+
+	@Test
+	public void countsTheCoresOfAdmittedDeploymentsUntilReleased() throws Exception {
+		DeploymentGovernor.Slot first = this.acquire("West US", 10);
+		DeploymentGovernor.Slot second = this.acquire("westus", 6);
+		DeploymentGovernor.Slot other = this.acquire("East US", 4);
+		assertEquals(16, this.governor.getAdmittedCores(SUBSCRIPTION, "West US"));
+
+		first.release();
+		// releasing twice does not free the slot of another deployment
+		first.release();
+		assertEquals(6, this.governor.getAdmittedCores(SUBSCRIPTION, "West US"));
+		assertEquals(2, this.governor.getRunning(SUBSCRIPTION));
+
+		second.release();
+		other.release();
+		assertEquals(0, this.governor.getAdmittedCores(SUBSCRIPTION, "West US"));
+	}
+
+	@Test
+	public void raisingTheLimitAdmitsWaitingDeployments() throws Exception {
+		this.governor.setLimits(1, 0);
+		DeploymentGovernor.Slot running = this.acquire("West US", 0);
+		Future<DeploymentGovernor.Slot> waiting = this.acquireLater("West US");
+		this.awaitQueueLength(1);
+
+		this.governor.setLimits(2, 0);
+		waiting.get(10, TimeUnit.SECONDS).release();
+		running.release();
+	}
+
+	@Test
+	public void reportsThePositionEveryDeploymentSlotInterval() throws Exception {
+		// the one minute report interval passes in a second
+		DeploymentClock.set(DeploymentClock.scaled(60));
+		this.governor.setLimits(1, 0);
+		DeploymentGovernor.Slot running = this.acquire("West US", 0);
+		TestFlow context = new TestFlow();
+		Future<DeploymentGovernor.Slot> waiting = this.acquireLater("West US", context);
+		this.awaitQueueLength(1);
+
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while(context.getStatuses().size() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(context.getStatuses().size() >= 2);
+		assertTrue(context.getStatuses().get(1).contains("position 1 in the queue"));
+
+		running.release();
+		waiting.get(10, TimeUnit.SECONDS).release();
+	}
+
+	private DeploymentGovernor.Slot acquire(String location, int cores) throws InterruptedException {
+		return this.governor.acquire(SUBSCRIPTION, location, cores, new TestFlow());
+	}
+
+	private Future<DeploymentGovernor.Slot> acquireLater(String location) {
+		return this.acquireLater(location, new TestFlow());
+	}
+
+	private Future<DeploymentGovernor.Slot> acquireLater(final String location, final TestFlow context) {
+		return this.executor.submit(new Callable<DeploymentGovernor.Slot>() {
+			@Override
+			public DeploymentGovernor.Slot call() throws Exception {
+				return governor.acquire(SUBSCRIPTION, location, 0, context);
+			}
+		});
+	}
+
+	private void awaitQueueLength(int length) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while(this.governor.getQueueLength() != length) {
+			if(System.currentTimeMillis() > deadline) {
+				fail("Expected " + length + " waiting deployments, found " + this.governor.getQueueLength());
+			}
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
+
+/**
+ * The data of the {@link TestFlow.Step}s, also implemented by the views
+ * {@link CommandGraph} hands to the commands.
+ */
+public interface IRecordingCommandData extends IBaseCommandData {
+	public void ran(Class command);
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.services;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.jenkinsci.plugins.microsoft.commands.CommandValue;
+import org.jenkinsci.plugins.microsoft.commands.DeploymentState;
+import org.jenkinsci.plugins.microsoft.commands.IBaseCommandData;
+import org.jenkinsci.plugins.microsoft.commands.ICommand;
+import org.jenkinsci.plugins.microsoft.commands.IDataFlowCommand;
+import org.jenkinsci.plugins.microsoft.commands.TransitionInfo;
+import org.jenkinsci.plugins.microsoft.util.DeploymentTimer;
+
+/**
+ * A flow of stub commands which records the commands run and the
+ * checkpoints taken, without touching Azure.
+ */
+public class TestFlow implements ICommandServiceData, IRecordingCommandData {
+	private final Hashtable<Class, TransitionInfo> commands = new Hashtable<Class, TransitionInfo>();
+	private final DeploymentTimer timer = new DeploymentTimer();
+	private final List<Class> ran = new ArrayList<Class>();
+	private final List<Class> checkpoints = new ArrayList<Class>();
+	private final List<String> errors = new ArrayList<String>();
+	private final List<String> statuses = new ArrayList<String>();
+	private Class startCommand;
+	private volatile DeploymentState state = DeploymentState.Unknown;
+
+	public TestFlow add(Step command, Class success, Class fail) {
+		if(this.startCommand == null) {
+			this.startCommand = command.getClass();
+		}
+		this.commands.put(command.getClass(), new TransitionInfo(command, success, fail));
+		return this;
+	}
+
+	/**
+	 * Starts the flow at the given command instead of the first one added,
+	 * as a resumed deployment does.
+	 */
+	public TestFlow startAt(Class command) {
+		this.startCommand = command;
+		return this;
+	}
+
+	public synchronized List<Class> getRan() {
+		return new ArrayList<Class>(this.ran);
+	}
+
+	public synchronized List<Class> getCheckpoints() {
+		return new ArrayList<Class>(this.checkpoints);
+	}
+
+	public synchronized List<String> getErrors() {
+		return new ArrayList<String>(this.errors);
+	}
+
+	public synchronized List<String> getStatuses() {
+		return new ArrayList<String>(this.statuses);
+	}
+
+	@Override
+	public synchronized void ran(Class command) {
+		this.ran.add(command);
+	}
+
+	@Override
+	public Class getStartCommandClass() {
+		return this.startCommand;
+	}
+
+	@Override
+	public Hashtable<Class, TransitionInfo> getCommands() {
+		return this.commands;
+	}
+
+	@Override
+	public IBaseCommandData getDataForCommand(ICommand command) {
+		return this;
+	}
+
+	@Override
+	public CommandExecutionMode getExecutionMode() {
+		return CommandExecutionMode.SEQUENTIAL;
+	}
+
+	@Override
+	public DeploymentTimer getTimer() {
+		return this.timer;
+	}
+
+	@Override
+	public synchronized void checkpoint(Class nextCommand) {
+		this.checkpoints.add(nextCommand);
+	}
+
+	@Override
+	public synchronized void logError(String message) {
+		this.errors.add(message);
+		this.state = DeploymentState.HasError;
+	}
+
+	@Override
+	public synchronized void logStatus(String status) {
+		this.statuses.add(status);
+	}
+
+	@Override
+	public void logError(Exception ex) {
+		this.logError("Error: ", ex);
+	}
+
+	@Override
+	public void logError(String prefix, Exception ex) {
+		this.logError(prefix + ex.getMessage());
+	}
+
+	@Override
+	public void setDeploymentState(DeploymentState deployState) {
+		this.state = deployState;
+	}
+
+	@Override
+	public DeploymentState getDeploymentState() {
+		return this.state;
+	}
+
+	/**
+	 * A command which records that it ran and ends in a fixed state. A flow
+	 * is keyed by command class, so every command of a flow is a subclass.
+	 */
+	public static abstract class Step implements ICommand<IBaseCommandData>, IDataFlowCommand {
+		private final EnumSet<CommandValue> inputs;
+		private final EnumSet<CommandValue> outputs;
+		private final DeploymentState result;
+
+		protected Step(EnumSet<CommandValue> inputs, EnumSet<CommandValue> outputs, DeploymentState result) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.result = result;
+		}
+
+		@Override
+		public void execute(IBaseCommandData context) {
+			((IRecordingCommandData)context).ran(this.getClass());
+			this.run(context);
+			if(context.getDeploymentState() != DeploymentState.HasError) {
+				context.setDeploymentState(this.result);
+			}
+		}
+
+		protected void run(IBaseCommandData context) {
+		}
+
+		@Override
+		public EnumSet<CommandValue> getInputs() {
+			return this.inputs;
+		}
+
+		@Override
+		public EnumSet<CommandValue> getOutputs() {
+			return this.outputs;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class ArmTemplateTest {
+	@Test
+	public void fingerprintsIgnoreTheFormattingOfTheTemplate() throws Exception {
+		ArmTemplate compact = parse("{\"resources\":[{\"type\":\"a\"}]}");
+		ArmTemplate indented = parse("{\n  \"resources\": [\n    { \"type\": \"a\" }\n  ]\n}\n");
+
+		assertEquals(compact.getContent(), indented.getContent());
+		assertEquals(compact.getContentHash(), indented.getContentHash());
+		assertEquals(compact.getFingerprint(parameters("acs")), indented.getFingerprint(parameters("acs")));
+	}
+
+	@Test
+	public void fingerprintsDifferByParameters() throws Exception {
+		ArmTemplate template = parse("{\"resources\":[{\"type\":\"a\"}]}");
+
+		assertNotEquals(template.getFingerprint(parameters("acs")), template.getFingerprint(parameters("other")));
+	}
+
+	@Test
+	public void fingerprintsDifferByTemplate() throws Exception {
+		ArmTemplate template = parse("{\"resources\":[{\"type\":\"a\"}]}");
+		ArmTemplate other = parse("{\"resources\":[{\"type\":\"b\"}]}");
+
+		assertNotEquals(template.getFingerprint(parameters("acs")), other.getFingerprint(parameters("acs")));
+	}
+
+	@Test
+	public void leavesTheMasterVMSizeOfTheEmbeddedTemplateToTheService() throws Exception {
+		try(InputStream template = ArmTemplate.class.getResourceAsStream("/templateValue.json")) {
+			assertNull(ArmTemplate.read(template).getMasterVMSize());
+		}
+	}
+
+	@Test
+	public void readsTheMasterVMSize() throws Exception {
+		assertEquals("Standard_D4", read("\"Standard_D4\"").getMasterVMSize());
+	}
+
+	@Test
+	public void ignoresMasterVMSizeExpressions() throws Exception {
+		assertNull(read("\"[variables('masterVMSize')]\"").getMasterVMSize());
+	}
+
+	private static ArmTemplate read(String vmSize) throws Exception {
+		return parse("{\"resources\":[{\"type\":\"Microsoft.Storage/storageAccounts\"},"
+				+ "{\"properties\":{\"masterProfile\":{\"count\":1,\"vmSize\":" + vmSize + "}}}]}");
+	}
+
+	private static ArmTemplate parse(String template) throws Exception {
+		return ArmTemplate.read(new ByteArrayInputStream(template.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static ObjectNode parameters(String dnsNamePrefix) {
+		ObjectNode parameters = JsonHelper.getMapper().createObjectNode();
+		parameters.putObject("dnsNamePrefix").put("value", dnsNamePrefix);
+		return parameters;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClusterInventoryTest {
+	private static final String SUBSCRIPTION_ID = "subscription";
+	private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private ManualClock clock;
+	private String dnsNamePrefix;
+
+	@Before
+	public void useManualClock() {
+		this.clock = new ManualClock();
+		DeploymentClock.set(this.clock);
+		ClusterInventory.setTtlMillis(TTL_MILLIS);
+		// the inventory is shared, every test uses its own cluster
+		this.dnsNamePrefix = "acs" + System.nanoTime();
+	}
+
+	@After
+	public void reset() {
+		ClusterInventory.get().invalidate(SUBSCRIPTION_ID, this.dnsNamePrefix);
+		ClusterInventory.setTtlMillis(ClusterInventory.DEFAULT_TTL_MILLIS);
+		DeploymentClock.set(null);
+	}
+
+	@Test
+	public void findsTheClusterWithinTheTtl() {
+		this.update();
+		this.clock.advance(TTL_MILLIS);
+
+		ClusterInventory.Entry entry = ClusterInventory.get().find(SUBSCRIPTION_ID, this.dnsNamePrefix);
+		assertNotNull(entry);
+		assertEquals("key", entry.getClusterKey());
+		assertEquals("mgmt.example.com", entry.getMgmtFQDN());
+		assertEquals(new TreeSet<Integer>(Arrays.asList(80, 443)), entry.getEnabledPorts());
+	}
+
+	@Test
+	public void findsTheClusterIgnoringTheCase() {
+		this.update();
+
+		assertNotNull(ClusterInventory.get().find(SUBSCRIPTION_ID.toUpperCase(), this.dnsNamePrefix.toUpperCase()));
+	}
+
+	@Test
+	public void doesNotFindTheClusterAfterTheTtl() {
+		this.update();
+		this.clock.advance(TTL_MILLIS + 1);
+
+		assertNull(ClusterInventory.get().find(SUBSCRIPTION_ID, this.dnsNamePrefix));
+	}
+
+	@Test
+	public void findsTheClusterAgainWhenItWasDiscoveredAgain() {
+		this.update();
+		this.clock.advance(TTL_MILLIS + 1);
+		this.update();
+
+		assertNotNull(ClusterInventory.get().find(SUBSCRIPTION_ID, this.dnsNamePrefix));
+	}
+
+	@Test
+	public void doesNotFindTheClusterWithoutTtl() {
+		this.update();
+		ClusterInventory.setTtlMillis(0);
+
+		assertNull(ClusterInventory.get().find(SUBSCRIPTION_ID, this.dnsNamePrefix));
+	}
+
+	@Test
+	public void doesNotFindTheClusterAfterItWasInvalidated() {
+		this.update();
+		ClusterInventory.get().invalidate(SUBSCRIPTION_ID, this.dnsNamePrefix);
+
+		assertNull(ClusterInventory.get().find(SUBSCRIPTION_ID, this.dnsNamePrefix));
+	}
+
+	@Test
+	public void invalidatesOnlyTheGivenCluster() {
+		this.update();
+		ClusterInventory.get().invalidate(SUBSCRIPTION_ID, this.dnsNamePrefix + "other");
+		ClusterInventory.get().invalidate("other", this.dnsNamePrefix);
+
+		assertNotNull(ClusterInventory.get().find(SUBSCRIPTION_ID, this.dnsNamePrefix));
+	}
+
+	private void update() {
+		ClusterInventory.get().update(SUBSCRIPTION_ID, this.dnsNamePrefix, new ClusterInventory.Entry(
+				"key", "mgmt.example.com", new TreeSet<Integer>(Arrays.asList(443, 80)),
+				this.clock.currentTimeMillis()));
+	}
+}
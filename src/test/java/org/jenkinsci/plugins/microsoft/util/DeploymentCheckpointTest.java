@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+
+public class DeploymentCheckpointTest {
+	private static final String TARGET = "acs";
+	private static final String CONFIG_KEY = "config";
+
+	@Rule
+	public JenkinsRule j = new JenkinsRule();
+
+	@Test
+	public void resumesTheInterruptedDeploymentOfThePreviousBuild() throws Exception {
+		FreeStyleProject project = j.createFreeStyleProject();
+		FreeStyleBuild previous = j.buildAndAssertSuccess(project);
+		DeploymentCheckpoint saved = save(previous, "TemplateMonitorCommand", CONFIG_KEY);
+		saved.setDeploymentName("1234");
+		saved.setMgmtFQDN("acs-mgmt.westus.cloudapp.azure.com");
+		saved.setEnabledPorts(new HashSet<Integer>(Arrays.asList(80, 8080)));
+		saved.save();
+
+		DeploymentCheckpoint resumed = DeploymentCheckpoint.findResumable(
+				j.buildAndAssertSuccess(project), TARGET, CONFIG_KEY);
+
+		assertEquals("TemplateMonitorCommand", resumed.getCurrentCommand());
+		assertEquals("1234", resumed.getDeploymentName());
+		assertEquals("acs-mgmt.westus.cloudapp.azure.com", resumed.getMgmtFQDN());
+		assertEquals(new HashSet<Integer>(Arrays.asList(80, 8080)), resumed.getEnabledPorts());
+	}
+
+	@Test
+	public void doesNotResumeAnotherConfiguration() throws Exception {
+		FreeStyleProject project = j.createFreeStyleProject();
+		save(j.buildAndAssertSuccess(project), "TemplateMonitorCommand", "other config");
+
+		assertNull(DeploymentCheckpoint.findResumable(j.buildAndAssertSuccess(project), TARGET, CONFIG_KEY));
+	}
+
+	@Test
+	public void doesNotResumeACompletedOrFailedFlow() throws Exception {
+		FreeStyleProject project = j.createFreeStyleProject();
+		save(j.buildAndAssertSuccess(project), null, CONFIG_KEY);
+
+		assertNull(DeploymentCheckpoint.findResumable(j.buildAndAssertSuccess(project), TARGET, CONFIG_KEY));
+	}
+
+	@Test
+	public void doesNotResumeAnotherTarget() throws Exception {
+		FreeStyleProject project = j.createFreeStyleProject();
+		save(j.buildAndAssertSuccess(project), "TemplateMonitorCommand", CONFIG_KEY);
+
+		assertNull(DeploymentCheckpoint.findResumable(j.buildAndAssertSuccess(project), "other", CONFIG_KEY));
+	}
+
+	@Test
+	public void prefersTheCheckpointOfTheBuildItself() throws Exception {
+		// the build was interrupted by a restart after resuming the previous one
+		FreeStyleProject project = j.createFreeStyleProject();
+		save(j.buildAndAssertSuccess(project), "TemplateDeployCommand", CONFIG_KEY);
+		FreeStyleBuild build = j.buildAndAssertSuccess(project);
+		save(build, "MarathonDeploymentCommand", CONFIG_KEY);
+
+		assertEquals("MarathonDeploymentCommand", 
+				DeploymentCheckpoint.findResumable(build, TARGET, CONFIG_KEY).getCurrentCommand());
+	}
+
+	@Test
+	public void doesNotResumeTheSameDeploymentTwice() throws Exception {
+		// the build itself already resumed and completed the previous deployment
+		FreeStyleProject project = j.createFreeStyleProject();
+		save(j.buildAndAssertSuccess(project), "TemplateDeployCommand", CONFIG_KEY);
+		FreeStyleBuild build = j.buildAndAssertSuccess(project);
+		save(build, null, CONFIG_KEY);
+
+		assertNull(DeploymentCheckpoint.findResumable(build, TARGET, CONFIG_KEY));
+	}
+
+	@Test
+	public void onlyLooksAtThePreviousBuild() throws Exception {
+		FreeStyleProject project = j.createFreeStyleProject();
+		save(j.buildAndAssertSuccess(project), "TemplateDeployCommand", CONFIG_KEY);
+		j.buildAndAssertSuccess(project);
+
+		assertNull(DeploymentCheckpoint.findResumable(j.buildAndAssertSuccess(project), TARGET, CONFIG_KEY));
+	}
+
+	private static DeploymentCheckpoint save(Run<?, ?> build, String currentCommand, String configKey) 
+			throws Exception {
+		DeploymentCheckpoint checkpoint = new DeploymentCheckpoint(
+				DeploymentCheckpoint.getFile(build, TARGET), TARGET, configKey);
+		checkpoint.setCurrentCommand(currentCommand);
+		checkpoint.save();
+		return checkpoint;
+	}
+}
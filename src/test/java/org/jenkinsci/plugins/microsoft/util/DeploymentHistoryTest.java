@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeploymentHistoryTest {
+	private static final double FACTOR = 2;
+
+	private File file;
+	private DeploymentHistory history;
+
+	@Before
+	public void createHistory() throws Exception {
+		this.file = File.createTempFile("history", ".jsonl");
+		this.file.delete();
+		this.history = new DeploymentHistory(this.file);
+	}
+
+	@After
+	public void deleteHistory() {
+		this.file.delete();
+	}
+
+	@Test
+	public void readsTheAppendedEntries() throws Exception {
+		this.history.append(new DeploymentHistory.Entry(1, 1000, "acs", true, 70000, 12, 1, 
+				phases("TemplateDeployCommand", 60000, "MarathonDeploymentCommand", 10000)));
+
+		List<DeploymentHistory.Entry> entries = this.history.read();
+		assertEquals(1, entries.size());
+		DeploymentHistory.Entry entry = entries.get(0);
+		assertEquals(1, entry.getBuildNumber());
+		assertEquals(1000, entry.getTimestamp());
+		assertEquals("acs", entry.getTarget());
+		assertTrue(entry.isSuccess());
+		assertEquals(70000, entry.getTotalMillis());
+		assertEquals(12, entry.getArmCalls());
+		assertEquals(1, entry.getArmRetries());
+		assertEquals(phases("TemplateDeployCommand", 60000, "MarathonDeploymentCommand", 10000), entry.getPhases());
+	}
+
+	@Test
+	public void flagsTheTotalAndTheStepsSlowerThanTheBaseline() throws Exception {
+		this.appendBaseline(60000, 10000);
+
+		List<String> regressions = this.history.findRegressions(
+				this.deployment(4, true, 200000, 11000), FACTOR);
+
+		assertEquals(2, regressions.size());
+		assertTrue(regressions.get(0), regressions.get(0).startsWith("Total took"));
+		assertTrue(regressions.get(1), regressions.get(1).startsWith("TemplateDeployCommand took"));
+	}
+
+	@Test
+	public void needsThreePreviousDeployments() throws Exception {
+		this.history.append(this.deployment(1, true, 60000, 10000));
+		this.history.append(this.deployment(2, true, 60000, 10000));
+
+		assertTrue(this.history.findRegressions(this.deployment(3, true, 600000, 100000), FACTOR).isEmpty());
+	}
+
+	@Test
+	public void comparesOnlyWithSuccessfulDeploymentsOfTheSameTargetAndPath() throws Exception {
+		this.history.append(this.deployment(1, false, 10000, 1000));
+		this.history.append(new DeploymentHistory.Entry(2, 0, "other", true, 11000, 0, 0, 
+				phases("TemplateDeployCommand", 10000, "MarathonDeploymentCommand", 1000)));
+		// a deployment which only scaled the existing cluster
+		this.history.append(new DeploymentHistory.Entry(3, 0, "acs", true, 11000, 0, 0, 
+				phases("ScaleAgentPoolCommand", 10000, "MarathonDeploymentCommand", 1000)));
+
+		assertTrue(this.history.findRegressions(this.deployment(4, true, 600000, 100000), FACTOR).isEmpty());
+	}
+
+	@Test
+	public void ignoresShortSteps() throws Exception {
+		this.appendBaseline(60000, 1000);
+
+		// four times slower, but a few seconds vary too much to tell
+		assertTrue(this.history.findRegressions(this.deployment(4, true, 60000, 4000), FACTOR).isEmpty());
+	}
+
+	@Test
+	public void doesNotCountTheDeploymentInItsOwnBaseline() throws Exception {
+		this.history.append(this.deployment(1, true, 60000, 10000));
+		this.history.append(this.deployment(2, true, 60000, 10000));
+		DeploymentHistory.Entry slow = this.deployment(3, true, 200000, 10000);
+		this.history.append(slow);
+
+		// recorded before it is checked, but only two deployments to compare with
+		assertTrue(this.history.findRegressions(slow, FACTOR).isEmpty());
+	}
+
+	private void appendBaseline(long deployMillis, long marathonMillis) throws Exception {
+		for(int build = 1; build <= 3; build++) {
+			this.history.append(this.deployment(build, true, deployMillis, marathonMillis));
+		}
+	}
+
+	private DeploymentHistory.Entry deployment(int build, boolean success, long deployMillis, long marathonMillis) {
+		return new DeploymentHistory.Entry(build, build * 1000L, "acs", success, deployMillis + marathonMillis, 0, 0, 
+				phases("TemplateDeployCommand", deployMillis, "MarathonDeploymentCommand", marathonMillis));
+	}
+
+	private static Map<String, Long> phases(Object... namesAndMillis) {
+		Map<String, Long> phases = new LinkedHashMap<String, Long>();
+		for(int i = 0; i < namesAndMillis.length; i += 2) {
+			phases.put((String)namesAndMillis[i], ((Number)namesAndMillis[i + 1]).longValue());
+		}
+		return phases;
+	}
+}
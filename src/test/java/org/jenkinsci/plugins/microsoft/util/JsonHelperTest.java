@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+public class JsonHelperTest {
+
+	@Test
+	public void scansASingleApp() throws Exception {
+		MarathonConfigSummary summary = JsonHelper.scanContent(json(
+				"{'id': '/web', 'instances': 2,",
+				" 'container': {'type': 'DOCKER', 'docker': {'image': 'nginx', 'network': 'BRIDGE',",
+				"   'portMappings': [{'containerPort': 80, 'hostPort': 80}, {'containerPort': 443, 'hostPort': 8443}]}},",
+				" 'portDefinitions': [{'port': 10000}, {'port': 10001}]}"));
+
+		assertEquals("/web", summary.getId());
+		assertEquals(Arrays.asList("/web"), summary.getAppIds());
+		assertEquals(Arrays.asList(80, 8443), summary.getHostPorts());
+		assertEquals(Arrays.asList(10000, 10001), summary.getPortDefinitions());
+	}
+
+	@Test
+	public void scansTheAppsOfAGroup() throws Exception {
+		MarathonConfigSummary summary = JsonHelper.scanContent(json(
+				"{'id': '/shop',",
+				" 'apps': [{'id': '/shop/web', 'container': {'docker': {'portMappings': [{'hostPort': 80}]}}}],",
+				" 'groups': [{'id': '/shop/backend', 'apps': [{'id': '/shop/backend/db'}]}]}"));
+
+		assertEquals("/shop", summary.getId());
+		assertEquals(Arrays.asList("/shop/web", "/shop/backend/db"), summary.getAppIds());
+		assertEquals(Arrays.asList(80), summary.getHostPorts());
+	}
+
+	@Test
+	public void ignoresValuesOutsideOfTheirContainers() throws Exception {
+		MarathonConfigSummary summary = JsonHelper.scanContent(json(
+				"{'id': '/web',",
+				" 'env': {'id': 'not-an-app', 'hostPort': 1},",
+				" 'labels': {'portMappings': 'none'},",
+				" 'healthChecks': [{'port': 8080, 'portDefinitions': [{'port': 2}]}],",
+				" 'container': {'docker': {'id': 'not-an-app', 'hostPort': 3}}}"));
+
+		assertEquals("/web", summary.getId());
+		assertEquals(Arrays.asList("/web"), summary.getAppIds());
+		assertEquals(Collections.<Integer>emptyList(), summary.getHostPorts());
+		assertEquals(Collections.<Integer>emptyList(), summary.getPortDefinitions());
+	}
+
+	@Test
+	public void scansADefinitionWithoutId() throws Exception {
+		MarathonConfigSummary summary = JsonHelper.scanContent(json("{'instances': 1}"));
+
+		assertNull(summary.getId());
+		assertTrue(summary.getAppIds().isEmpty());
+	}
+
+	@Test
+	public void rejectsHostPortsWhichAreNoIntegers() throws Exception {
+		try {
+			JsonHelper.scanContent(json(
+					"{'id': '/web', 'container': {'docker': {'portMappings': [{'hostPort': '80'}]}}}"));
+			fail("A string host port was accepted");
+		} catch (JsonParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("'hostPort' of app '/web' must be an integer, found 80"));
+		}
+	}
+
+	@Test
+	public void rejectsPortDefinitionsWhichAreNoIntegers() throws Exception {
+		try {
+			JsonHelper.scanContent(json("{'portDefinitions': [{'port': 80.5}]}"));
+			fail("A decimal port was accepted");
+		} catch (JsonParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("'port' of the marathon definition must be an integer, found 80.5"));
+		}
+	}
+
+	private static String json(String... lines) {
+		StringBuilder json = new StringBuilder();
+		for(String line : lines) {
+			json.append(line.replace('\'', '"')).append('\n');
+		}
+		return json.toString();
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DeploymentClock} which only moves when a test advances it or
+ * something sleeps on it, sleeping returns at once.
+ */
+public class ManualClock extends DeploymentClock {
+	private long millis = 1000000000000L;
+
+	@Override
+	public synchronized long nanoTime() {
+		return TimeUnit.MILLISECONDS.toNanos(this.millis);
+	}
+
+	@Override
+	public synchronized long currentTimeMillis() {
+		return this.millis;
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		if(Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		this.advance(millis);
+	}
+
+	public synchronized void advance(long millis) {
+		this.millis += millis;
+	}
+}
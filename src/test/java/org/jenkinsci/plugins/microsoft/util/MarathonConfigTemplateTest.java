@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class MarathonConfigTemplateTest {
+
+	@Test
+	public void replacesThePlaceholdersWithTheirValues() {
+		MarathonConfigTemplate template = MarathonConfigTemplate.compile(
+				"{\"id\": \"/${APP}\", \"instances\": ${INSTANCES}, \"cmd\": \"${APP}-${BUILD_NUMBER}\"}");
+
+		assertTrue(template.hasPlaceholders());
+		assertEquals("{\"id\": \"/web\", \"instances\": 3, \"cmd\": \"web-42\"}", 
+				template.render(variables("APP", "web", "INSTANCES", "3", "BUILD_NUMBER", "42")));
+	}
+
+	@Test
+	public void leavesPlaceholdersWithoutValue() {
+		MarathonConfigTemplate template = MarathonConfigTemplate.compile("{\"id\": \"${APP}\", \"cpus\": ${CPUS}}");
+
+		assertEquals("{\"id\": \"web\", \"cpus\": ${CPUS}}", template.render(variables("APP", "web")));
+		assertEquals("{\"id\": \"${APP}\", \"cpus\": ${CPUS}}", template.render(null));
+	}
+
+	@Test
+	public void leavesTextWhichIsNoPlaceholder() {
+		String content = "{\"cmd\": \"echo ${1ST} ${A-B} ${} ${UNCLOSED\"}";
+		MarathonConfigTemplate template = MarathonConfigTemplate.compile(content);
+
+		assertFalse(template.hasPlaceholders());
+		assertEquals(content, template.render(variables("1ST", "x", "A-B", "x", "UNCLOSED", "x")));
+	}
+
+	@Test
+	public void escapesValuesInsideStrings() {
+		MarathonConfigTemplate template = MarathonConfigTemplate.compile(
+				"{\"cmd\": \"echo \\\"${MESSAGE}\\\"\", \"env\": {\"PATH\": \"${PATH}\"}, \"ports\": ${PORTS}}");
+
+		assertEquals("{\"cmd\": \"echo \\\"say \\\"hi\\\"\\nbye\\\"\", \"env\": {\"PATH\": \"C:\\\\bin\"}, \"ports\": [80, 443]}",
+				template.render(variables("MESSAGE", "say \"hi\"\nbye", "PATH", "C:\\bin", "PORTS", "[80, 443]")));
+	}
+
+	@Test
+	public void reusesTheTemplateUntilTheFileChanges() throws Exception {
+		File file = File.createTempFile("marathon", ".json");
+		try {
+			FileUtils.writeStringToFile(file, "{\"id\": \"${APP}\"}", StandardCharsets.UTF_8.name());
+			MarathonConfigTemplate first = MarathonConfigTemplate.forFile(file.getPath());
+			assertSame(first, MarathonConfigTemplate.forFile(file.getPath()));
+
+			FileUtils.writeStringToFile(file, "{\"id\": \"/apps/${APP}\"}", StandardCharsets.UTF_8.name());
+			MarathonConfigTemplate changed = MarathonConfigTemplate.forFile(file.getPath());
+			assertNotSame(first, changed);
+			assertEquals("{\"id\": \"/apps/web\"}", changed.render(variables("APP", "web")));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void rejectsMissingFiles() throws Exception {
+		MarathonConfigTemplate.forFile(new File("does-not-exist.json").getAbsolutePath());
+	}
+
+	private static Map<String, String> variables(String... namesAndValues) {
+		Map<String, String> variables = new HashMap<String, String>();
+		for(int i = 0; i < namesAndValues.length; i += 2) {
+			variables.put(namesAndValues[i], namesAndValues[i + 1]);
+		}
+		return variables;
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jenkinsci.plugins.microsoft.exceptions.AzureCloudException;
+import org.junit.Test;
+
+public class MarathonDeploymentHelperTest {
+
+	@Test
+	public void quotesTheAppIdOfTheDeleteCommand() throws Exception {
+		assertEquals("curl -X DELETE 'localhost:8080/v2/apps//shop/web-1.0'", 
+				MarathonDeploymentHelper.getDeleteAppCommand("/shop/web-1.0"));
+		assertEquals("curl -X DELETE 'localhost:8080/v2/apps/web'", 
+				MarathonDeploymentHelper.getDeleteAppCommand("web"));
+	}
+
+	@Test(expected = AzureCloudException.class)
+	public void rejectsAppIdsWithShellSyntax() throws Exception {
+		MarathonDeploymentHelper.getDeleteAppCommand("web; rm -rf ~");
+	}
+
+	@Test(expected = AzureCloudException.class)
+	public void rejectsAppIdsWithQuotes() throws Exception {
+		MarathonDeploymentHelper.getDeleteAppCommand("web'$(id)'");
+	}
+
+	@Test(expected = AzureCloudException.class)
+	public void rejectsUpperCaseAppIds() throws Exception {
+		MarathonDeploymentHelper.getDeleteAppCommand("/Web");
+	}
+
+	@Test(expected = AzureCloudException.class)
+	public void rejectsEmptySegments() throws Exception {
+		MarathonDeploymentHelper.getDeleteAppCommand("/shop//web");
+	}
+
+	@Test(expected = AzureCloudException.class)
+	public void rejectsMissingAppIds() throws Exception {
+		MarathonDeploymentHelper.getDeleteAppCommand(null);
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package org.jenkinsci.plugins.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class PollingPolicyTest {
+
+	@After
+	public void resetIntervals() {
+		PollingPolicy.configure(Collections.<PollingPolicy, Long>emptyMap());
+		DeploymentClock.set(null);
+	}
+
+	@Test
+	public void parsesOneIntervalPerLine() {
+		Map<PollingPolicy, Long> intervals = PollingPolicy.parse(
+				"deployment=10\r\n# comment\n\n  SSHEXEC = 1.5  \ncoreQuota=120");
+
+		assertEquals(3, intervals.size());
+		assertEquals(Long.valueOf(10000), intervals.get(PollingPolicy.DEPLOYMENT));
+		assertEquals(Long.valueOf(1500), intervals.get(PollingPolicy.SSH_EXEC));
+		assertEquals(Long.valueOf(120000), intervals.get(PollingPolicy.CORE_QUOTA));
+	}
+
+	@Test
+	public void parsesNothing() {
+		assertTrue(PollingPolicy.parse(null).isEmpty());
+		assertTrue(PollingPolicy.parse("").isEmpty());
+	}
+
+	@Test
+	public void acceptsTheMinimum() {
+		assertEquals(Long.valueOf(1000), PollingPolicy.parse("sshExec=1").get(PollingPolicy.SSH_EXEC));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsZero() {
+		PollingPolicy.parse("deployment=0");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsIntervalsBelowTheMinimum() {
+		PollingPolicy.parse("sshExec=0.5");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeIntervals() {
+		PollingPolicy.parse("deployment=-5");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNaN() {
+		PollingPolicy.parse("deployment=NaN");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInfinity() {
+		PollingPolicy.parse("deployment=Infinity");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownPolicies() {
+		PollingPolicy.parse("deployments=10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsLinesWithoutInterval() {
+		PollingPolicy.parse("deployment");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidNumbers() {
+		PollingPolicy.parse("deployment=ten");
+	}
+
+	@Test
+	public void configureResetsPoliciesNotGiven() {
+		PollingPolicy.configure(Collections.singletonMap(PollingPolicy.NETWORK_RULE, 5000L));
+		PollingPolicy.configure(Collections.singletonMap(PollingPolicy.DEPLOYMENT, 2000L));
+
+		assertEquals(2000, PollingPolicy.DEPLOYMENT.getIntervalMillis());
+		assertEquals(PollingPolicy.NETWORK_RULE.getDefaultIntervalMillis(), PollingPolicy.NETWORK_RULE.getIntervalMillis());
+	}
+
+	@Test
+	public void awaitsTheConfiguredIntervalOnTheDeploymentClock() throws Exception {
+		ManualClock clock = new ManualClock();
+		DeploymentClock.set(clock);
+		PollingPolicy.configure(Collections.singletonMap(PollingPolicy.DEPLOYMENT, 2000L));
+		long start = clock.currentTimeMillis();
+
+		PollingPolicy.DEPLOYMENT.await();
+
+		assertEquals(2000, clock.currentTimeMillis() - start);
+	}
+}